@@ -0,0 +1,60 @@
+package radomik.com.github.resemble.benchmark;
+
+import radomik.com.github.resemble.analysis.AnalysisEngine;
+import radomik.com.github.resemble.analysis.ResembleAnalysis;
+import radomik.com.github.resemble.analysis.ResembleAnalysisOptions;
+import radomik.com.github.resemble.analysis.ResembleAnalysisResults;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Antialiasing detection on edge-heavy content shifted by one pixel, so nearly every pixel mismatches and has its
+ * neighbourhood checked. Large image sampling is disabled to check every pixel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class AntialiasingBenchmark {
+
+    @Param({"1280x720", "1920x1080"})
+    public String size;
+
+    @Param({"PIXEL", "PACKED"})
+    public AnalysisEngine engine;
+
+    private BufferedImage img1;
+    private BufferedImage img2;
+    private ResembleAnalysis analysis;
+
+    @Setup
+    public void setup() {
+        int[] dim = SyntheticImages.parseSize(size);
+        img1 = SyntheticImages.createEdges(dim[0], dim[1], 0);
+        img2 = SyntheticImages.createEdges(dim[0], dim[1], 1);
+        ResembleAnalysisOptions options = new ResembleAnalysisOptions();
+        options.setIgnoreColors(false);
+        options.setIgnoreAntialiasing(true);
+        options.setLargeImageThreshold(0.0);
+        options.setEngine(engine);
+        analysis = new ResembleAnalysis(options);
+    }
+
+    @Benchmark
+    public ResembleAnalysisResults analyseImages() {
+        return analysis.analyseImages(img1, img2);
+    }
+}
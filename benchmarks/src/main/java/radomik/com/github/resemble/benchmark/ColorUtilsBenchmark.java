@@ -0,0 +1,57 @@
+package radomik.com.github.resemble.benchmark;
+
+import radomik.com.github.resemble.pixel.utils.ColorUtils;
+import static radomik.com.github.resemble.pixel.utils.ColorUtils.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ColorUtils#getHue(int, int, int)} and {@link ColorUtils#getBrightness(int, int, int)} on random colors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorUtilsBenchmark {
+
+    private static final int COUNT = 4096;
+
+    private int[] colors;
+
+    @Setup
+    public void setup() {
+        colors = SyntheticImages.createColors(COUNT, 1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public double getHue() {
+        double sum = 0.0;
+        for (int argb: colors) {
+            sum += ColorUtils.getHue(getARGB_Red(argb), getARGB_Green(argb), getARGB_Blue(argb));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public int getBrightness() {
+        int sum = 0;
+        for (int argb: colors) {
+            sum += ColorUtils.getBrightness(getARGB_Red(argb), getARGB_Green(argb), getARGB_Blue(argb));
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,72 @@
+package radomik.com.github.resemble.benchmark;
+
+import radomik.com.github.resemble.analysis.AnalysisEngine;
+import radomik.com.github.resemble.analysis.ErrorPixel;
+import radomik.com.github.resemble.analysis.ResembleAnalysis;
+import radomik.com.github.resemble.analysis.ResembleAnalysisOptions;
+import radomik.com.github.resemble.analysis.ResembleAnalysisResults;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ResembleAnalysis#analyseImages} for every {@link ErrorPixel} mode and color/antialiasing option.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ErrorPixelBenchmark {
+
+    @Param({"FLAT", "MOVEMENT", "FLAT_DIFFERENCE_INTENSITY", "MOVEMENT_DIFFERENCE_INTENSITY"})
+    public ErrorPixel errorPixel;
+
+    @Param({"true", "false"})
+    public boolean ignoreColors;
+
+    @Param({"true", "false"})
+    public boolean ignoreAntialiasing;
+
+    @Param({"PIXEL", "PACKED"})
+    public AnalysisEngine engine;
+
+    @Param({"1920x1080"})
+    public String size;
+
+    @Param({"0.1"})
+    public double mismatchDensity;
+
+    private BufferedImage img1;
+    private BufferedImage img2;
+    private ResembleAnalysis analysis;
+
+    @Setup
+    public void setup() {
+        int[] dim = SyntheticImages.parseSize(size);
+        img1 = SyntheticImages.createScreenshot(dim[0], dim[1], 1);
+        img2 = SyntheticImages.withMismatch(img1, mismatchDensity, 2);
+        ResembleAnalysisOptions options = new ResembleAnalysisOptions();
+        options.setErrorPixel(errorPixel);
+        options.setIgnoreColors(ignoreColors);
+        options.setIgnoreAntialiasing(ignoreAntialiasing);
+        options.setEngine(engine);
+        analysis = new ResembleAnalysis(options);
+    }
+
+    @Benchmark
+    public ResembleAnalysisResults analyseImages() {
+        return analysis.analyseImages(img1, img2);
+    }
+}
@@ -0,0 +1,51 @@
+package radomik.com.github.resemble.benchmark;
+
+import radomik.com.github.resemble.parser.ResembleParser;
+import radomik.com.github.resemble.parser.ResembleParserData;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ResembleParser#parse} across image sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ParserBenchmark {
+
+    @Param({"1280x720", "1920x1080", "3840x2160", "7680x4320"})
+    public String size;
+
+    private BufferedImage img;
+
+    @Setup
+    public void setup() {
+        int[] dim = SyntheticImages.parseSize(size);
+        img = SyntheticImages.createScreenshot(dim[0], dim[1], 1);
+    }
+
+    @Benchmark
+    public ResembleParserData parse() {
+        return ResembleParser.parse(img);
+    }
+
+    @Benchmark
+    public ResembleParserData parseParallel() {
+        return ResembleParser.parse(img, ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,126 @@
+package radomik.com.github.resemble.benchmark;
+
+import radomik.com.github.resemble.utils.ImageUtils;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Deterministic generated images used by benchmarks, so they can run without any image files.
+ */
+public abstract class SyntheticImages {
+
+    /**
+     * Parse image size given as <code>WIDTHxHEIGHT</code>.
+     *
+     * @param size image size e.g. <code>1920x1080</code>
+     * @return {width, height}
+     */
+    public static int[] parseSize(String size) {
+        String[] parts = size.split("x");
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    /**
+     * Create screenshot-like image: flat panels, horizontal rules and rows of small glyph-like blocks.
+     *
+     * @param width image width
+     * @param height image height
+     * @param seed random seed
+     * @return new image of {@link ImageUtils#IMAGE_TYPE}
+     */
+    public static BufferedImage createScreenshot(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage img = new BufferedImage(width, height, ImageUtils.IMAGE_TYPE);
+        int[] row = new int[width];
+        int panelColor = 0xFFF0F0F0;
+        for (int y = 0; y < height; y++) {
+            if (y % 120 == 0) {
+                panelColor = 0xFF000000 | (0xC0C0C0 + random.nextInt(0x3F3F3F));
+            }
+            boolean textLine = (y % 24) >= 6 && (y % 24) < 18;
+            for (int x = 0; x < width; x++) {
+                if (y % 120 == 119) {
+                    row[x] = 0xFF808080;
+                } else if (textLine && (x % 9) < 6 && ((x / 9 + y / 24) % 7) != 0 && ((x * 31 + y * 17) % 5) != 0) {
+                    row[x] = 0xFF202020;
+                } else {
+                    row[x] = panelColor;
+                }
+            }
+            img.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return img;
+    }
+
+    /**
+     * Create edge-heavy image: one pixel wide lines, checkerboard and gradient edges.
+     *
+     * @param width image width
+     * @param height image height
+     * @param shift horizontal shift of the content in pixels
+     * @return new image of {@link ImageUtils#IMAGE_TYPE}
+     */
+    public static BufferedImage createEdges(int width, int height, int shift) {
+        BufferedImage img = new BufferedImage(width, height, ImageUtils.IMAGE_TYPE);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int sx = x + shift;
+                int argb;
+                if (sx % 4 == 0 || y % 5 == 0) {
+                    argb = 0xFF000000;
+                } else if (((sx / 2) + (y / 2)) % 2 == 0) {
+                    argb = 0xFFFFFFFF;
+                } else {
+                    int v = (sx * 255 / Math.max(1, width)) & 0xFF;
+                    argb = 0xFF000000 | (v << 16) | ((255 - v) << 8) | ((y * 7) & 0xFF);
+                }
+                row[x] = argb;
+            }
+            img.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return img;
+    }
+
+    /**
+     * Create copy of the image with given fraction of pixels changed far beyond default tolerance.
+     *
+     * @param img source image
+     * @param density fraction of changed pixels [0 - 1]
+     * @param seed random seed
+     * @return new image of {@link ImageUtils#IMAGE_TYPE}
+     */
+    public static BufferedImage withMismatch(BufferedImage img, double density, long seed) {
+        Random random = new Random(seed);
+        int width = img.getWidth();
+        int height = img.getHeight();
+        BufferedImage copy = new BufferedImage(width, height, ImageUtils.IMAGE_TYPE);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            img.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                if (density > 0.0 && random.nextDouble() < density) {
+                    row[x] ^= 0x00808080;
+                }
+            }
+            copy.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return copy;
+    }
+
+    /**
+     * Create array of random opaque colors.
+     *
+     * @param count number of colors
+     * @param seed random seed
+     * @return ARGB (0xAARRGGBB) values
+     */
+    public static int[] createColors(int count, long seed) {
+        Random random = new Random(seed);
+        int[] colors = new int[count];
+        for (int i = 0; i < count; i++) {
+            colors[i] = 0xFF000000 | random.nextInt(0x01000000);
+        }
+        return colors;
+    }
+}
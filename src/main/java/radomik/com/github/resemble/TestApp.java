@@ -4,7 +4,6 @@ import radomik.com.github.resemble.gui.ImageWindow;
 import radomik.com.github.resemble.analysis.ResembleAnalysis;
 import radomik.com.github.resemble.analysis.ResembleAnalysisOptions;
 import radomik.com.github.resemble.analysis.ResembleAnalysisResults;
-import radomik.com.github.resemble.parser.ResembleParser;
 import radomik.com.github.resemble.parser.ResembleParserData;
 import radomik.com.github.resemble.utils.ImageUtils;
 import java.awt.image.BufferedImage;
@@ -22,11 +21,14 @@ public class TestApp {
         setLookAndFeel();
 
         ResembleAnalysisOptions options = new ResembleAnalysisOptions();
+        options.setComputeParserData(true);
         File imgFile1 = new File(args[0]);
         File imgFile2 = new File(args[1]);
 
         BufferedImage img1 = ImageUtils.readImage(imgFile1);
-        ResembleParserData dataImg1 = ResembleParser.parse(img1);
+        BufferedImage img2 = ImageUtils.readImage(imgFile2);
+        ResembleAnalysisResults results = new ResembleAnalysis(options).analyseImages(img1, img2);
+        ResembleParserData dataImg1 = results.getParserData1();
 
         ImageWindow.show(img1, "File 1: " + imgFile1.getName(),
                 String.format("File 1: '%s'\n" +
@@ -35,8 +37,7 @@ public class TestApp {
                         imgFile1, img1, dataImg1)
         );
 
-        BufferedImage img2 = ImageUtils.readImage(imgFile2);
-        ResembleParserData dataImg2 = ResembleParser.parse(img2);
+        ResembleParserData dataImg2 = results.getParserData2();
 
         ImageWindow.show(img2, "File 2: " + imgFile2.getName(),
                 String.format("File 2: '%s'\n" +
@@ -45,8 +46,7 @@ public class TestApp {
                         imgFile2, img2, dataImg2)
         );
 
-        ResembleAnalysisResults results = new ResembleAnalysis(options).analyseImages(img1, img2);
-        ResembleParserData dataResult = ResembleParser.parse(results.getOutputImage());
+        ResembleParserData dataResult = results.getOutputParserData();
 
         ImageWindow.show(results.getOutputImage(), "Results",
                 String.format("File 1: '%s'\n" +
@@ -0,0 +1,16 @@
+package radomik.com.github.resemble.analysis;
+
+/**
+ * Implementation used by {@link ResembleAnalysis} to compare images. All engines give the same results.
+ */
+public enum AnalysisEngine {
+
+    /**
+     * Compare images pixel by pixel using {@link radomik.com.github.resemble.pixel.Pixel} objects.
+     */
+    PIXEL,
+    /**
+     * Compare images on packed ARGB <code>int[]</code> rasters without per pixel allocations.
+     */
+    PACKED;
+}
@@ -19,6 +19,18 @@ public class DiffBounds {
         bottom = Math.max(y, bottom);
     }
 
+    /**
+     * Extend bounds to include <code>other</code> bounds.
+     *
+     * @param other bounds to be included
+     */
+    public void updateBounds(DiffBounds other) {
+        left = Math.min(other.left, left);
+        right = Math.max(other.right, right);
+        top = Math.min(other.top, top);
+        bottom = Math.max(other.bottom, bottom);
+    }
+
     public int getTop() {
         return top;
     }
@@ -0,0 +1,36 @@
+package radomik.com.github.resemble.analysis;
+
+/**
+ * Connected group of mismatching pixels.
+ *
+ * @see ResembleAnalysisResults#getDiffRegions()
+ */
+public class DiffRegion {
+
+    private final DiffBounds bounds;
+    private final int pixelCount;
+
+    /**
+     * Create region.
+     *
+     * @param bounds bounds of mismatching pixels of the region
+     * @param pixelCount number of mismatching pixels of the region
+     */
+    public DiffRegion(DiffBounds bounds, int pixelCount) {
+        this.bounds = bounds;
+        this.pixelCount = pixelCount;
+    }
+
+    @Override
+    public String toString() {
+        return "DiffRegion{" + "bounds=" + bounds + ", pixelCount=" + pixelCount + '}';
+    }
+
+    public DiffBounds getBounds() {
+        return bounds;
+    }
+
+    public int getPixelCount() {
+        return pixelCount;
+    }
+}
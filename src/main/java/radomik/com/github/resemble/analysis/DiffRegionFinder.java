@@ -0,0 +1,194 @@
+package radomik.com.github.resemble.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds connected regions of mismatching pixels in {@link MismatchMask}.
+ * <p>
+ * Mask rows are converted to runs of mismatching pixels and runs closer than merge distance are joined with
+ * union-find, first within a row and then with runs of preceding rows. Time is linear in number of pixels (for fixed
+ * merge distance) and memory is proportional to number of runs.
+ */
+final class DiffRegionFinder {
+
+    private final MismatchMask mask;
+    private final int mergeDistance;
+    private final int[] rowStart; // index of first run of every row
+    private int[] runFrom = new int[64]; // first column of run
+    private int[] runTo = new int[64]; // last column of run (inclusive)
+    private int[] parent = new int[64];
+    private int runCount = 0;
+
+    private DiffRegionFinder(MismatchMask mask, int mergeDistance) {
+        this.mask = mask;
+        this.mergeDistance = mergeDistance;
+        this.rowStart = new int[mask.getHeight() + 1];
+    }
+
+    /**
+     * Find regions of mismatching pixels. Pixels belong to the same region when they are connected by mismatching
+     * pixels which are not farther from each other than <code>mergeDistance</code> (in both axes).
+     *
+     * @param mask mismatch mask
+     * @param mergeDistance maximum distance of connected pixels, 1 connects adjacent pixels (including diagonal)
+     * @param maxRegions maximum number of regions, smallest regions above this limit are combined into one region;
+     * 0 or less when not limited
+     * @return regions in order of their first pixel (by rows)
+     */
+    static List<DiffRegion> findRegions(MismatchMask mask, int mergeDistance, int maxRegions) {
+        DiffRegionFinder finder = new DiffRegionFinder(mask, Math.max(1, mergeDistance));
+        finder.findRuns();
+        return finder.getRegions(maxRegions);
+    }
+
+    private void findRuns() {
+        int width = mask.getWidth();
+        int height = mask.getHeight();
+        for (int y = 0; y < height; y++) {
+            rowStart[y] = runCount;
+            for (int x = mask.nextSetBit(0, y); x < width;) {
+                int end = mask.nextClearBit(x, y);
+                int run = addRun(x, end - 1);
+                if (run > rowStart[y] && x - runTo[run - 1] <= mergeDistance) {
+                    union(run - 1, run);
+                }
+                x = mask.nextSetBit(end, y);
+            }
+            for (int yPrevious = Math.max(0, y - mergeDistance); yPrevious < y; yPrevious++) {
+                connectRows(rowStart[yPrevious], rowStart[yPrevious + 1], rowStart[y], runCount);
+            }
+        }
+        rowStart[height] = runCount;
+    }
+
+    /**
+     * Join runs of two rows which overlap after extending them by merge distance. Both rows are sorted by column,
+     * runs of one row closer than merge distance are already joined.
+     */
+    private void connectRows(int from1, int to1, int from2, int to2) {
+        int i = from1;
+        int j = from2;
+        while (i < to1 && j < to2) {
+            if (runTo[i] + mergeDistance < runFrom[j]) {
+                i++;
+            } else if (runTo[j] + mergeDistance < runFrom[i]) {
+                j++;
+            } else {
+                union(i, j);
+                if (runTo[i] < runTo[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+        }
+    }
+
+    private int addRun(int from, int to) {
+        if (runCount == parent.length) {
+            int capacity = runCount * 2;
+            runFrom = Arrays.copyOf(runFrom, capacity);
+            runTo = Arrays.copyOf(runTo, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+        }
+        runFrom[runCount] = from;
+        runTo[runCount] = to;
+        parent[runCount] = runCount;
+        return runCount++;
+    }
+
+    private int find(int run) {
+        while (parent[run] != run) {
+            parent[run] = parent[parent[run]]; // path halving
+            run = parent[run];
+        }
+        return run;
+    }
+
+    private void union(int run1, int run2) {
+        int root1 = find(run1);
+        int root2 = find(run2);
+        if (root1 < root2) { // root is the first run of region
+            parent[root2] = root1;
+        } else if (root2 < root1) {
+            parent[root1] = root2;
+        }
+    }
+
+    private List<DiffRegion> getRegions(int maxRegions) {
+        List<DiffBounds> bounds = new ArrayList<>();
+        int[] pixelCounts = new int[runCount];
+        int[] regionOfRoot = new int[runCount];
+        for (int y = 0; y < mask.getHeight(); y++) {
+            for (int run = rowStart[y]; run < rowStart[y + 1]; run++) {
+                int root = find(run);
+                int region;
+                if (root == run) {
+                    region = bounds.size();
+                    regionOfRoot[run] = region;
+                    DiffBounds regionBounds = new DiffBounds();
+                    regionBounds.setTop(y);
+                    regionBounds.setLeft(runFrom[run]);
+                    regionBounds.setBottom(y);
+                    regionBounds.setRight(runTo[run]);
+                    bounds.add(regionBounds);
+                } else {
+                    region = regionOfRoot[root];
+                }
+                bounds.get(region).updateBound(runFrom[run], y);
+                bounds.get(region).updateBound(runTo[run], y);
+                pixelCounts[region] += runTo[run] - runFrom[run] + 1;
+            }
+        }
+        List<DiffRegion> regions = new ArrayList<>(bounds.size());
+        for (int region = 0; region < bounds.size(); region++) {
+            regions.add(new DiffRegion(bounds.get(region), pixelCounts[region]));
+        }
+        if (maxRegions > 0 && regions.size() > maxRegions) {
+            return limitRegions(regions, maxRegions);
+        }
+        return regions;
+    }
+
+    /**
+     * Keep the largest regions and combine the others into one region, so that every mismatching pixel is still
+     * covered.
+     */
+    static List<DiffRegion> limitRegions(List<DiffRegion> regions, int maxRegions) {
+        Integer[] bySize = new Integer[regions.size()];
+        for (int i = 0; i < bySize.length; i++) {
+            bySize[i] = i;
+        }
+        Arrays.sort(bySize, Comparator.comparingInt((Integer i) -> regions.get(i).getPixelCount()).reversed());
+        boolean[] kept = new boolean[regions.size()];
+        for (int k = 0; k < maxRegions - 1; k++) {
+            kept[bySize[k]] = true;
+        }
+        List<DiffRegion> limited = new ArrayList<>(maxRegions);
+        DiffBounds combinedBounds = null;
+        int combinedPixelCount = 0;
+        int combinedIndex = -1;
+        for (int i = 0; i < regions.size(); i++) {
+            DiffRegion region = regions.get(i);
+            if (kept[i]) {
+                limited.add(region);
+            } else if (combinedBounds == null) { // copy, bounds of regions are not modified
+                combinedBounds = new DiffBounds();
+                combinedBounds.setTop(region.getBounds().getTop());
+                combinedBounds.setLeft(region.getBounds().getLeft());
+                combinedBounds.setBottom(region.getBounds().getBottom());
+                combinedBounds.setRight(region.getBounds().getRight());
+                combinedPixelCount = region.getPixelCount();
+                combinedIndex = limited.size();
+            } else {
+                combinedBounds.updateBounds(region.getBounds());
+                combinedPixelCount += region.getPixelCount();
+            }
+        }
+        limited.add(combinedIndex, new DiffRegion(combinedBounds, combinedPixelCount));
+        return limited;
+    }
+}
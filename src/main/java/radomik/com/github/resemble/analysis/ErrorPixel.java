@@ -4,12 +4,13 @@ import radomik.com.github.resemble.pixel.Pixel;
 import radomik.com.github.resemble.analysis.ResembleAnalysisOptions;
 import static radomik.com.github.resemble.pixel.utils.ColorUtils.*;
 import java.awt.image.BufferedImage;
+import java.util.function.Function;
 
 public enum ErrorPixel {
 
     FLAT((BufferedImage destImg, int x, int y, Pixel d1, Pixel d2, ResembleAnalysisOptions options) -> {
         setARGB(destImg, x, y, options.getErrorPixelColor());
-    }),
+    }, ErrorPixel::createFlat),
     MOVEMENT((BufferedImage destImg, int x, int y, Pixel d1, Pixel d2, ResembleAnalysisOptions options) -> {
         Pixel e = options.getErrorPixelColor();
         setARGB(destImg, x, y,
@@ -18,12 +19,12 @@ public enum ErrorPixel {
                 ((d2.getGreen().getValue() * (e.getGreen().getValue() / 255)) + e.getGreen().getValue()) / 2,
                 ((d2.getBlue().getValue() * (e.getBlue().getValue() / 255)) + e.getBlue().getValue()) / 2
         );
-    }),
+    }, ErrorPixel::createMovement),
     FLAT_DIFFERENCE_INTENSITY((BufferedImage destImg, int x, int y, Pixel d1, Pixel d2, ResembleAnalysisOptions options) -> {
         Pixel e = options.getErrorPixelColor();
         setARGB(destImg, x, y,
                 colorsDistanceRGB(d1, d2), e.getRed().getValue(), e.getGreen().getValue(), e.getBlue().getValue());
-    }),
+    }, ErrorPixel::createFlatDifferenceIntensity),
     MOVEMENT_DIFFERENCE_INTENSITY((BufferedImage destImg, int x, int y, Pixel d1, Pixel d2, ResembleAnalysisOptions options) -> {
         Pixel e = options.getErrorPixelColor();
 
@@ -34,19 +35,149 @@ public enum ErrorPixel {
                 (int) (ratio1 * ((d2.getRed().getValue() * (e.getRed().getValue() / 255)) + ratio * e.getRed().getValue())),
                 (int) (ratio1 * ((d2.getGreen().getValue() * (e.getGreen().getValue() / 255)) + ratio * e.getGreen().getValue())),
                 (int) (ratio1 * ((d2.getBlue().getValue() * (e.getBlue().getValue() / 255)) + ratio * e.getBlue().getValue())));
-    });
+    }, ErrorPixel::createMovementDifferenceIntensity);
     private final Transformer transformer;
+    private final Function<ResembleAnalysisOptions, PackedTransformer> packedTransformerFactory;
 
-    private ErrorPixel(Transformer transformer) {
+    private ErrorPixel(Transformer transformer,
+            Function<ResembleAnalysisOptions, PackedTransformer> packedTransformerFactory) {
         this.transformer = transformer;
+        this.packedTransformerFactory = packedTransformerFactory;
     }
 
     public Transformer getTransformer() {
         return transformer;
     }
 
+    /**
+     * Create transformer of packed pixels giving the same results as {@link #getTransformer()}. Lookup tables of
+     * the transformer are computed for error color set in options, so the transformer has to be created again when
+     * error color changes.
+     *
+     * @param options analysis options
+     * @return packed transformer (immutable, may be shared between threads)
+     */
+    public PackedTransformer createPackedTransformer(ResembleAnalysisOptions options) {
+        return packedTransformerFactory.apply(options);
+    }
+
     public static interface Transformer {
 
         void transform(BufferedImage destImg, int x, int y, Pixel d1, Pixel d2, ResembleAnalysisOptions options);
     }
+
+    /**
+     * Transformer of packed ARGB (0xAARRGGBB) pixels.
+     */
+    public static interface PackedTransformer {
+
+        /**
+         * Write error pixel to the raster.
+         *
+         * @param dest destination raster
+         * @param index index of error pixel in <code>dest</code>
+         * @param argb1 ARGB of first image pixel
+         * @param argb2 ARGB of second image pixel
+         */
+        void transform(int[] dest, int index, int argb1, int argb2);
+    }
+
+    private static PackedTransformer createFlat(ResembleAnalysisOptions options) {
+        int errorColor = getErrorColor(options.getErrorPixelColor());
+        return (int[] dest, int index, int argb1, int argb2) -> dest[index] = errorColor;
+    }
+
+    private static PackedTransformer createMovement(ResembleAnalysisOptions options) {
+        Pixel e = options.getErrorPixelColor();
+        int[] red = new int[256];
+        int[] green = new int[256];
+        int[] blue = new int[256];
+        for (int c = 0; c < 256; c++) {
+            red[c] = getARGB(0, ((c * (e.getRed().getValue() / 255)) + e.getRed().getValue()) / 2, 0, 0);
+            green[c] = getARGB(0, 0, ((c * (e.getGreen().getValue() / 255)) + e.getGreen().getValue()) / 2, 0);
+            blue[c] = getARGB(0, 0, 0, ((c * (e.getBlue().getValue() / 255)) + e.getBlue().getValue()) / 2);
+        }
+        return (int[] dest, int index, int argb1, int argb2) -> dest[index] = (argb2 & 0xFF000000) |
+                red[getARGB_Red(argb2)] | green[getARGB_Green(argb2)] | blue[getARGB_Blue(argb2)];
+    }
+
+    private static PackedTransformer createFlatDifferenceIntensity(ResembleAnalysisOptions options) {
+        int errorRGB = getErrorColor(options.getErrorPixelColor()) & 0x00FFFFFF;
+        int[] colors = new int[3 * 255 + 1]; // by sum of channel differences
+        for (int sum = 0; sum < colors.length; sum++) {
+            colors[sum] = getARGB(sum / 3, 0, 0, 0) | errorRGB;
+        }
+        return (int[] dest, int index, int argb1, int argb2) -> dest[index] = colors[getDifferenceSum(argb1, argb2)];
+    }
+
+    private static PackedTransformer createMovementDifferenceIntensity(ResembleAnalysisOptions options) {
+        Pixel e = options.getErrorPixelColor();
+        byte[] red = getMovementDifferenceIntensityTable(e.getRed().getValue());
+        byte[] green = getMovementDifferenceIntensityTable(e.getGreen().getValue());
+        byte[] blue = getMovementDifferenceIntensityTable(e.getBlue().getValue());
+        // tables of full channels are indexed by distance and channel value, other tables by distance only
+        int redMask = (red.length > 256) ? 0xFF : 0;
+        int greenMask = (green.length > 256) ? 0xFF : 0;
+        int blueMask = (blue.length > 256) ? 0xFF : 0;
+        int redShift = Integer.bitCount(redMask);
+        int greenShift = Integer.bitCount(greenMask);
+        int blueShift = Integer.bitCount(blueMask);
+        return (int[] dest, int index, int argb1, int argb2) -> {
+            int distance = getDifferenceSum(argb1, argb2) / 3;
+            dest[index] = (argb2 & 0xFF000000) |
+                    ((red[(distance << redShift) | (getARGB_Red(argb2) & redMask)] & 0xFF) << 16) |
+                    ((green[(distance << greenShift) | (getARGB_Green(argb2) & greenMask)] & 0xFF) << 8) |
+                    (blue[(distance << blueShift) | (getARGB_Blue(argb2) & blueMask)] & 0xFF);
+        };
+    }
+
+    /**
+     * Get channel values of {@link #MOVEMENT_DIFFERENCE_INTENSITY}, computed exactly as in the pixel transformer.
+     * Channel of second pixel is used only when error color channel is 255.
+     *
+     * @param errorValue error color channel value
+     * @return values by color distance, or by <code>(distance &lt;&lt; 8) | channel</code> when
+     * <code>errorValue</code> is 255
+     */
+    private static byte[] getMovementDifferenceIntensityTable(int errorValue) {
+        if (errorValue / 255 != 0) {
+            return FullChannelTable.TABLE;
+        }
+        byte[] table = new byte[256];
+        for (int distance = 0; distance < 256; distance++) {
+            double ratio = distance / 255.0 * 0.8;
+            table[distance] = (byte) (int) ((1.0 - ratio) * (ratio * errorValue));
+        }
+        return table;
+    }
+
+    /**
+     * Shared table of {@link #MOVEMENT_DIFFERENCE_INTENSITY} channel for error color channel 255, created on first
+     * use.
+     */
+    private static final class FullChannelTable {
+
+        static final byte[] TABLE = new byte[256 * 256];
+
+        static {
+            for (int distance = 0; distance < 256; distance++) {
+                double ratio = distance / 255.0 * 0.8;
+                double ratio1 = 1.0 - ratio;
+                for (int c = 0; c < 256; c++) {
+                    TABLE[(distance << 8) | c] = (byte) (int) (ratio1 * (c + ratio * 255));
+                }
+            }
+        }
+    }
+
+    private static int getErrorColor(Pixel e) {
+        return getARGB(e.getAlpha().getValue(), e.getRed().getValue(), e.getGreen().getValue(),
+                e.getBlue().getValue());
+    }
+
+    private static int getDifferenceSum(int argb1, int argb2) {
+        return Math.abs(getARGB_Red(argb1) - getARGB_Red(argb2)) +
+                Math.abs(getARGB_Green(argb1) - getARGB_Green(argb2)) +
+                Math.abs(getARGB_Blue(argb1) - getARGB_Blue(argb2));
+    }
 }
@@ -0,0 +1,43 @@
+package radomik.com.github.resemble.analysis;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Number of mismatching pixels allowed before analysis is stopped, shared by all tiles of an analysis.
+ */
+final class MismatchBudget {
+
+    private final int limit;
+    private final AtomicInteger mismatchCount = new AtomicInteger();
+    private volatile boolean exceeded = false;
+
+    /**
+     * Create budget.
+     *
+     * @param limit maximum number of mismatching pixels
+     */
+    MismatchBudget(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Add mismatching pixels found.
+     *
+     * @param count number of mismatching pixels
+     * @return true when budget is exceeded
+     */
+    boolean add(int count) {
+        if (count > 0 && mismatchCount.addAndGet(count) > limit) {
+            exceeded = true;
+        }
+        return exceeded;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    boolean isExceeded() {
+        return exceeded;
+    }
+}
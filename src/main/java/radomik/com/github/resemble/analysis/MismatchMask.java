@@ -0,0 +1,301 @@
+package radomik.com.github.resemble.analysis;
+
+import radomik.com.github.resemble.utils.ImageUtils;
+import radomik.com.github.resemble.utils.PackedImage;
+import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Bitmap of mismatching pixels.
+ * <p>
+ * Every row is stored in its own 64-bit words, so rows may be set by different threads (e.g. bands of a parallel
+ * analysis) as long as each row is set by one thread only. Mask may be stored in a run-length encoded format, see
+ * {@link #write(OutputStream)}, and rendered as a diff image, see {@link #toImage(int, int)}.
+ */
+public final class MismatchMask {
+
+    static final int MAGIC = 0x52424d4d; // "RBMM"
+    static final int VERSION = 1;
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] words;
+
+    /**
+     * Create empty mask.
+     *
+     * @param width image width
+     * @param height image height
+     * @throws IllegalArgumentException when size is negative or the mask is too large for an array
+     */
+    public MismatchMask(int width, int height) {
+        if (!isValidSize(width, height)) {
+            throw new IllegalArgumentException("Invalid mismatch mask size " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (int) ((width + 63L) >>> 6);
+        this.words = new long[wordsPerRow * height];
+    }
+
+    private static boolean isValidSize(int width, int height) {
+        return width >= 0 && height >= 0 && (long) ((width + 63L) >>> 6) * height <= Integer.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return "MismatchMask{" + "width=" + width + ", height=" + height + '}';
+    }
+
+    /**
+     * Mark pixel as mismatching.
+     *
+     * @param x column
+     * @param y row
+     */
+    public void set(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+    }
+
+    /**
+     * Check if pixel is mismatching.
+     *
+     * @param x column
+     * @param y row
+     * @return true when pixel is mismatching
+     */
+    public boolean get(int x, int y) {
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Get first mismatching pixel in row <code>y</code> at or after column <code>x</code>.
+     *
+     * @param x first column
+     * @param y row
+     * @return column of mismatching pixel or image width when there is none
+     */
+    public int nextSetBit(int x, int y) {
+        return nextBit(x, y, 0L);
+    }
+
+    /**
+     * Get first matching pixel in row <code>y</code> at or after column <code>x</code>.
+     *
+     * @param x first column
+     * @param y row
+     * @return column of matching pixel or image width when there is none
+     */
+    public int nextClearBit(int x, int y) {
+        return nextBit(x, y, -1L);
+    }
+
+    private int nextBit(int x, int y, long invert) {
+        if (x >= width) {
+            return width;
+        }
+        int rowOffset = y * wordsPerRow;
+        int wordIndex = x >>> 6;
+        long word = (words[rowOffset + wordIndex] ^ invert) & (-1L << x);
+        while (word == 0) {
+            if (++wordIndex == wordsPerRow) {
+                return width;
+            }
+            word = words[rowOffset + wordIndex] ^ invert;
+        }
+        return Math.min(width, (wordIndex << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    /**
+     * Get number of mismatching pixels.
+     *
+     * @return number of set bits
+     */
+    public long getCardinality() {
+        long count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Write mask in run-length encoded format: magic <code>"RBMM"</code>, version, width and height (4 byte
+     * integers), followed by lengths of alternating runs of matching and mismatching pixels in row-major order,
+     * starting with matching pixels. Lengths are unsigned LEB128 numbers, the first one may be 0. Stream is not
+     * buffered nor closed.
+     *
+     * @param out output stream
+     * @throws IOException on error writing the stream
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(width);
+        data.writeInt(height);
+        long run = 0;
+        boolean mismatching = false;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width;) {
+                int next = mismatching ? nextClearBit(x, y) : nextSetBit(x, y);
+                run += next - x;
+                x = next;
+                if (x < width) {
+                    writeLength(data, run);
+                    run = 0;
+                    mismatching = !mismatching;
+                }
+            }
+        }
+        writeLength(data, run);
+        data.flush();
+    }
+
+    /**
+     * Read mask written by {@link #write(OutputStream)}.
+     *
+     * @param in input stream
+     * @return mask
+     * @throws IOException on error reading the stream or when the stream does not contain valid mask
+     */
+    public static MismatchMask read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw new IOException("Stream does not contain a mismatch mask of version " + VERSION);
+        }
+        int width = data.readInt();
+        int height = data.readInt();
+        if (!isValidSize(width, height)) {
+            throw new IOException("Invalid mismatch mask size " + width + "x" + height);
+        }
+        MismatchMask mask = new MismatchMask(width, height);
+        long pixelCount = (long) width * height;
+        boolean mismatching = false;
+        for (long index = 0; index < pixelCount || (index == 0 && !mismatching);) {
+            long run = readLength(data);
+            if (run < 0 || run > pixelCount - index) {
+                throw new IOException("Invalid mismatch mask run length " + run);
+            }
+            if (mismatching) {
+                mask.setRun(index, run);
+            }
+            index += run;
+            mismatching = !mismatching;
+        }
+        return mask;
+    }
+
+    /**
+     * Render mask as an image.
+     *
+     * @param mismatchColor ARGB (0xAARRGGBB) of mismatching pixels
+     * @param matchColor ARGB (0xAARRGGBB) of other pixels
+     * @return new image of {@link ImageUtils#IMAGE_TYPE}
+     */
+    public BufferedImage toImage(int mismatchColor, int matchColor) {
+        BufferedImage img = new BufferedImage(width, height, ImageUtils.IMAGE_TYPE);
+        PackedImage packed = ImageUtils.toPackedImage(img);
+        int[] data = packed.getData();
+        for (int y = 0; y < height; y++) {
+            int i = packed.indexOf(0, y);
+            for (int x = 0; x < width;) {
+                int next = nextSetBit(x, y);
+                Arrays.fill(data, i + x, i + next, matchColor);
+                x = nextClearBit(next, y);
+                Arrays.fill(data, i + next, i + x, mismatchColor);
+            }
+        }
+        ImageUtils.writePackedImage(packed, img);
+        return img;
+    }
+
+    /**
+     * Render mask over a copy of an image (e.g. compared image).
+     *
+     * @param background image of the same size as the mask
+     * @param mismatchColor ARGB (0xAARRGGBB) of mismatching pixels
+     * @return new image of {@link ImageUtils#IMAGE_TYPE}
+     * @throws IllegalArgumentException when image size does not match
+     */
+    public BufferedImage toImage(BufferedImage background, int mismatchColor) {
+        ImageUtils.checkImageMatch(width, height, "mask", background.getWidth(), background.getHeight(),
+                "background");
+        BufferedImage img = new BufferedImage(width, height, ImageUtils.IMAGE_TYPE);
+        PackedImage packed = ImageUtils.toPackedImage(img);
+        PackedImage src = ImageUtils.toPackedImage(background);
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(src.getData(), src.indexOf(0, y), packed.getData(), packed.indexOf(0, y), width);
+            int i = packed.indexOf(0, y);
+            for (int x = nextSetBit(0, y); x < width;) {
+                int end = nextClearBit(x, y);
+                Arrays.fill(packed.getData(), i + x, i + end, mismatchColor);
+                x = nextSetBit(end, y);
+            }
+        }
+        ImageUtils.writePackedImage(packed, img);
+        return img;
+    }
+
+    private void setRun(long from, long length) {
+        long index = from;
+        for (long to = from + length; index < to;) {
+            int y = (int) (index / width);
+            int x = (int) (index % width);
+            int xTo = (int) Math.min(width, x + (to - index));
+            setRange(x, xTo, y);
+            index += xTo - x;
+        }
+    }
+
+    private void setRange(int xFrom, int xTo, int y) { // bits [xFrom, xTo) of row y
+        int rowOffset = y * wordsPerRow;
+        int firstWord = xFrom >>> 6;
+        int lastWord = (xTo - 1) >>> 6;
+        long firstMask = -1L << xFrom;
+        long lastMask = -1L >>> -xTo;
+        if (firstWord == lastWord) {
+            words[rowOffset + firstWord] |= firstMask & lastMask;
+            return;
+        }
+        words[rowOffset + firstWord] |= firstMask;
+        for (int w = firstWord + 1; w < lastWord; w++) {
+            words[rowOffset + w] = -1L;
+        }
+        words[rowOffset + lastWord] |= lastMask;
+    }
+
+    private static void writeLength(DataOutputStream out, long length) throws IOException {
+        while ((length & ~0x7FL) != 0) {
+            out.writeByte((int) ((length & 0x7F) | 0x80));
+            length >>>= 7;
+        }
+        out.writeByte((int) length);
+    }
+
+    private static long readLength(DataInputStream in) throws IOException {
+        long length = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            length |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return length;
+            }
+        }
+        throw new IOException("Invalid mismatch mask run length");
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
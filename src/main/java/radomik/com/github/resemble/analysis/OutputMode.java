@@ -0,0 +1,22 @@
+package radomik.com.github.resemble.analysis;
+
+/**
+ * Defines when {@link ResembleAnalysis} renders output image.
+ */
+public enum OutputMode {
+
+    /**
+     * Always render output image.
+     */
+    FULL,
+    /**
+     * Never render output image, only mismatch percentage, counters and bounds are returned.
+     */
+    NONE,
+    /**
+     * Render output image only when images do not match, that is when mismatch limit is exceeded or (when limit is
+     * not set) any pixel is mismatching. Such images are analysed again with output rendered and without stopping at
+     * mismatch limit.
+     */
+    ON_FAILURE;
+}
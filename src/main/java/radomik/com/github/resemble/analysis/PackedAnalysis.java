@@ -0,0 +1,427 @@
+package radomik.com.github.resemble.analysis;
+
+import radomik.com.github.resemble.parser.ResembleParserAccumulator;
+import radomik.com.github.resemble.pixel.Pixel;
+import radomik.com.github.resemble.utils.IntArrays;
+import radomik.com.github.resemble.utils.PackedImage;
+import radomik.com.github.resemble.utils.ToleranceKernel;
+import static radomik.com.github.resemble.pixel.utils.ColorUtils.*;
+
+/**
+ * Image comparison on packed ARGB (0xAARRGGBB) pixels.
+ * <p>
+ * Applies exactly the same rules as the {@link Pixel} based analysis in {@link ResembleAnalysis} but works on
+ * primitives only. Single instance collects mismatch count, {@link DiffBounds} and (optionally) parser data of analysed
+ * rows and must not be shared between threads.
+ */
+final class PackedAnalysis {
+
+    /**
+     * Largest channel value for which {@link Integer#valueOf(int)} returns cached instance. Channels of
+     * {@link Pixel} are compared by reference in {@link Pixel#isRGBSame(Pixel)} so equal values above that limit
+     * are never same.
+     */
+    private static final int SAME_CHANNEL_LIMIT = getIntegerCacheLimit();
+    /**
+     * Number of pixels compared one by one after a mismatching pixel before searching for equal pixels again.
+     */
+    private static final int DIFFERENT_RUN_LENGTH = 8;
+    /**
+     * Number of pixels checked with vectorized {@link ToleranceKernel} after a mismatching pixel.
+     */
+    private static final int VECTORIZED_RUN_LENGTH = 256;
+
+    private final ErrorPixel.PackedTransformer errorPixelTransformer;
+    private final int toleranceAlpha;
+    private final int toleranceRed;
+    private final int toleranceGreen;
+    private final int toleranceBlue;
+    private final int toleranceMinBrightness;
+    private final int toleranceMaxBrightness;
+    private final boolean ignoreColors;
+    private final boolean ignoreAntialiasing;
+    private final double pixelTransparency;
+    private final int skip;
+    private final MismatchBudget budget;
+    private final MismatchMask mismatchMask;
+    private final long[] runMask;
+    private final DiffBounds diffBounds = new DiffBounds();
+    private final ResembleParserAccumulator parserAccumulator1;
+    private final ResembleParserAccumulator parserAccumulator2;
+    private final ResembleParserAccumulator outputParserAccumulator;
+    private int mismatchCount;
+
+    /**
+     * Create analysis of images of given size.
+     *
+     * @param options analysis options
+     * @param width image width
+     * @param height image height
+     * @param budget mismatch budget shared by all analysed tiles or <code>null</code> when unlimited
+     * @param mismatchMask mask of mismatching pixels shared by all analysed tiles or <code>null</code>
+     */
+    PackedAnalysis(ResembleAnalysisOptions options, int width, int height, MismatchBudget budget,
+            MismatchMask mismatchMask) {
+        Pixel tolerance = options.getTolerance();
+        errorPixelTransformer = options.getErrorPixel().createPackedTransformer(options);
+        toleranceAlpha = tolerance.getAlpha().getValue();
+        toleranceRed = tolerance.getRed().getValue();
+        toleranceGreen = tolerance.getGreen().getValue();
+        toleranceBlue = tolerance.getBlue().getValue();
+        toleranceMinBrightness = tolerance.getMinBrightness().getValue();
+        toleranceMaxBrightness = tolerance.getMaxBrightness().getValue();
+        ignoreColors = options.isIgnoreColors();
+        ignoreAntialiasing = options.isIgnoreAntialiasing();
+        pixelTransparency = options.getPixelTransparency();
+        skip = ResembleAnalysis.getSkip(options, width, height);
+        this.budget = budget;
+        this.mismatchMask = mismatchMask;
+        runMask = ToleranceKernel.isVectorized() ? new long[VECTORIZED_RUN_LENGTH >>> 6] : null;
+        diffBounds.setTop(height);
+        diffBounds.setLeft(width);
+        diffBounds.setBottom(0);
+        diffBounds.setRight(0);
+        if (options.isComputeParserData()) {
+            parserAccumulator1 = new ResembleParserAccumulator();
+            parserAccumulator2 = new ResembleParserAccumulator();
+            outputParserAccumulator = new ResembleParserAccumulator();
+        } else {
+            parserAccumulator1 = null;
+            parserAccumulator2 = null;
+            outputParserAccumulator = null;
+        }
+    }
+
+    /**
+     * Compare rows [yFrom, yTo) of the images. Stops after the row in which mismatch budget is exceeded.
+     * <p>
+     * Images may be a strip of rows of the analysed images starting at row <code>originY</code>. Strip has to contain
+     * rows adjacent to compared rows (if there are any) for antialiasing detection.
+     *
+     * @param img1 first image
+     * @param img2 second image (of the same size as <code>img1</code>)
+     * @param imgOut output image (of the same size as <code>img1</code>) or <code>null</code> when not rendered
+     * @param yFrom first row (inclusive)
+     * @param yTo last row (exclusive)
+     * @param originY row of analysed images at which images start
+     * @param mask tiles to be compared (other pixels are equal and only copied to output) or <code>null</code> to
+     * compare all pixels
+     */
+    void analyse(PackedImage img1, PackedImage img2, PackedImage imgOut, int yFrom, int yTo, int originY,
+            TileMask mask) {
+        // planes of analysed rows and their neighbours, rows are computed on first antialiasing check
+        int planesFrom = Math.max(0, yFrom - 1);
+        int planesTo = Math.min(img1.getHeight(), yTo + 1);
+        PixelPlanes planes1 = new PixelPlanes(img1, planesFrom, planesTo);
+        PixelPlanes planes2 = new PixelPlanes(img2, planesFrom, planesTo);
+
+        for (int y = yFrom; y < yTo; y++) {
+            if (budget != null && budget.isExceeded()) {
+                return;
+            }
+            int rowMismatchCount = mismatchCount;
+            if (skip == 0 || (y + originY) % skip != 0) { // only skip if the image isn't small
+                if (mask == null) {
+                    analyseRow(img1, img2, imgOut, planes1, planes2, 0, img1.getWidth(), y, originY);
+                } else {
+                    analyseMaskedRow(img1, img2, imgOut, planes1, planes2, y, originY, mask);
+                }
+            }
+            if (parserAccumulator1 != null) { // row is still in cache
+                parserAccumulator1.add(img1, y, y + 1);
+                parserAccumulator2.add(img2, y, y + 1);
+                if (imgOut != null) {
+                    outputParserAccumulator.add(imgOut, y, y + 1);
+                }
+            }
+            if (budget != null && budget.add(mismatchCount - rowMismatchCount)) {
+                return;
+            }
+        }
+    }
+
+    private void analyseMaskedRow(PackedImage img1, PackedImage img2, PackedImage imgOut,
+            PixelPlanes planes1, PixelPlanes planes2, int y, int originY, TileMask mask) {
+        int width = img1.getWidth();
+        int tileSize = mask.getTileSize();
+        int tileRow = (y + originY) / tileSize;
+        for (int column = 0; column < mask.getColumns(); column++) {
+            int xFrom = column * tileSize;
+            int xTo = Math.min(width, xFrom + tileSize);
+            if (mask.isDifferent(column, tileRow)) {
+                analyseRow(img1, img2, imgOut, planes1, planes2, xFrom, xTo, y, originY);
+            } else if (imgOut != null) {
+                copySamePixels(img1.getData(), img1.indexOf(xFrom, y), imgOut.getData(), imgOut.indexOf(xFrom, y),
+                        xFrom, xTo - xFrom);
+            }
+        }
+    }
+
+    private void analyseRow(PackedImage img1, PackedImage img2, PackedImage imgOut,
+            PixelPlanes planes1, PixelPlanes planes2, int xFrom, int xTo, int y, int originY) {
+        int[] data1 = img1.getData();
+        int[] data2 = img2.getData();
+        int[] dataOut = (imgOut != null) ? imgOut.getData() : null;
+        int i1 = img1.indexOf(0, y);
+        int i2 = img2.indexOf(0, y);
+        int iOut = (imgOut != null) ? imgOut.indexOf(0, y) : 0;
+        for (int x = xFrom; x < xTo;) {
+            // pixels which are bitwise equal are always similar, only copy them to the output
+            int sameLength = IntArrays.mismatch(data1, i1 + x, data2, i2 + x, xTo - x);
+            int sameTo = (sameLength < 0) ? xTo : x + sameLength;
+            copySamePixels(data1, i1 + x, dataOut, iOut + x, x, sameTo - x);
+            x = sameTo;
+
+            if (runMask != null) {
+                int diffTo = Math.min(xTo, x + VECTORIZED_RUN_LENGTH);
+                analyseRunVectorized(img1, img2, planes1, planes2, dataOut, iOut, x, diffTo, y, originY);
+                x = diffTo;
+                continue;
+            }
+            for (int diffTo = Math.min(xTo, x + DIFFERENT_RUN_LENGTH); x < diffTo; x++) {
+                if (skip != 0 && x % skip == 0) {
+                    continue; // only skip if the image isn't small
+                }
+                comparePixel(data1[i1 + x], data2[i2 + x], img1, img2, planes1, planes2, dataOut, iOut + x,
+                        x, y, originY);
+            }
+        }
+    }
+
+    /**
+     * Compare pixels [xFrom, xTo) of a row with vectorized {@link ToleranceKernel}: pixels within tolerance are only
+     * copied to the output, the others are compared one by one.
+     */
+    private void analyseRunVectorized(PackedImage img1, PackedImage img2, PixelPlanes planes1, PixelPlanes planes2,
+            int[] dataOut, int iOut, int xFrom, int xTo, int y, int originY) {
+        int[] data1 = img1.getData();
+        int[] data2 = img2.getData();
+        int i1 = img1.indexOf(0, y);
+        int i2 = img2.indexOf(0, y);
+        int length = xTo - xFrom;
+        int count;
+        if (ignoreColors) {
+            count = ToleranceKernel.compareBrightness(data1, i1 + xFrom, data2, i2 + xFrom, length, toleranceAlpha,
+                    toleranceMinBrightness, runMask);
+            copySamePixels(data2, i2 + xFrom, dataOut, iOut + xFrom, xFrom, length);
+        } else {
+            count = ToleranceKernel.compareARGB(data1, i1 + xFrom, data2, i2 + xFrom, length, toleranceAlpha,
+                    toleranceRed, toleranceGreen, toleranceBlue, runMask);
+            copySamePixels(data1, i1 + xFrom, dataOut, iOut + xFrom, xFrom, length);
+        }
+        for (int w = 0; count > 0; w++) {
+            for (long bits = runMask[w]; bits != 0L; bits &= bits - 1, count--) {
+                int x = xFrom + (w << 6) + Long.numberOfTrailingZeros(bits);
+                if (skip != 0 && x % skip == 0) {
+                    continue; // only skip if the image isn't small
+                }
+                comparePixel(data1[i1 + x], data2[i2 + x], img1, img2, planes1, planes2, dataOut, iOut + x,
+                        x, y, originY);
+            }
+        }
+    }
+
+    /**
+     * Compare single pixel, regardless of rows and columns skipped in large images. Used for sampling.
+     *
+     * @param img1 first image
+     * @param img2 second image
+     * @param imgOut output image or <code>null</code> when not rendered
+     * @param planes1 planes of first image including rows adjacent to <code>y</code>
+     * @param planes2 planes of second image including rows adjacent to <code>y</code>
+     * @param x column
+     * @param y row
+     * @return true when pixels are mismatching
+     */
+    boolean analysePixel(PackedImage img1, PackedImage img2, PackedImage imgOut, PixelPlanes planes1,
+            PixelPlanes planes2, int x, int y) {
+        int count = mismatchCount;
+        comparePixel(img1.getARGB(x, y), img2.getARGB(x, y), img1, img2, planes1, planes2,
+                (imgOut != null) ? imgOut.getData() : null, (imgOut != null) ? imgOut.indexOf(x, y) : 0, x, y, 0);
+        return mismatchCount != count;
+    }
+
+    private void comparePixel(int argb1, int argb2, PackedImage img1, PackedImage img2, PixelPlanes planes1,
+            PixelPlanes planes2, int[] dataOut, int iOut, int x, int y, int originY) {
+        if (ignoreColors) {
+            if (isBrightnessSimilar(argb1, argb2)) {
+                copyGrayScalePixel(dataOut, iOut, argb2);
+            } else {
+                errorPixel(dataOut, iOut, x, y + originY, argb1, argb2);
+            }
+            return;
+        }
+
+        if (isARGBSimilar(argb1, argb2)) {
+            copyPixel(dataOut, iOut, argb1);
+        } else if (ignoreAntialiasing && (isAntialiased(argb1, img1, planes1, x, y) ||
+                isAntialiased(argb2, img2, planes2, x, y))) {
+            if (isBrightnessSimilar(argb1, argb2)) {
+                copyGrayScalePixel(dataOut, iOut, argb2);
+            } else {
+                errorPixel(dataOut, iOut, x, y + originY, argb1, argb2);
+            }
+        } else {
+            errorPixel(dataOut, iOut, x, y + originY, argb1, argb2);
+        }
+    }
+
+    /**
+     * Add mismatch count and bounds collected by other analysis of the same images.
+     *
+     * @param other analysis of other rows
+     */
+    void merge(PackedAnalysis other) {
+        mismatchCount += other.mismatchCount;
+        diffBounds.updateBounds(other.diffBounds);
+        if (parserAccumulator1 != null) {
+            parserAccumulator1.merge(other.parserAccumulator1);
+            parserAccumulator2.merge(other.parserAccumulator2);
+            outputParserAccumulator.merge(other.outputParserAccumulator);
+        }
+    }
+
+    int getMismatchCount() {
+        return mismatchCount;
+    }
+
+    DiffBounds getDiffBounds() {
+        return diffBounds;
+    }
+
+    /**
+     * Get parser data accumulator of first image.
+     *
+     * @return accumulator of analysed rows or <code>null</code> when parser data is not computed
+     */
+    ResembleParserAccumulator getParserAccumulator1() {
+        return parserAccumulator1;
+    }
+
+    ResembleParserAccumulator getParserAccumulator2() {
+        return parserAccumulator2;
+    }
+
+    ResembleParserAccumulator getOutputParserAccumulator() {
+        return outputParserAccumulator;
+    }
+
+    private void errorPixel(int[] dataOut, int iOut, int x, int y, int argb1, int argb2) {
+        diffBounds.updateBound(x, y);
+        mismatchCount++;
+        if (mismatchMask != null) {
+            mismatchMask.set(x, y);
+        }
+        if (dataOut != null) {
+            errorPixelTransformer.transform(dataOut, iOut, argb1, argb2);
+        }
+    }
+
+    private void copyGrayScalePixel(int[] dataOut, int iOut, int argb) {
+        if (dataOut != null) {
+            int b = getARGB_Brightness(argb);
+            int a = (int) (getARGB_Alpha(argb) * pixelTransparency);
+            dataOut[iOut] = getARGB(a, b, b, b);
+        }
+    }
+
+    private void copySamePixels(int[] data, int i, int[] dataOut, int iOut, int x, int length) {
+        if (dataOut == null) {
+            return;
+        }
+        if (ignoreColors) {
+            for (int k = 0; k < length; k++) {
+                if (skip == 0 || (x + k) % skip != 0) {
+                    copyGrayScalePixel(dataOut, iOut + k, data[i + k]);
+                }
+            }
+        } else if (skip == 0) {
+            System.arraycopy(data, i, dataOut, iOut, length);
+        } else {
+            for (int k = 0; k < length; k++) {
+                if ((x + k) % skip != 0) {
+                    dataOut[iOut + k] = data[i + k];
+                }
+            }
+        }
+    }
+
+    private static void copyPixel(int[] dataOut, int iOut, int argb) {
+        if (dataOut != null) {
+            dataOut[iOut] = argb;
+        }
+    }
+
+    private boolean isBrightnessSimilar(int argb1, int argb2) {
+        return Math.abs(getARGB_Alpha(argb1) - getARGB_Alpha(argb2)) <= toleranceAlpha &&
+                Math.abs(getARGB_Brightness(argb1) - getARGB_Brightness(argb2)) <= toleranceMinBrightness;
+    }
+
+    private boolean isARGBSimilar(int argb1, int argb2) {
+        return Math.abs(getARGB_Red(argb1) - getARGB_Red(argb2)) <= toleranceRed &&
+                Math.abs(getARGB_Green(argb1) - getARGB_Green(argb2)) <= toleranceGreen &&
+                Math.abs(getARGB_Blue(argb1) - getARGB_Blue(argb2)) <= toleranceBlue &&
+                Math.abs(getARGB_Alpha(argb1) - getARGB_Alpha(argb2)) <= toleranceAlpha;
+    }
+
+    private static boolean isRGBSame(int argb1, int argb2) {
+        return ((argb1 ^ argb2) & 0x00FFFFFF) == 0 &&
+                getARGB_Red(argb1) <= SAME_CHANNEL_LIMIT &&
+                getARGB_Green(argb1) <= SAME_CHANNEL_LIMIT &&
+                getARGB_Blue(argb1) <= SAME_CHANNEL_LIMIT;
+    }
+
+    private boolean isAntialiased(int sourceArgb, PackedImage img, PixelPlanes planes, int x, int y) {
+        final int minDist = -1;
+        final int maxDist = 1;
+        int width = img.getWidth();
+        int height = img.getHeight();
+        int[] data = img.getData();
+        int column = x - planes.getXFrom();
+        int sourceBrightness = planes.getBrightnessRow(y)[column] & 0xFF;
+        int sourceHue = planes.getHueRow(y)[column] & 0xFF;
+        int hasHighContrastSibling = 0;
+        int hasEquivalentSibling = 0;
+        int hasSiblingWithDifferentHue = 0;
+        for (int xi = minDist; xi <= maxDist; xi++) { // for pixels in sourcePix boundaries
+            for (int yi = minDist; yi <= maxDist; yi++) {
+                if (xi == 0 && yi == 0) {
+                    continue; // ignore source pixel
+                }
+                int x2 = x + xi;
+                int y2 = y + yi;
+                if (x2 < 0 || y2 < 0 || x2 >= width || y2 >= height) {
+                    continue; // ignore pixels outside image boundaries
+                }
+
+                int targetArgb = data[img.indexOf(x2, y2)];
+                int targetBrightness = planes.getBrightnessRow(y2)[column + xi] & 0xFF;
+                int targetHue = planes.getHueRow(y2)[column + xi] & 0xFF;
+
+                if (Math.abs(sourceBrightness - targetBrightness) > toleranceMaxBrightness) {
+                    if (++hasHighContrastSibling > 1) {
+                        return true;
+                    }
+                }
+
+                if (isRGBSame(sourceArgb, targetArgb)) {
+                    hasEquivalentSibling++;
+                }
+                if (PixelPlanes.isHueDifferent(targetHue, sourceHue, targetArgb, sourceArgb, 0.3)) {
+                    if (++hasSiblingWithDifferentHue > 1) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return (hasEquivalentSibling < 2);
+    }
+
+    private static int getIntegerCacheLimit() {
+        int limit = -1;
+        while (limit < 255 && Integer.valueOf(limit + 1) == Integer.valueOf(limit + 1)) {
+            limit++;
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,98 @@
+package radomik.com.github.resemble.analysis;
+
+import radomik.com.github.resemble.utils.PackedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join task comparing a band of rows with {@link PackedAnalysis}.
+ * <p>
+ * Bands higher than tile height are split in halves. Every band collects its own mismatch count and bounds which are
+ * merged when joining. Neighbouring rows are only read, so antialiasing detection is not affected by band borders.
+ */
+class PackedAnalysisTask extends RecursiveTask<PackedAnalysis> {
+
+    private final ResembleAnalysisOptions options;
+    private final int width;
+    private final int height;
+    private final MismatchBudget budget;
+    private final MismatchMask mismatchMask;
+    private final PackedImage img1;
+    private final PackedImage img2;
+    private final PackedImage imgOut;
+    private final int yFrom;
+    private final int yTo;
+    private final int originY;
+    private final TileMask mask;
+
+    /**
+     * Create task.
+     *
+     * @param options analysis options
+     * @param width width of analysed images
+     * @param height height of analysed images
+     * @param budget mismatch budget or <code>null</code> when unlimited
+     * @param mismatchMask mask of mismatching pixels or <code>null</code> when not collected
+     * @param img1 first image (or its strip)
+     * @param img2 second image (or its strip)
+     * @param imgOut output image (or its strip) or <code>null</code> when not rendered
+     * @param yFrom first row of images to be compared (inclusive)
+     * @param yTo last row of images to be compared (exclusive)
+     * @param originY row of analysed images at which images start
+     * @param mask tiles to be compared or <code>null</code> to compare all pixels
+     * @see PackedAnalysis#analyse
+     */
+    PackedAnalysisTask(ResembleAnalysisOptions options, int width, int height, MismatchBudget budget,
+            MismatchMask mismatchMask, PackedImage img1, PackedImage img2, PackedImage imgOut, int yFrom, int yTo,
+            int originY, TileMask mask) {
+        this.options = options;
+        this.width = width;
+        this.height = height;
+        this.budget = budget;
+        this.mismatchMask = mismatchMask;
+        this.img1 = img1;
+        this.img2 = img2;
+        this.imgOut = imgOut;
+        this.yFrom = yFrom;
+        this.yTo = yTo;
+        this.originY = originY;
+        this.mask = mask;
+    }
+
+    /**
+     * Compare rows [yFrom, yTo) of the images, in parallel when fork/join pool is set in options.
+     *
+     * @return analysis of compared rows
+     * @see #PackedAnalysisTask
+     */
+    static PackedAnalysis analyse(ResembleAnalysisOptions options, int width, int height, MismatchBudget budget,
+            MismatchMask mismatchMask, PackedImage img1, PackedImage img2, PackedImage imgOut, int yFrom, int yTo,
+            int originY, TileMask mask) {
+        ForkJoinPool pool = options.getForkJoinPool();
+        if (pool != null) {
+            return pool.invoke(new PackedAnalysisTask(options, width, height, budget, mismatchMask,
+                    img1, img2, imgOut, yFrom, yTo, originY, mask));
+        }
+        PackedAnalysis analysis = new PackedAnalysis(options, width, height, budget, mismatchMask);
+        analysis.analyse(img1, img2, imgOut, yFrom, yTo, originY, mask);
+        return analysis;
+    }
+
+    @Override
+    protected PackedAnalysis compute() {
+        if (yTo - yFrom <= Math.max(1, options.getTileHeight())) {
+            PackedAnalysis analysis = new PackedAnalysis(options, width, height, budget, mismatchMask);
+            analysis.analyse(img1, img2, imgOut, yFrom, yTo, originY, mask);
+            return analysis;
+        }
+        int yMid = (yFrom + yTo) >>> 1;
+        PackedAnalysisTask top = new PackedAnalysisTask(options, width, height, budget, mismatchMask,
+                img1, img2, imgOut, yFrom, yMid, originY, mask);
+        PackedAnalysisTask bottom = new PackedAnalysisTask(options, width, height, budget, mismatchMask,
+                img1, img2, imgOut, yMid, yTo, originY, mask);
+        top.fork();
+        PackedAnalysis analysis = bottom.compute();
+        analysis.merge(top.join());
+        return analysis;
+    }
+}
@@ -0,0 +1,131 @@
+package radomik.com.github.resemble.analysis;
+
+import radomik.com.github.resemble.pixel.utils.ColorUtils;
+import radomik.com.github.resemble.utils.PackedImage;
+import static radomik.com.github.resemble.pixel.utils.ColorUtils.*;
+
+/**
+ * Brightness and quantized hue of image pixels in a band of rows.
+ * <p>
+ * Rows are computed lazily on first access, so the cost is proportional to rows which are actually used. Hue value
+ * [0 - 1) is quantized to {@link #HUE_LEVELS} levels, see {@link #isHueDifferent(int, int, int, int, double)} for
+ * comparing quantized values exactly.
+ */
+final class PixelPlanes {
+
+    /**
+     * Number of quantized hue levels.
+     */
+    static final int HUE_LEVELS = ColorUtils.HUE_LEVELS;
+
+    private final PackedImage img;
+    private final int xFrom;
+    private final int xTo;
+    private final int yFrom;
+    private final byte[][] brightness;
+    private final byte[][] hue;
+
+    /**
+     * Create planes of image rows [yFrom, yTo).
+     *
+     * @param img source image
+     * @param yFrom first row (inclusive)
+     * @param yTo last row (exclusive)
+     */
+    PixelPlanes(PackedImage img, int yFrom, int yTo) {
+        this(img, 0, img.getWidth(), yFrom, yTo);
+    }
+
+    /**
+     * Create planes of image rows [yFrom, yTo) in which only columns [xFrom, xTo) are computed. Rows store only these
+     * columns and are indexed by <code>x - xFrom</code>, see {@link #getXFrom()}.
+     *
+     * @param img source image
+     * @param xFrom first column (inclusive)
+     * @param xTo last column (exclusive)
+     * @param yFrom first row (inclusive)
+     * @param yTo last row (exclusive)
+     */
+    PixelPlanes(PackedImage img, int xFrom, int xTo, int yFrom, int yTo) {
+        this.img = img;
+        this.xFrom = xFrom;
+        this.xTo = xTo;
+        this.yFrom = yFrom;
+        this.brightness = new byte[yTo - yFrom][];
+        this.hue = new byte[yTo - yFrom][];
+    }
+
+    /**
+     * Get first column of the planes.
+     *
+     * @return image column stored at index 0 of rows
+     */
+    int getXFrom() {
+        return xFrom;
+    }
+
+    /**
+     * Get brightness plane row.
+     *
+     * @param y image row
+     * @return brightness values [0-255] of columns from {@link #getXFrom()} stored as unsigned bytes
+     */
+    byte[] getBrightnessRow(int y) {
+        int row = y - yFrom;
+        if (brightness[row] == null) {
+            computeRow(y);
+        }
+        return brightness[row];
+    }
+
+    /**
+     * Get quantized hue plane row.
+     *
+     * @param y image row
+     * @return quantized hue values [0 - {@link #HUE_LEVELS}) of columns from {@link #getXFrom()} stored as unsigned
+     * bytes
+     */
+    byte[] getHueRow(int y) {
+        int row = y - yFrom;
+        if (hue[row] == null) {
+            computeRow(y);
+        }
+        return hue[row];
+    }
+
+    /**
+     * Check if hue of two pixels differs by more than <code>threshold</code>. Quantized values are used when the
+     * answer is certain, otherwise hue is computed from ARGB values.
+     *
+     * @param quantizedHue1 quantized hue of first pixel
+     * @param quantizedHue2 quantized hue of second pixel
+     * @param argb1 ARGB (0xAARRGGBB) of first pixel
+     * @param argb2 ARGB (0xAARRGGBB) of second pixel
+     * @param threshold hue threshold [0 - 1)
+     * @return true when <code>abs(hue1 - hue2) &gt; threshold</code>
+     */
+    static boolean isHueDifferent(int quantizedHue1, int quantizedHue2, int argb1, int argb2, double threshold) {
+        // each quantized value is within one level below the exact one; one more level covers rounding of hue
+        int diff = Math.abs(quantizedHue1 - quantizedHue2);
+        if (diff - 2 > threshold * HUE_LEVELS) {
+            return true;
+        }
+        if (diff + 2 < threshold * HUE_LEVELS) {
+            return false;
+        }
+        return Math.abs(getARGB_Hue(argb1) - getARGB_Hue(argb2)) > threshold;
+    }
+
+    private void computeRow(int y) {
+        int[] data = img.getData();
+        byte[] brightnessRow = new byte[xTo - xFrom];
+        byte[] hueRow = new byte[xTo - xFrom];
+        for (int column = 0, i = img.indexOf(xFrom, y); column < brightnessRow.length; column++, i++) {
+            int argb = data[i];
+            brightnessRow[column] = (byte) getARGB_Brightness(argb);
+            hueRow[column] = (byte) getARGB_QuantizedHue(argb);
+        }
+        brightness[y - yFrom] = brightnessRow;
+        hue[y - yFrom] = hueRow;
+    }
+}
@@ -1,31 +1,187 @@
 package radomik.com.github.resemble.analysis;
 
+import radomik.com.github.resemble.parser.ResembleParserAccumulator;
 import radomik.com.github.resemble.pixel.Pixel;
 import radomik.com.github.resemble.pixel.impl.PixelImpl;
 import radomik.com.github.resemble.pixel.utils.ColorUtils;
+import radomik.com.github.resemble.utils.ImageScaler;
 import radomik.com.github.resemble.utils.ImageUtils;
+import radomik.com.github.resemble.utils.PackedImage;
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.time.Instant;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class ResembleAnalysis {
 
     private static final Logger log = LoggerFactory.getLogger(ResembleAnalysis.class);
-    private final Pixel targetPix = new PixelImpl();
     private final ResembleAnalysisOptions options;
+    private final Map<BufferedImage, Map<Dimension, BufferedImage>> scaledImages = new WeakHashMap<>();
 
     public ResembleAnalysis(ResembleAnalysisOptions options) {
         this.options = options;
     }
 
+    /**
+     * Compare images. When mismatch limit is set in options then analysis stops as soon as it is exceeded and partial
+     * results are returned (see {@link ResembleAnalysisResults#isMismatchLimitExceeded()}). Output image is rendered
+     * according to {@link ResembleAnalysisOptions#getOutputMode()}.
+     *
+     * @param img1 first image
+     * @param img2 second image
+     * @return analysis results
+     * @throws IllegalArgumentException when image dimensions are not matching and scaling is not enabled
+     * @see ResembleAnalysisOptions#setScaleToSameSize(boolean)
+     */
     public ResembleAnalysisResults analyseImages(BufferedImage img1, BufferedImage img2) {
+        return analyseImages(img1, null, img2, null);
+    }
+
+    /**
+     * Compare images using already prepared packed pixels when available.
+     *
+     * @param img1 first image
+     * @param packed1 packed pixels of first image or <code>null</code>
+     * @param img2 second image
+     * @param packed2 packed pixels of second image or <code>null</code>
+     * @return analysis results
+     * @see #analyseImages(java.awt.image.BufferedImage, java.awt.image.BufferedImage)
+     */
+    ResembleAnalysisResults analyseImages(BufferedImage img1, PackedImage packed1,
+            BufferedImage img2, PackedImage packed2) {
+        return analyseImages(img1, packed1, img2, packed2, null);
+    }
+
+    /**
+     * Compare images of which only some tiles may differ. Mask is used by packed engine only and ignored when first
+     * image is scaled.
+     *
+     * @param img1 first image
+     * @param packed1 packed pixels of first image or <code>null</code>
+     * @param img2 second image
+     * @param packed2 packed pixels of second image or <code>null</code>
+     * @param mask tiles to be compared (pixels of other tiles must be equal in both images) or <code>null</code> to
+     * compare all pixels
+     * @return analysis results
+     */
+    ResembleAnalysisResults analyseImages(BufferedImage img1, PackedImage packed1,
+            BufferedImage img2, PackedImage packed2, TileMask mask) {
+        if (isScaled(img1, img2)) {
+            img1 = getScaledImage(img1, packed1, img2.getWidth(), img2.getHeight());
+            packed1 = null;
+            mask = null;
+        }
+        int mismatchLimit = getMismatchLimit(options, img1.getWidth(), img1.getHeight());
+        switch (options.getOutputMode()) {
+            case NONE:
+                return analyseImages(img1, packed1, img2, packed2, mask, mismatchLimit, false);
+            case ON_FAILURE:
+                ResembleAnalysisResults results = analyseImages(img1, packed1, img2, packed2, mask, mismatchLimit,
+                        false);
+                if (isFailure(results, mismatchLimit)) {
+                    return analyseImages(img1, packed1, img2, packed2, mask, Integer.MAX_VALUE, true)
+                            .withMismatchLimit(mismatchLimit, results.getAnalysisTime());
+                }
+                return results;
+            default:
+                return analyseImages(img1, packed1, img2, packed2, mask, mismatchLimit, true);
+        }
+    }
+
+    /**
+     * Check if images are equal within tolerance, that is number of mismatching pixels does not exceed mismatch
+     * limit set in options (or there are no mismatching pixels when limit is not set). Analysis stops as soon as
+     * the answer is known.
+     *
+     * @param img1 first image
+     * @param img2 second image
+     * @return true when images are equal within tolerance
+     * @throws IllegalArgumentException when image dimensions are not matching and scaling is not enabled
+     * @see ResembleAnalysisOptions#setMaxMismatchCount(int)
+     * @see ResembleAnalysisOptions#setMaxMismatchPercentage(double)
+     */
+    public boolean isEqualWithinTolerance(BufferedImage img1, BufferedImage img2) {
+        if (isScaled(img1, img2)) {
+            img1 = getScaledImage(img1, null, img2.getWidth(), img2.getHeight());
+        }
+        int mismatchLimit = getMismatchLimit(options, img1.getWidth(), img1.getHeight());
+        if (mismatchLimit == Integer.MAX_VALUE) {
+            mismatchLimit = 0;
+        }
+        return !analyseImages(img1, null, img2, null, null, mismatchLimit, false).isMismatchLimitExceeded();
+    }
+
+    private boolean isScaled(BufferedImage img1, BufferedImage img2) {
+        return options.isScaleToSameSize() &&
+                (img1.getWidth() != img2.getWidth() || img1.getHeight() != img2.getHeight());
+    }
+
+    /**
+     * Clear cache of scaled first images. Scaled images are cached by source image identity, so the cache has to be
+     * cleared when pixels of an image which is compared again were modified.
+     *
+     * @see ResembleAnalysisOptions#setScaleToSameSize(boolean)
+     */
+    public void clearScaledImages() {
+        synchronized (scaledImages) {
+            scaledImages.clear();
+        }
+    }
+
+    /**
+     * Get first image scaled to given size. Scaled images are cached until the source image is garbage collected
+     * or {@link #clearScaledImages()} is called, so a baseline compared at several resolutions is scaled once per
+     * resolution. Type of source image is checked before it is scaled.
+     *
+     * @param img image to be scaled
+     * @param packed packed pixels of the image or <code>null</code>
+     * @param width width of scaled image
+     * @param height height of scaled image
+     * @return scaled image (shared, must not be modified)
+     */
+    private BufferedImage getScaledImage(BufferedImage img, PackedImage packed, int width, int height) {
+        ImageUtils.checkImageType(img, "img1");
+        Map<Dimension, BufferedImage> sizes;
+        synchronized (scaledImages) {
+            sizes = scaledImages.computeIfAbsent(img, key -> new ConcurrentHashMap<>());
+        }
+        return sizes.computeIfAbsent(new Dimension(width, height), size -> {
+            log.debug("Scaling {}x{} image to {}x{}", img.getWidth(), img.getHeight(), width, height);
+            return ImageScaler.scale((packed != null) ? packed : ImageUtils.toPackedImage(img), width, height,
+                    options.getForkJoinPool());
+        });
+    }
+
+    private static boolean isFailure(ResembleAnalysisResults results, int mismatchLimit) {
+        return (mismatchLimit == Integer.MAX_VALUE) ?
+                results.getMismatchCount() > 0 : results.isMismatchLimitExceeded();
+    }
+
+    private ResembleAnalysisResults analyseImages(BufferedImage img1, PackedImage packed1,
+            BufferedImage img2, PackedImage packed2, TileMask mask, int mismatchLimit, boolean renderOutput) {
         Instant startTime = Instant.now();
         ImageUtils.checkImageType(img1, "img1");
         ImageUtils.checkImageType(img2, "img2");
         ImageUtils.checkImageMatch(img1, "img1", img2, "img2");
 
-        BufferedImage imgOut = ImageUtils.createEmptyImage(img1);
+        BufferedImage imgOut = renderOutput ? ImageUtils.createEmptyImage(img1) : null;
+
+        if (isSampled(img1.getWidth(), img1.getHeight())) {
+            return analyseSampledImages((packed1 != null) ? packed1 : ImageUtils.toPackedImage(img1),
+                    (packed2 != null) ? packed2 : ImageUtils.toPackedImage(img2), imgOut, mismatchLimit, startTime);
+        }
+
+        MismatchMask mismatchMask = createMismatchMask(options, img1.getWidth(), img1.getHeight());
+        if (options.getEngine() != AnalysisEngine.PIXEL) {
+            return withMismatchMask(options, analysePackedImages(
+                    (packed1 != null) ? packed1 : ImageUtils.toPackedImage(img1),
+                    (packed2 != null) ? packed2 : ImageUtils.toPackedImage(img2), imgOut, mask, mismatchMask,
+                    mismatchLimit, startTime), mismatchMask);
+        }
 
         DiffBounds diffBounds = new DiffBounds();
         diffBounds.setTop(img1.getHeight());
@@ -35,17 +191,22 @@ public class ResembleAnalysis {
 
         int width = img1.getWidth();
         int height = img1.getHeight();
-        int skip = 0;
+        int skip = getSkip(options, width, height);
         int mismatchCount = 0;
+        boolean mismatchLimitExceeded = false;
 
-        if (options.getLargeImageThreshold() != 0.0 && options.isIgnoreAntialiasing() &&
-                (width > options.getLargeImageThreshold() ||
-                height > options.getLargeImageThreshold())) {
-            skip = 6;
+        ResembleParserAccumulator parserAccumulator1 = null;
+        ResembleParserAccumulator parserAccumulator2 = null;
+        ResembleParserAccumulator outputParserAccumulator = null;
+        if (options.isComputeParserData()) {
+            parserAccumulator1 = new ResembleParserAccumulator();
+            parserAccumulator2 = new ResembleParserAccumulator();
+            outputParserAccumulator = new ResembleParserAccumulator();
         }
 
         Pixel pixel1 = new PixelImpl(0, 0, 0, 0);
         Pixel pixel2 = new PixelImpl(0, 0, 0, 0);
+        Pixel targetPix = new PixelImpl();
 
         for (int x = 0; x < width; x++) {
             for (int y = 0; y < height; y++) {
@@ -62,48 +223,200 @@ public class ResembleAnalysis {
                     if (pixel1.isPixelBrightnessSimilar(pixel2, options.getTolerance())) {
                         copyGrayScalePixel(imgOut, x, y, pixel2);
                     } else {
-                        mismatchCount = errorPixel(imgOut, x, y, pixel1, pixel2, mismatchCount, diffBounds);
+                        mismatchCount = errorPixel(imgOut, x, y, pixel1, pixel2, mismatchCount, diffBounds, mismatchMask);
                     }
                     continue;
                 }
 
                 if (pixel1.isARGBSimilar(pixel2, options.getTolerance())) {
                     copyPixel(imgOut, x, y, pixel1);
-                } else if (options.isIgnoreAntialiasing() && (isAntialiased(pixel1, img1, x, y) ||
-                        isAntialiased(pixel2, img2, x, y))) {
+                } else if (options.isIgnoreAntialiasing() && (isAntialiased(pixel1, img1, x, y, targetPix) ||
+                        isAntialiased(pixel2, img2, x, y, targetPix))) {
                     if (pixel1.isPixelBrightnessSimilar(pixel2, options.getTolerance())) {
                         copyGrayScalePixel(imgOut, x, y, pixel2);
                     } else {
-                        mismatchCount = errorPixel(imgOut, x, y, pixel1, pixel2, mismatchCount, diffBounds);
+                        mismatchCount = errorPixel(imgOut, x, y, pixel1, pixel2, mismatchCount, diffBounds, mismatchMask);
                     }
                 } else {
-                    mismatchCount = errorPixel(imgOut, x, y, pixel1, pixel2, mismatchCount, diffBounds);
+                    mismatchCount = errorPixel(imgOut, x, y, pixel1, pixel2, mismatchCount, diffBounds, mismatchMask);
                 }
             }
+            if (parserAccumulator1 != null) { // column is still in cache
+                for (int y = 0; y < height; y++) {
+                    parserAccumulator1.add(ColorUtils.getARGB(img1, x, y));
+                    parserAccumulator2.add(ColorUtils.getARGB(img2, x, y));
+                    if (imgOut != null) {
+                        outputParserAccumulator.add(ColorUtils.getARGB(imgOut, x, y));
+                    }
+                }
+            }
+            if (mismatchCount > mismatchLimit) {
+                mismatchLimitExceeded = true;
+                break;
+            }
         }
 
-        return new ResembleAnalysisResults(imgOut, mismatchCount, diffBounds, startTime);
+        return withMismatchMask(options, withParserData(new ResembleAnalysisResults(imgOut, width, height,
+                mismatchCount, diffBounds, mismatchLimitExceeded, startTime), parserAccumulator1, parserAccumulator2,
+                (imgOut != null) ? outputParserAccumulator : null), mismatchMask);
+    }
+
+    private ResembleAnalysisResults analysePackedImages(PackedImage packed1, PackedImage packed2,
+            BufferedImage imgOut, TileMask mask, MismatchMask mismatchMask, int mismatchLimit, Instant startTime) {
+        PackedImage packedOut = (imgOut != null) ? ImageUtils.toPackedImage(imgOut) : null;
+
+        MismatchBudget budget = (mismatchLimit != Integer.MAX_VALUE) ? new MismatchBudget(mismatchLimit) : null;
+        PackedAnalysis analysis = PackedAnalysisTask.analyse(options, packed1.getWidth(), packed1.getHeight(), budget,
+                mismatchMask, packed1, packed2, packedOut, 0, packed1.getHeight(), 0, mask);
+        if (imgOut != null) {
+            ImageUtils.writePackedImage(packedOut, imgOut);
+        }
+
+        return withParserData(new ResembleAnalysisResults(imgOut, packed1.getWidth(), packed1.getHeight(),
+                analysis.getMismatchCount(), analysis.getDiffBounds(), budget != null && budget.isExceeded(),
+                startTime), analysis.getParserAccumulator1(), analysis.getParserAccumulator2(),
+                (imgOut != null) ? analysis.getOutputParserAccumulator() : null);
+    }
+
+    private boolean isSampled(int width, int height) {
+        return options.getSamplingBudget() > 0 && (long) width * height > options.getSamplingBudget();
+    }
+
+    private ResembleAnalysisResults analyseSampledImages(PackedImage packed1, PackedImage packed2,
+            BufferedImage imgOut, int mismatchLimit, Instant startTime) {
+        PackedImage packedOut = (imgOut != null) ? ImageUtils.toPackedImage(imgOut) : null;
+        SampledAnalysis analysis = SampledAnalysis.analyse(options, packed1, packed2, packedOut);
+        if (imgOut != null) {
+            ImageUtils.writePackedImage(packedOut, imgOut);
+        }
+        log.debug("Sampled {} pixels, mismatch percentage in [{}, {}]", analysis.getSampleCount(),
+                analysis.getMismatchPercentageLower(), analysis.getMismatchPercentageUpper());
+        return new ResembleAnalysisResults(imgOut, packed1.getWidth(), packed1.getHeight(),
+                analysis.getMismatchCount(), analysis.getDiffBounds(), analysis.getMismatchCount() > mismatchLimit,
+                startTime).withSampling(analysis.getSampleCount(), analysis.getMismatchPercentageLower(),
+                analysis.getMismatchPercentageUpper());
+    }
+
+    /**
+     * Add parser data to results of complete analysis.
+     *
+     * @param results analysis results
+     * @param accumulator1 accumulator of first image or <code>null</code> when parser data is not computed
+     * @param accumulator2 accumulator of second image
+     * @param outputAccumulator accumulator of output image or <code>null</code> when output is not rendered
+     * @return results with parser data
+     */
+    static ResembleAnalysisResults withParserData(ResembleAnalysisResults results,
+            ResembleParserAccumulator accumulator1, ResembleParserAccumulator accumulator2,
+            ResembleParserAccumulator outputAccumulator) {
+        if (accumulator1 == null || results.isMismatchLimitExceeded()) {
+            return results;
+        }
+        return results.withParserData(accumulator1.getParserData(), accumulator2.getParserData(),
+                (outputAccumulator != null) ? outputAccumulator.getParserData() : null);
+    }
+
+    /**
+     * Create mask of mismatching pixels when it is needed for results.
+     *
+     * @param options analysis options
+     * @param width image width
+     * @param height image height
+     * @return empty mask or <code>null</code> when not needed
+     */
+    static MismatchMask createMismatchMask(ResembleAnalysisOptions options, int width, int height) {
+        if (options.isComputeDiffRegions() || options.isKeepMismatchMask()) {
+            return new MismatchMask(width, height);
+        }
+        return null;
+    }
+
+    /**
+     * Add regions of mismatching pixels and (if kept) the mask itself to results of complete analysis.
+     *
+     * @param options analysis options
+     * @param results analysis results
+     * @param mismatchMask mask of mismatching pixels or <code>null</code> when not needed
+     * @return results with regions and mask
+     */
+    static ResembleAnalysisResults withMismatchMask(ResembleAnalysisOptions options,
+            ResembleAnalysisResults results, MismatchMask mismatchMask) {
+        if (mismatchMask == null || results.isMismatchLimitExceeded()) {
+            return results;
+        }
+        if (options.isComputeDiffRegions()) {
+            results = results.withDiffRegions(DiffRegionFinder.findRegions(mismatchMask,
+                    options.getDiffRegionMergeDistance(), options.getMaxDiffRegions()));
+        }
+        return options.isKeepMismatchMask() ? results.withMismatchMask(mismatchMask) : results;
+    }
+
+    /**
+     * Get maximum number of mismatching pixels set in options.
+     *
+     * @param options analysis options
+     * @param width image width
+     * @param height image height
+     * @return mismatch limit or {@link Integer#MAX_VALUE} when not set
+     */
+    static int getMismatchLimit(ResembleAnalysisOptions options, int width, int height) {
+        long limit = Integer.MAX_VALUE;
+        if (options.getMaxMismatchCount() >= 0) {
+            limit = Math.min(limit, options.getMaxMismatchCount());
+        }
+        if (options.getMaxMismatchPercentage() >= 0.0) {
+            limit = Math.min(limit, (long) Math.floor(options.getMaxMismatchPercentage() / 100.0 * width * height));
+        }
+        return (int) limit;
+    }
+
+    /**
+     * Get distance between analysed rows and columns, 0 means that every pixel is analysed.
+     *
+     * @param options analysis options
+     * @param width image width
+     * @param height image height
+     * @return distance between analysed pixels or 0
+     */
+    static int getSkip(ResembleAnalysisOptions options, int width, int height) {
+        if (options.getLargeImageThreshold() != 0.0 && options.isIgnoreAntialiasing() &&
+                (width > options.getLargeImageThreshold() ||
+                height > options.getLargeImageThreshold())) {
+            return 6;
+        }
+        return 0;
     }
 
     private int errorPixel(BufferedImage imgOut, int x, int y, Pixel pixel1, Pixel pixel2,
-            int mismatchCount, DiffBounds diffBounds) {
-        options.getErrorPixel().getTransformer()
-                .transform(imgOut, x, y, pixel1, pixel2, options);
+            int mismatchCount, DiffBounds diffBounds, MismatchMask mismatchMask) {
+        if (imgOut != null) {
+            options.getErrorPixel().getTransformer()
+                    .transform(imgOut, x, y, pixel1, pixel2, options);
+        }
+        if (mismatchMask != null) {
+            mismatchMask.set(x, y);
+        }
         diffBounds.updateBound(x, y);
         return mismatchCount + 1;
     }
 
     private void copyGrayScalePixel(BufferedImage imgOut, int x, int y, Pixel pixel) {
+        if (imgOut == null) {
+            return;
+        }
         int b = pixel.getMinBrightness().getValue();
         int a = (int) (pixel.getAlpha().getValue() * options.getPixelTransparency());
         ColorUtils.setARGB(imgOut, x, y, a, b, b, b);
     }
 
     private void copyPixel(BufferedImage imgOut, int x, int y, Pixel pixel) {
+        if (imgOut == null) {
+            return;
+        }
         ColorUtils.setARGB(imgOut, x, y, pixel);
     }
 
-    private boolean isAntialiased(Pixel sourcePix, BufferedImage img, int x, int y) {
+    private boolean isAntialiased(Pixel sourcePix, BufferedImage img, int x, int y, Pixel targetPix) {
         final int minDist = -1;
         final int maxDist = 1;
         int width = img.getWidth();
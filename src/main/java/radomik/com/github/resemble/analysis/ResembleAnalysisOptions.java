@@ -1,6 +1,7 @@
 package radomik.com.github.resemble.analysis;
 
 import radomik.com.github.resemble.pixel.impl.PixelImpl;
+import java.util.concurrent.ForkJoinPool;
 
 public class ResembleAnalysisOptions {
 
@@ -12,6 +13,20 @@ public class ResembleAnalysisOptions {
     private boolean scaleToSameSize = false;
     private double pixelTransparency = 1.0;
     private double largeImageThreshold = 1200.0;
+    private AnalysisEngine engine = AnalysisEngine.PIXEL;
+    private ForkJoinPool forkJoinPool = null;
+    private int tileHeight = 64;
+    private int maxMismatchCount = -1;
+    private double maxMismatchPercentage = -1.0;
+    private OutputMode outputMode = OutputMode.FULL;
+    private int stripHeight = 256;
+    private boolean computeParserData = false;
+    private int samplingBudget = 0;
+    private double samplingConfidence = 0.95;
+    private boolean computeDiffRegions = false;
+    private int diffRegionMergeDistance = 1;
+    private int maxDiffRegions = 64;
+    private boolean keepMismatchMask = false;
 
     public ResembleAnalysisOptions() {
         tolerance.getMinBrightness().setValue(16);
@@ -27,7 +42,21 @@ public class ResembleAnalysisOptions {
                 ", ignoreColors=" + ignoreColors +
                 ", scaleToSameSize=" + scaleToSameSize +
                 ", pixelTransparency=" + pixelTransparency +
-                ", largeImageThreshold=" + largeImageThreshold + '}';
+                ", largeImageThreshold=" + largeImageThreshold +
+                ", engine=" + engine +
+                ", forkJoinPool=" + forkJoinPool +
+                ", tileHeight=" + tileHeight +
+                ", maxMismatchCount=" + maxMismatchCount +
+                ", maxMismatchPercentage=" + maxMismatchPercentage +
+                ", outputMode=" + outputMode +
+                ", stripHeight=" + stripHeight +
+                ", computeParserData=" + computeParserData +
+                ", samplingBudget=" + samplingBudget +
+                ", samplingConfidence=" + samplingConfidence +
+                ", computeDiffRegions=" + computeDiffRegions +
+                ", diffRegionMergeDistance=" + diffRegionMergeDistance +
+                ", maxDiffRegions=" + maxDiffRegions +
+                ", keepMismatchMask=" + keepMismatchMask + '}';
     }
 
     public ErrorPixel getErrorPixel() {
@@ -58,6 +87,16 @@ public class ResembleAnalysisOptions {
         return scaleToSameSize;
     }
 
+    /**
+     * Set whether first image is scaled to the size of second image when their sizes differ. Otherwise images of
+     * different sizes are not compared. Not supported by {@link ResembleStreamAnalysis}.
+     * <p>
+     * Scaled images are cached by {@link ResembleAnalysis} while the first image is in use, call
+     * {@link ResembleAnalysis#clearScaledImages()} after modifying pixels of a first image which is compared again.
+     *
+     * @param scaleToSameSize true to scale first image
+     * @see radomik.com.github.resemble.utils.ImageScaler
+     */
     public void setScaleToSameSize(boolean scaleToSameSize) {
         this.scaleToSameSize = scaleToSameSize;
     }
@@ -88,6 +127,226 @@ public class ResembleAnalysisOptions {
         this.largeImageThreshold = largeImageThreshold;
     }
 
+    public AnalysisEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Set engine used to compare images.
+     *
+     * @param engine analysis engine
+     * @see AnalysisEngine
+     */
+    public void setEngine(AnalysisEngine engine) {
+        this.engine = engine;
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    /**
+     * Set pool used to analyse tiles of the image in parallel. Used only by {@link AnalysisEngine#PACKED} engine.
+     *
+     * @param forkJoinPool pool for parallel analysis or <code>null</code> to analyse on calling thread
+     * @see #setTileHeight(int)
+     */
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    /**
+     * Get maximum number of image rows in a tile analysed by a single task.
+     *
+     * @return tile height
+     */
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    /**
+     * Set maximum number of image rows in a tile analysed by a single task.
+     *
+     * @param tileHeight tile height
+     */
+    public void setTileHeight(int tileHeight) {
+        this.tileHeight = tileHeight;
+    }
+
+    /**
+     * Get maximum number of mismatching pixels after which analysis is stopped.
+     *
+     * @return mismatch count limit or negative value when not set
+     */
+    public int getMaxMismatchCount() {
+        return maxMismatchCount;
+    }
+
+    /**
+     * Set maximum number of mismatching pixels after which analysis is stopped.
+     *
+     * @param maxMismatchCount mismatch count limit or negative value to disable
+     */
+    public void setMaxMismatchCount(int maxMismatchCount) {
+        this.maxMismatchCount = maxMismatchCount;
+    }
+
+    /**
+     * Get maximum percentage [0 - 100] of mismatching pixels after which analysis is stopped.
+     *
+     * @return mismatch percentage limit or negative value when not set
+     */
+    public double getMaxMismatchPercentage() {
+        return maxMismatchPercentage;
+    }
+
+    /**
+     * Set maximum percentage [0 - 100] of mismatching pixels after which analysis is stopped.
+     *
+     * @param maxMismatchPercentage mismatch percentage limit or negative value to disable
+     */
+    public void setMaxMismatchPercentage(double maxMismatchPercentage) {
+        this.maxMismatchPercentage = maxMismatchPercentage;
+    }
+
+    public OutputMode getOutputMode() {
+        return outputMode;
+    }
+
+    /**
+     * Set when output image is rendered.
+     *
+     * @param outputMode output mode
+     * @see OutputMode
+     */
+    public void setOutputMode(OutputMode outputMode) {
+        this.outputMode = outputMode;
+    }
+
+    /**
+     * Get number of image rows read at once by {@link ResembleStreamAnalysis}.
+     *
+     * @return strip height
+     */
+    public int getStripHeight() {
+        return stripHeight;
+    }
+
+    /**
+     * Set number of image rows read at once by {@link ResembleStreamAnalysis}.
+     *
+     * @param stripHeight strip height
+     */
+    public void setStripHeight(int stripHeight) {
+        this.stripHeight = stripHeight;
+    }
+
+    public boolean isComputeParserData() {
+        return computeParserData;
+    }
+
+    /**
+     * Set if {@link radomik.com.github.resemble.parser.ResembleParserData} of both images and output image is
+     * computed during analysis, see {@link ResembleAnalysisResults#getParserData1()}.
+     *
+     * @param computeParserData true to compute parser data
+     */
+    public void setComputeParserData(boolean computeParserData) {
+        this.computeParserData = computeParserData;
+    }
+
+    /**
+     * Get maximum number of pixels compared in sampling mode.
+     *
+     * @return sampling budget or 0 when sampling is disabled
+     */
+    public int getSamplingBudget() {
+        return samplingBudget;
+    }
+
+    /**
+     * Set maximum number of pixels compared in sampling mode. Images with more pixels are compared on a random
+     * sample stratified over tiles of the image, instead of skipping rows and columns of large images. Mismatch
+     * percentage is then an estimate, see {@link ResembleAnalysisResults#isSampled()}. Output image contains only
+     * sampled pixels and parser data is not computed.
+     *
+     * @param samplingBudget sampling budget or 0 to disable sampling
+     */
+    public void setSamplingBudget(int samplingBudget) {
+        this.samplingBudget = samplingBudget;
+    }
+
+    public double getSamplingConfidence() {
+        return samplingConfidence;
+    }
+
+    /**
+     * Set confidence level of mismatch percentage bounds in sampling mode.
+     *
+     * @param samplingConfidence confidence level (0 - 1), e.g. 0.95
+     * @see ResembleAnalysisResults#getMismatchPercentageLower()
+     */
+    public void setSamplingConfidence(double samplingConfidence) {
+        this.samplingConfidence = samplingConfidence;
+    }
+
+    public boolean isComputeDiffRegions() {
+        return computeDiffRegions;
+    }
+
+    /**
+     * Set if connected regions of mismatching pixels are computed, see
+     * {@link ResembleAnalysisResults#getDiffRegions()}. Regions are not computed in sampling mode.
+     *
+     * @param computeDiffRegions true to compute regions
+     */
+    public void setComputeDiffRegions(boolean computeDiffRegions) {
+        this.computeDiffRegions = computeDiffRegions;
+    }
+
+    public int getDiffRegionMergeDistance() {
+        return diffRegionMergeDistance;
+    }
+
+    /**
+     * Set maximum distance (in both axes) between mismatching pixels of one region. Distance 1 joins adjacent
+     * pixels only, larger distance joins nearby changes (e.g. letters of a changed word) into one region.
+     *
+     * @param diffRegionMergeDistance merge distance, at least 1
+     */
+    public void setDiffRegionMergeDistance(int diffRegionMergeDistance) {
+        this.diffRegionMergeDistance = diffRegionMergeDistance;
+    }
+
+    public int getMaxDiffRegions() {
+        return maxDiffRegions;
+    }
+
+    /**
+     * Set maximum number of regions. When there are more regions, the largest ones are kept and the others are
+     * combined into a single region.
+     *
+     * @param maxDiffRegions maximum number of regions or 0 when not limited
+     */
+    public void setMaxDiffRegions(int maxDiffRegions) {
+        this.maxDiffRegions = maxDiffRegions;
+    }
+
+    public boolean isKeepMismatchMask() {
+        return keepMismatchMask;
+    }
+
+    /**
+     * Set if 1-bit mask of mismatching pixels is returned in results, see
+     * {@link ResembleAnalysisResults#getMismatchMask()}. The mask is much smaller than output image and may be
+     * stored or sent in run-length encoded format. Mask is not returned in sampling mode.
+     *
+     * @param keepMismatchMask true to return mismatch mask
+     */
+    public void setKeepMismatchMask(boolean keepMismatchMask) {
+        this.keepMismatchMask = keepMismatchMask;
+    }
+
     public PixelImpl getTolerance() {
         return tolerance;
     }
@@ -1,43 +1,289 @@
 package radomik.com.github.resemble.analysis;
 
+import radomik.com.github.resemble.parser.ResembleParserData;
 import java.awt.image.BufferedImage;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 
 public class ResembleAnalysisResults {
 
     private final BufferedImage outputImage;
+    private final int width;
+    private final int height;
+    private final int mismatchCount;
     private final double mismatchPercentage;
     private final DiffBounds diffBounds;
+    private final boolean mismatchLimitExceeded;
     private final Duration analysisTime;
+    private final ResembleParserData parserData1;
+    private final ResembleParserData parserData2;
+    private final ResembleParserData outputParserData;
+    private final long sampleCount;
+    private final double mismatchPercentageLower;
+    private final double mismatchPercentageUpper;
+    private final List<DiffRegion> diffRegions;
+    private final MismatchMask mismatchMask;
 
     public ResembleAnalysisResults(BufferedImage outputImage, int mismatchCount, DiffBounds diffBounds, Instant startTime) {
+        this(outputImage, outputImage.getWidth(), outputImage.getHeight(), mismatchCount, diffBounds, false, startTime);
+    }
+
+    /**
+     * Create results.
+     *
+     * @param outputImage output image or <code>null</code> when not rendered
+     * @param width width of analysed images
+     * @param height height of analysed images
+     * @param mismatchCount number of mismatching pixels
+     * @param diffBounds bounds of mismatching pixels
+     * @param mismatchLimitExceeded true when analysis was stopped because mismatch limit was exceeded
+     * @param startTime analysis start time
+     */
+    public ResembleAnalysisResults(BufferedImage outputImage, int width, int height, int mismatchCount,
+            DiffBounds diffBounds, boolean mismatchLimitExceeded, Instant startTime) {
+        this(outputImage, width, height, mismatchCount, diffBounds, mismatchLimitExceeded,
+                Duration.between(startTime, Instant.now()), null, null, null, 0, Double.NaN, Double.NaN, null, null);
+    }
+
+    private ResembleAnalysisResults(BufferedImage outputImage, int width, int height, int mismatchCount,
+            DiffBounds diffBounds, boolean mismatchLimitExceeded, Duration analysisTime,
+            ResembleParserData parserData1, ResembleParserData parserData2, ResembleParserData outputParserData,
+            long sampleCount, double mismatchPercentageLower, double mismatchPercentageUpper,
+            List<DiffRegion> diffRegions, MismatchMask mismatchMask) {
         this.outputImage = outputImage;
-        this.mismatchPercentage =
-                ((double) mismatchCount) / ((double) outputImage.getWidth() * outputImage.getHeight()) * 100.0;
+        this.width = width;
+        this.height = height;
+        this.mismatchCount = mismatchCount;
+        this.mismatchPercentage = ((double) mismatchCount) / ((double) width * height) * 100.0;
         this.diffBounds = diffBounds;
-        this.analysisTime = Duration.between(startTime, Instant.now());
+        this.mismatchLimitExceeded = mismatchLimitExceeded;
+        this.analysisTime = analysisTime;
+        this.parserData1 = parserData1;
+        this.parserData2 = parserData2;
+        this.outputParserData = outputParserData;
+        this.sampleCount = sampleCount;
+        this.mismatchPercentageLower = (sampleCount > 0) ? mismatchPercentageLower : mismatchPercentage;
+        this.mismatchPercentageUpper = (sampleCount > 0) ? mismatchPercentageUpper : mismatchPercentage;
+        this.diffRegions = diffRegions;
+        this.mismatchMask = mismatchMask;
+    }
+
+    /**
+     * Get copy of these results with mismatch limit flag computed for complete results.
+     *
+     * @param mismatchLimit maximum number of mismatching pixels
+     * @param previousTime duration of previous analysis to be added to analysis time
+     * @return results copy
+     */
+    ResembleAnalysisResults withMismatchLimit(int mismatchLimit, Duration previousTime) {
+        return new ResembleAnalysisResults(outputImage, width, height, mismatchCount, diffBounds,
+                mismatchCount > mismatchLimit, analysisTime.plus(previousTime), parserData1, parserData2,
+                outputParserData, sampleCount, mismatchPercentageLower, mismatchPercentageUpper, diffRegions, mismatchMask);
+    }
+
+    /**
+     * Get copy of these results with parser data.
+     *
+     * @param parserData1 parser data of first image
+     * @param parserData2 parser data of second image
+     * @param outputParserData parser data of output image
+     * @return results copy
+     */
+    ResembleAnalysisResults withParserData(ResembleParserData parserData1, ResembleParserData parserData2,
+            ResembleParserData outputParserData) {
+        return new ResembleAnalysisResults(outputImage, width, height, mismatchCount, diffBounds,
+                mismatchLimitExceeded, analysisTime, parserData1, parserData2, outputParserData, sampleCount,
+                mismatchPercentageLower, mismatchPercentageUpper, diffRegions, mismatchMask);
+    }
+
+    /**
+     * Get copy of these results estimated from a sample of pixels.
+     *
+     * @param sampleCount number of compared pixels
+     * @param mismatchPercentageLower lower bound of mismatch percentage
+     * @param mismatchPercentageUpper upper bound of mismatch percentage
+     * @return results copy
+     */
+    ResembleAnalysisResults withSampling(long sampleCount, double mismatchPercentageLower,
+            double mismatchPercentageUpper) {
+        return new ResembleAnalysisResults(outputImage, width, height, mismatchCount, diffBounds,
+                mismatchLimitExceeded, analysisTime, parserData1, parserData2, outputParserData, sampleCount,
+                mismatchPercentageLower, mismatchPercentageUpper, diffRegions, mismatchMask);
+    }
+
+    /**
+     * Get copy of these results with regions of mismatching pixels.
+     *
+     * @param diffRegions regions of mismatching pixels
+     * @return results copy
+     */
+    ResembleAnalysisResults withDiffRegions(List<DiffRegion> diffRegions) {
+        return new ResembleAnalysisResults(outputImage, width, height, mismatchCount, diffBounds,
+                mismatchLimitExceeded, analysisTime, parserData1, parserData2, outputParserData, sampleCount,
+                mismatchPercentageLower, mismatchPercentageUpper, diffRegions, mismatchMask);
+    }
+
+    /**
+     * Get copy of these results with mask of mismatching pixels.
+     *
+     * @param mismatchMask mask of mismatching pixels
+     * @return results copy
+     */
+    ResembleAnalysisResults withMismatchMask(MismatchMask mismatchMask) {
+        return new ResembleAnalysisResults(outputImage, width, height, mismatchCount, diffBounds,
+                mismatchLimitExceeded, analysisTime, parserData1, parserData2, outputParserData, sampleCount,
+                mismatchPercentageLower, mismatchPercentageUpper, diffRegions, mismatchMask);
     }
 
     @Override
     public String toString() {
-        return "ResembleAnalysisResults{" + "outputImage=" + outputImage + ", mismatchPercentage=" + mismatchPercentage + ", diffBounds=" + diffBounds + ", analysisTime=" + analysisTime + '}';
+        return "ResembleAnalysisResults{" + "outputImage=" + outputImage + ", mismatchCount=" + mismatchCount + ", mismatchPercentage=" + mismatchPercentage + ", diffBounds=" + diffBounds + ", mismatchLimitExceeded=" + mismatchLimitExceeded + ", sampleCount=" + sampleCount + ", analysisTime=" + analysisTime + '}';
     }
 
+    /**
+     * Get output image.
+     *
+     * @return output image or <code>null</code> when it was not rendered
+     * @see ResembleAnalysisOptions#setOutputMode(OutputMode)
+     */
     public BufferedImage getOutputImage() {
         return outputImage;
     }
 
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get number of mismatching pixels, estimated when {@link #isSampled()}.
+     *
+     * @return mismatch count
+     */
+    public int getMismatchCount() {
+        return mismatchCount;
+    }
+
+    /**
+     * Get percentage of mismatching pixels, estimated when {@link #isSampled()}.
+     *
+     * @return mismatch percentage
+     */
     public double getMismatchPercentage() {
         return mismatchPercentage;
     }
 
+    /**
+     * Check if results were estimated from a random sample of pixels.
+     *
+     * @return true when sampled
+     * @see ResembleAnalysisOptions#setSamplingBudget(int)
+     */
+    public boolean isSampled() {
+        return sampleCount > 0;
+    }
+
+    /**
+     * Get number of compared pixels in sampling mode.
+     *
+     * @return number of sampled pixels or 0 when not sampled
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Get lower bound of confidence interval of mismatch percentage.
+     *
+     * @return lower bound, equal to {@link #getMismatchPercentage()} when not sampled
+     * @see ResembleAnalysisOptions#setSamplingConfidence(double)
+     */
+    public double getMismatchPercentageLower() {
+        return mismatchPercentageLower;
+    }
+
+    /**
+     * Get upper bound of confidence interval of mismatch percentage.
+     *
+     * @return upper bound, equal to {@link #getMismatchPercentage()} when not sampled
+     * @see ResembleAnalysisOptions#setSamplingConfidence(double)
+     */
+    public double getMismatchPercentageUpper() {
+        return mismatchPercentageUpper;
+    }
+
     public DiffBounds getDiffBounds() {
         return diffBounds;
     }
 
+    /**
+     * Get connected regions of mismatching pixels, each with its own bounds and pixel count.
+     *
+     * @return regions in order of their first pixel, or <code>null</code> when not computed, sampled or analysis
+     * was stopped early
+     * @see ResembleAnalysisOptions#setComputeDiffRegions(boolean)
+     */
+    public List<DiffRegion> getDiffRegions() {
+        return diffRegions;
+    }
+
+    /**
+     * Get 1-bit mask of mismatching pixels.
+     *
+     * @return mask or <code>null</code> when not kept, sampled or analysis was stopped early
+     * @see ResembleAnalysisOptions#setKeepMismatchMask(boolean)
+     */
+    public MismatchMask getMismatchMask() {
+        return mismatchMask;
+    }
+
+    /**
+     * Check if analysis was stopped because mismatch limit was exceeded. In such case results are partial: mismatch
+     * percentage, bounds and output image cover only pixels analysed before stopping.
+     *
+     * @return true when mismatch limit was exceeded
+     */
+    public boolean isMismatchLimitExceeded() {
+        return mismatchLimitExceeded;
+    }
+
     public Duration getAnalysisTime() {
         return analysisTime;
     }
 
+    /**
+     * Get parser data of first image computed during analysis.
+     *
+     * @return parser data or <code>null</code> when not computed or analysis was stopped early
+     * @see ResembleAnalysisOptions#setComputeParserData(boolean)
+     */
+    public ResembleParserData getParserData1() {
+        return parserData1;
+    }
+
+    /**
+     * Get parser data of second image computed during analysis.
+     *
+     * @return parser data or <code>null</code> when not computed or analysis was stopped early
+     * @see ResembleAnalysisOptions#setComputeParserData(boolean)
+     */
+    public ResembleParserData getParserData2() {
+        return parserData2;
+    }
+
+    /**
+     * Get parser data of output image computed during analysis.
+     *
+     * @return parser data or <code>null</code> when not computed, output image was not rendered or analysis was
+     * stopped early
+     * @see ResembleAnalysisOptions#setComputeParserData(boolean)
+     */
+    public ResembleParserData getOutputParserData() {
+        return outputParserData;
+    }
+
 }
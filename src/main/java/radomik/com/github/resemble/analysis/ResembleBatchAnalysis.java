@@ -0,0 +1,162 @@
+package radomik.com.github.resemble.analysis;
+
+import radomik.com.github.resemble.utils.ImageUtils;
+import radomik.com.github.resemble.utils.PackedImage;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares many image pairs, or one baseline against many candidates, in parallel.
+ * <p>
+ * Every comparison is a single task of the executor, so a bounded executor (e.g. fixed thread pool) limits number
+ * of images analysed at once. Baselines are prepared for analysis once and shared by all their comparisons. Results
+ * are passed to {@link ResembleBatchListener} as soon as each comparison finishes and are also available from
+ * returned futures, in the order of the batch.
+ */
+public class ResembleBatchAnalysis {
+
+    private static final Logger log = LoggerFactory.getLogger(ResembleBatchAnalysis.class);
+    private final ResembleAnalysisOptions options;
+    private final ResembleAnalysis analysis;
+    private final Executor executor;
+
+    /**
+     * Create batch analysis.
+     *
+     * @param options analysis options used for every comparison
+     * @param executor executor running comparisons
+     */
+    public ResembleBatchAnalysis(ResembleAnalysisOptions options, Executor executor) {
+        this.options = options;
+        this.analysis = new ResembleAnalysis(options);
+        this.executor = executor;
+    }
+
+    /**
+     * Compare image pairs. Image used as first image of several pairs is prepared once.
+     *
+     * @param pairs pairs of (first, second) images
+     * @param listener listener receiving results or <code>null</code>
+     * @return futures of analysis results in the order of <code>pairs</code>
+     */
+    public List<CompletableFuture<ResembleAnalysisResults>> analysePairs(
+            List<Pair<BufferedImage, BufferedImage>> pairs, ResembleBatchListener listener) {
+        Map<BufferedImage, Baseline> baselines = new IdentityHashMap<>();
+        List<CompletableFuture<ResembleAnalysisResults>> futures = new ArrayList<>(pairs.size());
+        for (int i = 0; i < pairs.size(); i++) {
+            Pair<BufferedImage, BufferedImage> pair = pairs.get(i);
+            Baseline baseline = baselines.computeIfAbsent(pair.getLeft(), Baseline::new);
+            futures.add(submit(i, baseline, pair.getRight(), listener));
+        }
+        return futures;
+    }
+
+    /**
+     * Compare baseline image against every candidate image. Baseline is prepared once.
+     *
+     * @param baseline baseline (first) image
+     * @param candidates candidate (second) images
+     * @param listener listener receiving results or <code>null</code>
+     * @return futures of analysis results in the order of <code>candidates</code>
+     */
+    public List<CompletableFuture<ResembleAnalysisResults>> analyseCandidates(BufferedImage baseline,
+            List<BufferedImage> candidates, ResembleBatchListener listener) {
+        Baseline preparedBaseline = new Baseline(baseline);
+        List<CompletableFuture<ResembleAnalysisResults>> futures = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            futures.add(submit(i, preparedBaseline, candidates.get(i), listener));
+        }
+        return futures;
+    }
+
+    /**
+     * Compare baseline image file against every candidate image file. Baseline is read and prepared once,
+     * candidates are read by executor tasks.
+     *
+     * @param baselineFile baseline (first) image file
+     * @param candidateFiles candidate (second) image files
+     * @param listener listener receiving results or <code>null</code>
+     * @return futures of analysis results in the order of <code>candidateFiles</code>, a future completes with
+     * {@link UncheckedIOException} when candidate file could not be read
+     * @throws IOException on error reading baseline image file
+     */
+    public List<CompletableFuture<ResembleAnalysisResults>> analyseCandidateFiles(File baselineFile,
+            List<File> candidateFiles, ResembleBatchListener listener) throws IOException {
+        Baseline baseline = new Baseline(ImageUtils.readImage(baselineFile));
+        List<CompletableFuture<ResembleAnalysisResults>> futures = new ArrayList<>(candidateFiles.size());
+        for (int i = 0; i < candidateFiles.size(); i++) {
+            File candidateFile = candidateFiles.get(i);
+            futures.add(notify(i, CompletableFuture.supplyAsync(() -> {
+                try {
+                    return analyse(baseline, ImageUtils.readImage(candidateFile));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }, executor), listener));
+        }
+        return futures;
+    }
+
+    private CompletableFuture<ResembleAnalysisResults> submit(int index, Baseline baseline,
+            BufferedImage candidate, ResembleBatchListener listener) {
+        return notify(index, CompletableFuture.supplyAsync(() -> analyse(baseline, candidate), executor), listener);
+    }
+
+    private CompletableFuture<ResembleAnalysisResults> notify(int index,
+            CompletableFuture<ResembleAnalysisResults> future, ResembleBatchListener listener) {
+        if (listener == null) {
+            return future;
+        }
+        return future.whenComplete((results, error) -> {
+            // failure of supplyAsync is wrapped, listener receives exception thrown by the comparison
+            Throwable cause = (error instanceof CompletionException && error.getCause() != null) ?
+                    error.getCause() : error;
+            try {
+                listener.analysisFinished(index, results, cause);
+            } catch (RuntimeException ex) {
+                log.warn("Batch listener failed for index {}", index, ex);
+            }
+        });
+    }
+
+    private ResembleAnalysisResults analyse(Baseline baseline, BufferedImage candidate) {
+        return analysis.analyseImages(baseline.getImage(), baseline.getPackedImage(), candidate, null);
+    }
+
+    /**
+     * Baseline image with packed pixels prepared on first use.
+     */
+    private class Baseline {
+
+        private final BufferedImage image;
+        private PackedImage packedImage;
+
+        Baseline(BufferedImage image) {
+            this.image = image;
+        }
+
+        BufferedImage getImage() {
+            return image;
+        }
+
+        synchronized PackedImage getPackedImage() {
+            if (packedImage == null && options.getEngine() != AnalysisEngine.PIXEL) {
+                ImageUtils.checkImageType(image, "baseline");
+                packedImage = ImageUtils.toPackedImage(image);
+            }
+            return packedImage;
+        }
+    }
+}
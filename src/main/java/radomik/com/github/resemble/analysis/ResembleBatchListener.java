@@ -0,0 +1,19 @@
+package radomik.com.github.resemble.analysis;
+
+/**
+ * Receives results of {@link ResembleBatchAnalysis} as soon as each comparison finishes.
+ */
+public interface ResembleBatchListener {
+
+    /**
+     * Called after comparison has finished, usually by the executor thread which ran it. When comparison finishes
+     * before the listener is registered then it is called by the thread which submitted the batch. Calls for
+     * different comparisons may be concurrent.
+     *
+     * @param index index of the pair (or candidate) in the batch
+     * @param results analysis results or <code>null</code> when comparison failed
+     * @param error exception thrown by the comparison (not wrapped in
+     * {@link java.util.concurrent.CompletionException}) or <code>null</code> when comparison succeeded
+     */
+    void analysisFinished(int index, ResembleAnalysisResults results, Throwable error);
+}
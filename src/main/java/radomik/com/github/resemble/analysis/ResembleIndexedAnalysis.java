@@ -0,0 +1,155 @@
+package radomik.com.github.resemble.analysis;
+
+import radomik.com.github.resemble.index.BaselineIndex;
+import radomik.com.github.resemble.index.BaselineSignature;
+import radomik.com.github.resemble.utils.ImageRegionReader;
+import radomik.com.github.resemble.utils.ImageUtils;
+import radomik.com.github.resemble.utils.PackedImage;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares candidate images against baseline images whose signatures are stored in {@link BaselineIndex}.
+ * <p>
+ * Tiles of candidate image are hashed and compared with tile hashes of baseline first. When all tiles match then
+ * images are equal and baseline image file is not read (unless output image has to be rendered). Otherwise only the
+ * region covering different tiles is read from baseline image file and the rest of baseline is taken from candidate,
+ * so results are the same as of {@link ResembleAnalysis#analyseImages} as long as baseline image file was not modified
+ * after it was indexed. {@link AnalysisEngine#PACKED} engine compares pixels of different tiles only.
+ */
+public class ResembleIndexedAnalysis {
+
+    private static final Logger log = LoggerFactory.getLogger(ResembleIndexedAnalysis.class);
+    private final ResembleAnalysisOptions options;
+    private final ResembleAnalysis analysis;
+    private final BaselineIndex index;
+
+    /**
+     * Create indexed analysis.
+     *
+     * @param options analysis options
+     * @param index index of baseline signatures
+     */
+    public ResembleIndexedAnalysis(ResembleAnalysisOptions options, BaselineIndex index) {
+        this.options = options;
+        this.analysis = new ResembleAnalysis(options);
+        this.index = index;
+    }
+
+    /**
+     * Compare baseline image against candidate image. When baseline is not found in index then whole baseline image
+     * file is read.
+     *
+     * @param key key of baseline in index
+     * @param baselineFile baseline (first) image file
+     * @param candidate candidate (second) image
+     * @return analysis results
+     * @throws IOException on error reading baseline image file
+     * @throws IllegalArgumentException when image dimensions are not matching and scaling is not enabled
+     */
+    public ResembleAnalysisResults analyseImage(String key, File baselineFile, BufferedImage candidate)
+            throws IOException {
+        Instant startTime = Instant.now();
+        BaselineSignature signature = index.getSignature(key);
+        if (signature == null) {
+            log.debug("Baseline '{}' not found in index {}", key, index);
+            return analysis.analyseImages(ImageUtils.readImage(baselineFile), candidate);
+        }
+        int width = signature.getWidth();
+        int height = signature.getHeight();
+        if (options.isScaleToSameSize() && (width != candidate.getWidth() || height != candidate.getHeight())) {
+            log.debug("Baseline '{}' is scaled, signature is not used", key);
+            return analysis.analyseImages(ImageUtils.readImage(baselineFile), candidate);
+        }
+        ImageUtils.checkImageType(candidate, "candidate");
+        ImageUtils.checkImageMatch(width, height, "baseline", candidate.getWidth(), candidate.getHeight(),
+                "candidate");
+
+        PackedImage packedCandidate = ImageUtils.toPackedImage(candidate);
+        List<Rectangle> tiles = signature.getDifferentTiles(
+                BaselineSignature.computeTileHashes(packedCandidate, signature.getTileSize()));
+        if (tiles.isEmpty() && options.getOutputMode() != OutputMode.FULL) {
+            DiffBounds diffBounds = new DiffBounds();
+            diffBounds.setTop(height);
+            diffBounds.setLeft(width);
+            diffBounds.setBottom(0);
+            diffBounds.setRight(0);
+            ResembleAnalysisResults results = new ResembleAnalysisResults(null, width, height, 0, diffBounds, false,
+                    startTime);
+            if (options.isComputeDiffRegions()) {
+                results = results.withDiffRegions(Collections.emptyList());
+            }
+            return options.isKeepMismatchMask() ? results.withMismatchMask(new MismatchMask(width, height)) : results;
+        }
+        BufferedImage baseline = readBaseline(baselineFile, packedCandidate, tiles);
+        if (baseline == null) {
+            return analysis.analyseImages(ImageUtils.readImage(baselineFile), null, candidate, packedCandidate);
+        }
+        return analysis.analyseImages(baseline, null, candidate, packedCandidate, createTileMask(signature, tiles));
+    }
+
+    /**
+     * Mark different tiles, other tiles of baseline were copied from candidate.
+     */
+    private static TileMask createTileMask(BaselineSignature signature, List<Rectangle> tiles) {
+        int tileSize = signature.getTileSize();
+        TileMask mask = new TileMask(tileSize, signature.getTileColumns(), signature.getTileRows());
+        for (Rectangle tile : tiles) {
+            mask.setDifferent(tile.x / tileSize, tile.y / tileSize);
+        }
+        return mask;
+    }
+
+    /**
+     * Read different tiles of baseline, other pixels are copied from candidate.
+     *
+     * @return baseline image or <code>null</code> when baseline image type does not store ARGB values exactly
+     */
+    private static BufferedImage readBaseline(File baselineFile, PackedImage candidate, List<Rectangle> tiles)
+            throws IOException {
+        try (ImageRegionReader reader = new ImageRegionReader(baselineFile)) {
+            ImageUtils.checkImageMatch(reader.getWidth(), reader.getHeight(), "baseline",
+                    candidate.getWidth(), candidate.getHeight(), "candidate");
+            BufferedImage baseline = reader.createEmptyImage(reader.getWidth(), reader.getHeight());
+            if (!isExactRGB(baseline)) {
+                return null;
+            }
+            ImageUtils.writePackedImage(candidate, baseline);
+            if (tiles.isEmpty()) {
+                return baseline;
+            }
+            Rectangle region = new Rectangle(tiles.get(0));
+            for (Rectangle tile : tiles) {
+                region.add(tile);
+            }
+            BufferedImage regionImg = reader.readRegion(region.x, region.y, region.width, region.height);
+            for (Rectangle tile : tiles) {
+                int[] rgb = regionImg.getRGB(tile.x - region.x, tile.y - region.y, tile.width, tile.height, null, 0,
+                        tile.width);
+                baseline.setRGB(tile.x, tile.y, tile.width, tile.height, rgb, 0, tile.width);
+            }
+            log.debug("Read {} different tiles in region {} of baseline '{}'", tiles.size(), region, baselineFile);
+            return baseline;
+        }
+    }
+
+    private static boolean isExactRGB(BufferedImage img) { // ARGB values of pixels are stored without conversion
+        switch (img.getType()) {
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR:
+            case BufferedImage.TYPE_3BYTE_BGR:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package radomik.com.github.resemble.analysis;
+
+import radomik.com.github.resemble.utils.ImageFileSource;
+import radomik.com.github.resemble.utils.ImageUtils;
+import radomik.com.github.resemble.utils.PackedImage;
+import radomik.com.github.resemble.utils.PixelSink;
+import radomik.com.github.resemble.utils.PixelSource;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Compares image files strip by strip, so memory used depends on image width and strip height but not on image
+ * height. PNG files are decoded in a single pass, row by row ({@link ImageFileSource#open(File)}).
+ * <p>
+ * Every strip is read with one additional row above and below (when available) for antialiasing detection, so results
+ * are the same as of {@link ResembleAnalysis#analyseImages} with {@link AnalysisEngine#PACKED} engine. Output image is
+ * passed strip by strip to {@link ResembleStripListener}, its parser data (when computed) is available in results.
+ * <p>
+ * Images given as {@link PixelSource} (e.g. raw RGBA bytes or off-heap images) are compared in the same way, using
+ * strip buffers which are allocated once per analysis.
+ */
+public class ResembleStreamAnalysis {
+
+    private final ResembleAnalysisOptions options;
+
+    public ResembleStreamAnalysis(ResembleAnalysisOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Compare image files. Files are opened with {@link ImageFileSource#open(File)}, so PNG files are decoded in a
+     * single pass. Other formats are read by regions, which for formats decoded sequentially (e.g. JPEG) takes
+     * O(height<sup>2</sup> / strip height) time. Analysis stops when mismatch limit set in options is exceeded.
+     *
+     * @param file1 first image file
+     * @param file2 second image file
+     * @param listener listener receiving output image strips or <code>null</code> when output is not needed
+     * @return analysis results (without output image)
+     * @throws IOException on error reading image files or writing output
+     * @throws IllegalArgumentException when image dimensions are not matching
+     * @see ResembleAnalysisOptions#setStripHeight(int)
+     */
+    public ResembleAnalysisResults analyseFiles(File file1, File file2, ResembleStripListener listener)
+            throws IOException {
+        try (ImageFileSource img1 = ImageFileSource.open(file1);
+                ImageFileSource img2 = ImageFileSource.open(file2)) {
+            return analyseImages(img1, img2, (listener != null) ? new StripListenerSink(listener, img1) : null,
+                    getEmptyPixel(img1));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Compare image files, writing output image to a pixel sink. Files are read as by
+     * {@link #analyseFiles(File, File, ResembleStripListener)}, PNG files are decoded scanline by scanline directly
+     * into strip buffers just before they are compared, without building images, so memory used depends on image
+     * width and strip height only (strip height 1 keeps just the compared row and its neighbours).
+     *
+     * @param file1 first image file
+     * @param file2 second image file
+     * @param imgOut output image (of the same size) or <code>null</code> when output is not needed
+     * @return analysis results (without output image)
+     * @throws IOException on error reading image files
+     * @throws IllegalArgumentException when image dimensions are not matching
+     * @see ResembleAnalysisOptions#setStripHeight(int)
+     */
+    public ResembleAnalysisResults analysePngFiles(File file1, File file2, PixelSink imgOut) throws IOException {
+        try (ImageFileSource img1 = ImageFileSource.open(file1);
+                ImageFileSource img2 = ImageFileSource.open(file2)) {
+            return analyseImages(img1, img2, imgOut, getEmptyPixel(img1));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Compare images given as pixel sources, without <code>java.awt</code>. When both sources (and the output sink)
+     * share packed pixels ({@link PixelSource#getPackedImage()}), they are compared in place as by
+     * {@link ResembleAnalysis#analyseImages} with {@link AnalysisEngine#PACKED} engine, otherwise strip by strip, so
+     * heap used depends on image width and strip height only. Analysis stops when mismatch limit set in options is
+     * exceeded.
+     *
+     * @param img1 first image
+     * @param img2 second image
+     * @param imgOut output image (of the same size) or <code>null</code> when output is not needed, only analysed
+     * rows are written
+     * @return analysis results (without output image)
+     * @throws IllegalArgumentException when image dimensions are not matching
+     * @see ResembleAnalysisOptions#setStripHeight(int)
+     */
+    public ResembleAnalysisResults analyseImages(PixelSource img1, PixelSource img2, PixelSink imgOut) {
+        return analyseImages(img1, img2, imgOut, 0);
+    }
+
+    /**
+     * Pixels skipped in output strips are set to <code>emptyPixel</code>, as in empty output image of
+     * {@link ResembleAnalysis} (opaque black for image types without alpha).
+     */
+    private ResembleAnalysisResults analyseImages(PixelSource img1, PixelSource img2, PixelSink imgOut,
+            int emptyPixel) {
+        Instant startTime = Instant.now();
+        int width = img1.getWidth();
+        int height = img1.getHeight();
+        checkImageMatch(width, height, "img1", img2.getWidth(), img2.getHeight(), "img2");
+        if (imgOut != null) {
+            checkImageMatch(width, height, "img1", imgOut.getWidth(), imgOut.getHeight(), "imgOut");
+        }
+
+        int mismatchLimit = ResembleAnalysis.getMismatchLimit(options, width, height);
+        MismatchBudget budget = (mismatchLimit != Integer.MAX_VALUE) ? new MismatchBudget(mismatchLimit) : null;
+        MismatchMask mismatchMask = ResembleAnalysis.createMismatchMask(options, width, height);
+        PackedImage packed1 = img1.getPackedImage();
+        PackedImage packed2 = img2.getPackedImage();
+        PackedImage packedOut = (imgOut != null) ? imgOut.getPackedImage() : null;
+        PackedAnalysis analysis;
+        if (packed1 != null && packed2 != null && (imgOut == null || packedOut != null)) {
+            analysis = PackedAnalysisTask.analyse(options, width, height, budget, mismatchMask, packed1, packed2,
+                    packedOut, 0, height, 0, null);
+        } else {
+            analysis = analyseStrips(img1, img2, imgOut, emptyPixel, budget, mismatchMask);
+        }
+        return ResembleAnalysis.withMismatchMask(options, ResembleAnalysis.withParserData(
+                new ResembleAnalysisResults(null, width, height, analysis.getMismatchCount(),
+                        analysis.getDiffBounds(), budget != null && budget.isExceeded(), startTime),
+                analysis.getParserAccumulator1(), analysis.getParserAccumulator2(),
+                (imgOut != null) ? analysis.getOutputParserAccumulator() : null), mismatchMask);
+    }
+
+    private PackedAnalysis analyseStrips(PixelSource img1, PixelSource img2, PixelSink imgOut, int emptyPixel,
+            MismatchBudget budget, MismatchMask mismatchMask) {
+        int width = img1.getWidth();
+        int height = img1.getHeight();
+        PackedAnalysis analysis = new PackedAnalysis(options, width, height, null, null);
+        int stripHeight = Math.max(1, options.getStripHeight());
+        int bufferHeight = Math.min(height, stripHeight + 2);
+        int[] buffer1 = new int[width * bufferHeight];
+        int[] buffer2 = new int[width * bufferHeight];
+        int[] bufferOut = (imgOut != null) ? new int[width * bufferHeight] : null;
+
+        for (int y = 0; y < height && (budget == null || !budget.isExceeded()); y += stripHeight) {
+            int rowCount = Math.min(stripHeight, height - y);
+            int readFrom = Math.max(0, y - 1);
+            int readTo = Math.min(height, y + rowCount + 1);
+            PackedImage strip1 = new PackedImage(buffer1, 0, width, width, readTo - readFrom);
+            PackedImage strip2 = new PackedImage(buffer2, 0, width, width, readTo - readFrom);
+            PackedImage stripOut = (bufferOut != null) ?
+                    new PackedImage(bufferOut, 0, width, width, readTo - readFrom) : null;
+            img1.getRows(readFrom, strip1);
+            img2.getRows(readFrom, strip2);
+            if (stripOut != null) { // rows and columns skipped in large images are not written by the analysis
+                Arrays.fill(bufferOut, stripOut.indexOf(0, y - readFrom), stripOut.indexOf(0, y - readFrom + rowCount),
+                        emptyPixel);
+            }
+
+            analysis.merge(PackedAnalysisTask.analyse(options, width, height, budget, mismatchMask,
+                    strip1, strip2, stripOut, y - readFrom, y - readFrom + rowCount, readFrom, null));
+
+            if (stripOut != null) {
+                imgOut.setRows(y, new PackedImage(bufferOut, stripOut.indexOf(0, y - readFrom), width, width,
+                        rowCount));
+            }
+        }
+        return analysis;
+    }
+
+    /**
+     * Passes output rows to {@link ResembleStripListener} as images of {@link ImageUtils#IMAGE_TYPE}.
+     */
+    private static final class StripListenerSink implements PixelSink {
+
+        private final ResembleStripListener listener;
+        private final int width;
+        private final int height;
+        private final int imageType;
+
+        StripListenerSink(ResembleStripListener listener, ImageFileSource img) {
+            this.listener = listener;
+            this.width = img.getWidth();
+            this.height = img.getHeight();
+            this.imageType = img.hasAlpha() ? ImageUtils.IMAGE_TYPE : BufferedImage.TYPE_INT_RGB;
+        }
+
+        @Override
+        public void setRows(int y, PackedImage src) {
+            BufferedImage strip = new BufferedImage(width, src.getHeight(), imageType);
+            ImageUtils.writePackedImage(src, strip);
+            try {
+                listener.stripAnalysed(strip, y);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+    }
+
+    private static int getEmptyPixel(ImageFileSource img) {
+        return img.hasAlpha() ? 0 : 0xFF000000;
+    }
+
+    /**
+     * Check image dimensions, same as {@link ImageUtils#checkImageMatch(int, int, String, int, int, String)} but
+     * without loading <code>java.awt</code> classes.
+     */
+    private static void checkImageMatch(int width1, int height1, String imgName1, int width2, int height2,
+            String imgName2) {
+        if (width1 != width2 || height1 != height2) {
+            throw new IllegalArgumentException(String.format("Size mismatch (%s.{w,h}={%d,%d} and %s.{w,h}={%d,%d})",
+                    imgName1, width1, height1, imgName2, width2, height2));
+        }
+    }
+}
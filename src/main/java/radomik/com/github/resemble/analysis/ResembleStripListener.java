@@ -0,0 +1,21 @@
+package radomik.com.github.resemble.analysis;
+
+import radomik.com.github.resemble.utils.ImageUtils;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Receives output image strips of {@link ResembleStreamAnalysis}.
+ */
+public interface ResembleStripListener {
+
+    /**
+     * Called after strip of rows is analysed, strips are passed top to bottom.
+     *
+     * @param outputStrip output image of analysed rows of type {@link ImageUtils#IMAGE_TYPE}, or
+     * {@link BufferedImage#TYPE_INT_RGB} when the first image has no alpha (valid only until this method returns)
+     * @param y first row of the strip in the output image
+     * @throws IOException on error writing output strip
+     */
+    void stripAnalysed(BufferedImage outputStrip, int y) throws IOException;
+}
@@ -0,0 +1,218 @@
+package radomik.com.github.resemble.analysis;
+
+import radomik.com.github.resemble.utils.PackedImage;
+import java.util.SplittableRandom;
+
+/**
+ * Estimate of mismatch percentage from a stratified random sample of pixels.
+ * <p>
+ * Image is divided into square tiles (strata) of about {@link #SAMPLES_PER_TILE} samples each and samples are
+ * allocated to tiles in proportion to their area. Every sampled pixel is compared with {@link PackedAnalysis}, using
+ * the same rules as full analysis. Tile estimates are weighted by tile area. Confidence interval is the Wilson score
+ * interval for the effective sample size of the stratified estimate, limited to the actual sample size, so it is
+ * never narrower than the interval of a simple random sample. Pixels of a tile are sampled without replacement
+ * from a fixed seed, so the same images always give the same results.
+ */
+final class SampledAnalysis {
+
+    /**
+     * Average number of samples in a tile.
+     */
+    static final int SAMPLES_PER_TILE = 16;
+    private static final long SEED = 0x5DEECE66DL;
+
+    private final PackedAnalysis analysis;
+    private final long pixelCount;
+    private final double confidence;
+    private long sampleCount;
+    private double estimate; // sum of tile area * tile mismatch ratio
+    private double variance; // sum of tile area^2 * variance of tile mismatch ratio
+
+    private SampledAnalysis(ResembleAnalysisOptions options, int width, int height) {
+        this.analysis = new PackedAnalysis(options, width, height, null, null);
+        this.pixelCount = (long) width * height;
+        this.confidence = options.getSamplingConfidence();
+    }
+
+    /**
+     * Compare random sample of pixels of the images.
+     *
+     * @param options analysis options, see {@link ResembleAnalysisOptions#getSamplingBudget()}
+     * @param img1 first image
+     * @param img2 second image
+     * @param imgOut output image or <code>null</code> when not rendered, only sampled pixels are rendered
+     * @return sampled analysis
+     */
+    static SampledAnalysis analyse(ResembleAnalysisOptions options, PackedImage img1, PackedImage img2,
+            PackedImage imgOut) {
+        int width = img1.getWidth();
+        int height = img1.getHeight();
+        SampledAnalysis sampled = new SampledAnalysis(options, width, height);
+        double samplesPerPixel = Math.min(1.0, (double) options.getSamplingBudget() / sampled.pixelCount);
+        int tileSize = (int) Math.max(1, Math.min(Math.max(width, height),
+                Math.ceil(Math.sqrt(SAMPLES_PER_TILE / samplesPerPixel))));
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int yFrom = 0; yFrom < height; yFrom += tileSize) {
+            int yTo = Math.min(height, yFrom + tileSize);
+            for (int xFrom = 0; xFrom < width; xFrom += tileSize) {
+                int xTo = Math.min(width, xFrom + tileSize);
+                // planes of the tile and adjacent pixels, computed only for antialiasing checks
+                PixelPlanes planes1 = new PixelPlanes(img1, Math.max(0, xFrom - 1), Math.min(width, xTo + 1),
+                        Math.max(0, yFrom - 1), Math.min(height, yTo + 1));
+                PixelPlanes planes2 = new PixelPlanes(img2, Math.max(0, xFrom - 1), Math.min(width, xTo + 1),
+                        Math.max(0, yFrom - 1), Math.min(height, yTo + 1));
+                sampled.analyseTile(img1, img2, imgOut, planes1, planes2, xFrom, yFrom, xTo, yTo, samplesPerPixel,
+                        random);
+            }
+        }
+        return sampled;
+    }
+
+    private void analyseTile(PackedImage img1, PackedImage img2, PackedImage imgOut, PixelPlanes planes1,
+            PixelPlanes planes2, int xFrom, int yFrom, int xTo, int yTo, double samplesPerPixel,
+            SplittableRandom random) {
+        int tileWidth = xTo - xFrom;
+        int tileHeight = yTo - yFrom;
+        int area = tileWidth * tileHeight;
+        double expected = area * samplesPerPixel;
+        int count = (int) expected;
+        if (random.nextDouble() < expected - count) { // keeps total number of samples unbiased
+            count++;
+        }
+        count = Math.max(1, count);
+        int mismatches = 0;
+        if (count >= area) { // whole tile
+            for (int y = yFrom; y < yTo; y++) {
+                for (int x = xFrom; x < xTo; x++) {
+                    if (analysis.analysePixel(img1, img2, imgOut, planes1, planes2, x, y)) {
+                        mismatches++;
+                    }
+                }
+            }
+            count = area;
+        } else {
+            for (int index : samplePositions(area, count, random)) {
+                int x = xFrom + index % tileWidth;
+                int y = yFrom + index / tileWidth;
+                if (analysis.analysePixel(img1, img2, imgOut, planes1, planes2, x, y)) {
+                    mismatches++;
+                }
+            }
+            double ratio = (double) mismatches / count;
+            variance += (double) area * area * ratio * (1.0 - ratio) / count * (1.0 - (double) count / area);
+        }
+        sampleCount += count;
+        estimate += (double) area * mismatches / count;
+    }
+
+    /**
+     * Draw distinct positions in a tile (sampling without replacement, R. W. Floyd's algorithm), so the finite
+     * population correction of tile variance applies. Tiles have only about {@link #SAMPLES_PER_TILE} samples, so
+     * drawn positions are searched linearly.
+     *
+     * @param area number of pixels in the tile
+     * @param count number of positions (less than <code>area</code>)
+     * @param random random generator
+     * @return distinct positions [0, area)
+     */
+    static int[] samplePositions(int area, int count, SplittableRandom random) {
+        int[] positions = new int[count];
+        int drawn = 0;
+        for (int j = area - count; j < area; j++) {
+            int t = random.nextInt(j + 1);
+            for (int k = 0; k < drawn; k++) {
+                if (positions[k] == t) {
+                    t = j; // j was not drawn before
+                    break;
+                }
+            }
+            positions[drawn++] = t;
+        }
+        return positions;
+    }
+
+    /**
+     * Get estimated number of mismatching pixels.
+     *
+     * @return estimated mismatch count
+     */
+    int getMismatchCount() {
+        return (int) Math.round(estimate);
+    }
+
+    DiffBounds getDiffBounds() {
+        return analysis.getDiffBounds();
+    }
+
+    long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Get lower bound of mismatch percentage.
+     *
+     * @return lower bound [0 - 100]
+     */
+    double getMismatchPercentageLower() {
+        return getWilsonBound(-1.0) * 100.0;
+    }
+
+    /**
+     * Get upper bound of mismatch percentage.
+     *
+     * @return upper bound [0 - 100]
+     */
+    double getMismatchPercentageUpper() {
+        return getWilsonBound(1.0) * 100.0;
+    }
+
+    private double getWilsonBound(double sign) {
+        double p = estimate / pixelCount;
+        double pixelVariance = variance / ((double) pixelCount * pixelCount);
+        if (sampleCount >= pixelCount) {
+            return p; // every pixel was compared
+        }
+        // effective size of simple random sample with the same variance, but not more than actual sample size:
+        // variance of tiles in which no (or every) sampled pixel is mismatching is estimated as 0
+        double n = sampleCount;
+        if (pixelVariance > 0.0) {
+            n = Math.min(n, p * (1.0 - p) / pixelVariance);
+        }
+        double z = getNormalQuantile((1.0 + confidence) / 2.0);
+        double z2n = z * z / n;
+        double center = (p + z2n / 2.0) / (1.0 + z2n);
+        double halfWidth = z / (1.0 + z2n) * Math.sqrt(p * (1.0 - p) / n + z2n / (4.0 * n));
+        return Math.min(1.0, Math.max(0.0, center + sign * halfWidth));
+    }
+
+    /**
+     * Get quantile of standard normal distribution (rational approximation by P. J. Acklam, relative error
+     * below 1.2e-9).
+     *
+     * @param probability probability (0 - 1)
+     * @return <code>z</code> such that <code>P(Z &lt; z) = probability</code>
+     */
+    static double getNormalQuantile(double probability) {
+        final double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+            1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        final double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+            6.680131188771972e+01, -1.328068155288572e+01};
+        final double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+            -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        final double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+            3.754408661907416e+00};
+        final double low = 0.02425;
+        if (probability < low) {
+            double q = Math.sqrt(-2.0 * Math.log(probability));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5]) /
+                    ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1.0);
+        }
+        if (probability > 1.0 - low) {
+            return -getNormalQuantile(1.0 - probability);
+        }
+        double q = probability - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q /
+                (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1.0);
+    }
+}
@@ -0,0 +1,61 @@
+package radomik.com.github.resemble.analysis;
+
+/**
+ * Square tiles of an image marked as different, tiles at right and bottom edge may be smaller than tile size.
+ * Pixels of tiles which are not marked are equal in both images.
+ */
+final class TileMask {
+
+    private final int tileSize;
+    private final int columns;
+    private final int rows;
+    private final boolean[] different;
+    private int differentCount = 0;
+
+    /**
+     * Create mask with no tile marked.
+     *
+     * @param tileSize tile width and height
+     * @param columns number of tile columns
+     * @param rows number of tile rows
+     */
+    TileMask(int tileSize, int columns, int rows) {
+        this.tileSize = tileSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.different = new boolean[columns * rows];
+    }
+
+    @Override
+    public String toString() {
+        return "TileMask{" + "tileSize=" + tileSize + ", columns=" + columns + ", rows=" + rows +
+                ", differentCount=" + differentCount + '}';
+    }
+
+    void setDifferent(int column, int row) {
+        if (!different[row * columns + column]) {
+            different[row * columns + column] = true;
+            differentCount++;
+        }
+    }
+
+    boolean isDifferent(int column, int row) {
+        return different[row * columns + column];
+    }
+
+    int getTileSize() {
+        return tileSize;
+    }
+
+    int getColumns() {
+        return columns;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    int getDifferentCount() {
+        return differentCount;
+    }
+}
@@ -0,0 +1,147 @@
+package radomik.com.github.resemble.index;
+
+import radomik.com.github.resemble.parser.ResembleParserData;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of baseline image signatures stored in a file and read through memory mapping.
+ * <p>
+ * Only keys are read when index is opened, signatures are read from mapped file on lookup, so opening an index of
+ * many baselines is cheap and lookups do not decode any image. Index file is written by
+ * {@link BaselineIndexWriter}. Index is thread safe. Index file must not be larger than 2 GB.
+ * <p>
+ * File format (big endian): header <code>{int magic, int version, int entryCount}</code> followed by entries
+ * <code>{int keyLength, byte[keyLength] key (UTF-8), int width, int height, int tileSize, double[7] parserData,
+ * int tileCount, long[tileCount] tileHashes}</code>.
+ */
+public class BaselineIndex implements Closeable {
+
+    static final int MAGIC = 0x52424958; // "RBIX"
+    static final int VERSION = 1;
+    static final int ENTRY_COUNT_POSITION = 8;
+
+    private final File file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final Map<String, Integer> entryPositions;
+
+    /**
+     * Open index file.
+     *
+     * @param file index file
+     * @throws IOException on error reading the file or when it is not a valid index file
+     */
+    public BaselineIndex(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Index file '" + file + "' is too large");
+            }
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            this.entryPositions = readEntryPositions();
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BaselineIndex{" + "file=" + file + ", entryCount=" + entryPositions.size() + '}';
+    }
+
+    /**
+     * Check if index contains signature of baseline.
+     *
+     * @param key baseline key
+     * @return true when index contains the key
+     */
+    public boolean contains(String key) {
+        return entryPositions.containsKey(key);
+    }
+
+    /**
+     * Get signature of baseline.
+     *
+     * @param key baseline key
+     * @return baseline signature or <code>null</code> when index does not contain the key
+     */
+    public BaselineSignature getSignature(String key) {
+        Integer position = entryPositions.get(key);
+        if (position == null) {
+            return null;
+        }
+        ByteBuffer entry = buffer.duplicate(); // independent position for concurrent lookups
+        setPosition(entry, position);
+        int width = entry.getInt();
+        int height = entry.getInt();
+        int tileSize = entry.getInt();
+        ResembleParserData parserData = ResembleParserData.valueOf(entry.getDouble(), entry.getDouble(),
+                entry.getDouble(), entry.getDouble(), entry.getDouble(), entry.getDouble(), entry.getDouble());
+        long[] tileHashes = new long[entry.getInt()];
+        entry.asLongBuffer().get(tileHashes);
+        return new BaselineSignature(width, height, tileSize, tileHashes, parserData);
+    }
+
+    /**
+     * Get keys of all baselines in index.
+     *
+     * @return unmodifiable set of keys
+     */
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(entryPositions.keySet());
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private Map<String, Integer> readEntryPositions() throws IOException {
+        ByteBuffer entry = buffer.duplicate();
+        try {
+            if (entry.getInt() != MAGIC || entry.getInt() != VERSION) {
+                throw new IOException("File '" + file + "' is not a baseline index file of version " + VERSION);
+            }
+            int entryCount = entry.getInt();
+            Map<String, Integer> positions = new HashMap<>(entryCount * 4 / 3 + 1);
+            byte[] keyBytes = new byte[0];
+            for (int i = 0; i < entryCount; i++) {
+                int keyLength = entry.getInt();
+                if (keyBytes.length < keyLength) {
+                    keyBytes = new byte[keyLength];
+                }
+                entry.get(keyBytes, 0, keyLength);
+                positions.put(new String(keyBytes, 0, keyLength, StandardCharsets.UTF_8), entry.position());
+                // skip {width, height, tileSize}, parserData and tileHashes
+                setPosition(entry, entry.position() + 3 * Integer.BYTES + 7 * Double.BYTES);
+                int tileCount = entry.getInt();
+                setPosition(entry, entry.position() + tileCount * Long.BYTES);
+            }
+            return positions;
+        } catch (BufferUnderflowException | IllegalArgumentException ex) {
+            throw new IOException("Baseline index file '" + file + "' is truncated", ex);
+        }
+    }
+
+    private static void setPosition(Buffer buffer, int position) {
+        buffer.position(position); // called on Buffer, ByteBuffer.position(int) does not exist on Java 8
+    }
+}
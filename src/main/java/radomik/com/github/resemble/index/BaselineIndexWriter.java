@@ -0,0 +1,120 @@
+package radomik.com.github.resemble.index;
+
+import radomik.com.github.resemble.parser.ResembleParserData;
+import radomik.com.github.resemble.utils.ImageUtils;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Writes baseline signatures to an index file read by {@link BaselineIndex}. Existing file is overwritten.
+ */
+public class BaselineIndexWriter implements Closeable {
+
+    private final File file;
+    private final int tileSize;
+    private final RandomAccessFile output;
+    private final DataOutputStream out;
+    private final Set<String> keys = new HashSet<>();
+
+    /**
+     * Create index file.
+     *
+     * @param file index file
+     * @param tileSize tile width and height of computed signatures
+     * @throws IOException on error writing the file
+     */
+    public BaselineIndexWriter(File file, int tileSize) throws IOException {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Invalid tile size: " + tileSize);
+        }
+        this.file = file;
+        this.tileSize = tileSize;
+        this.output = new RandomAccessFile(file, "rw");
+        output.setLength(0);
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(output.getChannel())));
+        out.writeInt(BaselineIndex.MAGIC);
+        out.writeInt(BaselineIndex.VERSION);
+        out.writeInt(0); // entry count, written on close
+    }
+
+    /**
+     * Compute signature of baseline image and add it to index.
+     *
+     * @param key baseline key
+     * @param img baseline image
+     * @throws IOException on error writing the file
+     * @throws IllegalArgumentException when key was already added
+     */
+    public void add(String key, BufferedImage img) throws IOException {
+        add(key, BaselineSignature.compute(img, tileSize));
+    }
+
+    /**
+     * Read baseline image file, compute its signature and add it to index.
+     *
+     * @param key baseline key
+     * @param imageFile baseline image file
+     * @throws IOException on error reading image file or writing the index file
+     * @throws IllegalArgumentException when key was already added
+     */
+    public void add(String key, File imageFile) throws IOException {
+        add(key, ImageUtils.readImage(imageFile));
+    }
+
+    /**
+     * Add baseline signature to index.
+     *
+     * @param key baseline key
+     * @param signature baseline signature
+     * @throws IOException on error writing the file
+     * @throws IllegalArgumentException when key was already added
+     */
+    public void add(String key, BaselineSignature signature) throws IOException {
+        if (!keys.add(key)) {
+            throw new IllegalArgumentException("Duplicated baseline key '" + key + "'");
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(keyBytes.length);
+        out.write(keyBytes);
+        out.writeInt(signature.getWidth());
+        out.writeInt(signature.getHeight());
+        out.writeInt(signature.getTileSize());
+        ResembleParserData parserData = signature.getParserData();
+        out.writeDouble(parserData.getRed());
+        out.writeDouble(parserData.getGreen());
+        out.writeDouble(parserData.getBlue());
+        out.writeDouble(parserData.getAlpha());
+        out.writeDouble(parserData.getBrightness());
+        out.writeDouble(parserData.getWhite());
+        out.writeDouble(parserData.getBlack());
+        long[] tileHashes = signature.getTileHashes();
+        out.writeInt(tileHashes.length);
+        for (long tileHash : tileHashes) {
+            out.writeLong(tileHash);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.flush();
+            output.seek(BaselineIndex.ENTRY_COUNT_POSITION);
+            output.writeInt(keys.size());
+        } finally {
+            output.close();
+        }
+    }
+}
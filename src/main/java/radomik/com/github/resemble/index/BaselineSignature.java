@@ -0,0 +1,161 @@
+package radomik.com.github.resemble.index;
+
+import radomik.com.github.resemble.parser.ResembleParser;
+import radomik.com.github.resemble.parser.ResembleParserData;
+import radomik.com.github.resemble.utils.ImageUtils;
+import radomik.com.github.resemble.utils.PackedImage;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Signature of a baseline image: dimensions, content hashes of square tiles and {@link ResembleParserData}.
+ * <p>
+ * Tiles are stored row by row, tiles at right and bottom edge may be smaller than tile size. Hashes are 64-bit and
+ * not cryptographic, they are meant to detect changed tiles, not to resist deliberate collisions.
+ */
+public final class BaselineSignature {
+
+    private static final long HASH_OFFSET = 0xcbf29ce484222325L;
+    private static final long HASH_PRIME = 0x100000001b3L;
+
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final long[] tileHashes;
+    private final ResembleParserData parserData;
+
+    public BaselineSignature(int width, int height, int tileSize, long[] tileHashes, ResembleParserData parserData) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Invalid tile size: " + tileSize);
+        }
+        if (tileHashes.length != getTileCount(width, tileSize) * getTileCount(height, tileSize)) {
+            throw new IllegalArgumentException(String.format("Invalid number of tile hashes %d for {w,h,tileSize}=" +
+                    "{%d,%d,%d}", tileHashes.length, width, height, tileSize));
+        }
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.tileHashes = tileHashes;
+        this.parserData = parserData;
+    }
+
+    @Override
+    public String toString() {
+        return "BaselineSignature{" + "width=" + width + ", height=" + height + ", tileSize=" + tileSize +
+                ", tileCount=" + tileHashes.length + ", parserData=" + parserData + '}';
+    }
+
+    /**
+     * Compute signature of the image.
+     *
+     * @param img baseline image
+     * @param tileSize tile width and height
+     * @return image signature
+     */
+    public static BaselineSignature compute(BufferedImage img, int tileSize) {
+        ImageUtils.checkImageType(img, "img");
+        return new BaselineSignature(img.getWidth(), img.getHeight(), tileSize,
+                computeTileHashes(ImageUtils.toPackedImage(img), tileSize), ResembleParser.parse(img));
+    }
+
+    /**
+     * Compute content hashes of image tiles.
+     *
+     * @param img image
+     * @param tileSize tile width and height
+     * @return hashes of tiles stored row by row
+     */
+    public static long[] computeTileHashes(PackedImage img, int tileSize) {
+        int tileColumns = getTileCount(img.getWidth(), tileSize);
+        int tileRows = getTileCount(img.getHeight(), tileSize);
+        long[] hashes = new long[tileColumns * tileRows];
+        int[] data = img.getData();
+        for (int tileRow = 0; tileRow < tileRows; tileRow++) {
+            int yTo = Math.min(img.getHeight(), (tileRow + 1) * tileSize);
+            for (int tileColumn = 0; tileColumn < tileColumns; tileColumn++) {
+                int xFrom = tileColumn * tileSize;
+                int xTo = Math.min(img.getWidth(), xFrom + tileSize);
+                long hash = HASH_OFFSET;
+                for (int y = tileRow * tileSize; y < yTo; y++) {
+                    for (int i = img.indexOf(xFrom, y), iTo = i + xTo - xFrom; i < iTo; i++) {
+                        hash = (hash ^ data[i]) * HASH_PRIME;
+                    }
+                }
+                hashes[tileRow * tileColumns + tileColumn] = mix(hash);
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Get tiles whose hashes differ from hashes of candidate image tiles.
+     *
+     * @param candidateHashes hashes of candidate image computed with {@link #computeTileHashes} and tile size of
+     * this signature
+     * @return regions of different tiles, empty when all tiles match
+     * @throws IllegalArgumentException when number of hashes does not match
+     */
+    public List<Rectangle> getDifferentTiles(long[] candidateHashes) {
+        if (candidateHashes.length != tileHashes.length) {
+            throw new IllegalArgumentException(String.format("Number of tile hashes is not matching %d != %d",
+                    candidateHashes.length, tileHashes.length));
+        }
+        int tileColumns = getTileColumns();
+        List<Rectangle> tiles = new ArrayList<>();
+        for (int i = 0; i < tileHashes.length; i++) {
+            if (tileHashes[i] != candidateHashes[i]) {
+                int x = (i % tileColumns) * tileSize;
+                int y = (i / tileColumns) * tileSize;
+                tiles.add(new Rectangle(x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y)));
+            }
+        }
+        return tiles;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getTileColumns() {
+        return getTileCount(width, tileSize);
+    }
+
+    public int getTileRows() {
+        return getTileCount(height, tileSize);
+    }
+
+    /**
+     * Get tile hashes stored row by row. Returned array must not be modified.
+     *
+     * @return tile hashes
+     */
+    public long[] getTileHashes() {
+        return tileHashes;
+    }
+
+    public ResembleParserData getParserData() {
+        return parserData;
+    }
+
+    private static int getTileCount(int size, int tileSize) {
+        return (size + tileSize - 1) / tileSize;
+    }
+
+    private static long mix(long hash) { // spread bits of FNV-1a hash (finalizer of MurmurHash3)
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
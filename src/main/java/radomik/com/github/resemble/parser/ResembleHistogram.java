@@ -0,0 +1,113 @@
+package radomik.com.github.resemble.parser;
+
+/**
+ * Histograms of color channels, alpha and brightness of image pixels, {@link #BINS} bins each.
+ * <p>
+ * Histograms are collected by {@link ResembleParserAccumulator}, see {@link ResembleParser#histogram}. Histogram
+ * distance of two images is a cheap lower bound of the fraction of pixels which differ, so it may be used to reject
+ * obviously different images before analysis.
+ */
+public class ResembleHistogram {
+
+    /**
+     * Number of bins of every histogram, one per channel value.
+     */
+    public static final int BINS = 256;
+
+    private final long[] red = new long[BINS];
+    private final long[] green = new long[BINS];
+    private final long[] blue = new long[BINS];
+    private final long[] alpha = new long[BINS];
+    private final long[] brightness = new long[BINS];
+    private long pixelCount = 0;
+
+    @Override
+    public String toString() {
+        return "ResembleHistogram{" + "pixelCount=" + pixelCount + '}';
+    }
+
+    void add(int alphaValue, int redValue, int greenValue, int blueValue, int brightnessValue) {
+        alpha[alphaValue]++;
+        red[redValue]++;
+        green[greenValue]++;
+        blue[blueValue]++;
+        brightness[brightnessValue]++;
+        pixelCount++;
+    }
+
+    /**
+     * Add histograms of other pixels.
+     *
+     * @param other histogram
+     */
+    public void merge(ResembleHistogram other) {
+        for (int i = 0; i < BINS; i++) {
+            red[i] += other.red[i];
+            green[i] += other.green[i];
+            blue[i] += other.blue[i];
+            alpha[i] += other.alpha[i];
+            brightness[i] += other.brightness[i];
+        }
+        pixelCount += other.pixelCount;
+    }
+
+    /**
+     * Get distance of histograms: maximum over channels, alpha and brightness of total variation distance (half of
+     * L1 distance) of normalized histograms.
+     * <p>
+     * Distance <code>d</code> means that at least fraction <code>d</code> of pixels of images of the same size have
+     * different ARGB values. Distance 0 means that images are likely identical, but not that they are identical (e.g.
+     * pixels may be moved).
+     *
+     * @param other histogram of other image
+     * @return distance [0 - 1]
+     */
+    public double getDistance(ResembleHistogram other) {
+        if (pixelCount == 0 || other.pixelCount == 0) {
+            return (pixelCount == other.pixelCount) ? 0.0 : 1.0;
+        }
+        double distance = getDistance(red, other.red, other.pixelCount);
+        distance = Math.max(distance, getDistance(green, other.green, other.pixelCount));
+        distance = Math.max(distance, getDistance(blue, other.blue, other.pixelCount));
+        distance = Math.max(distance, getDistance(alpha, other.alpha, other.pixelCount));
+        return Math.max(distance, getDistance(brightness, other.brightness, other.pixelCount));
+    }
+
+    /**
+     * Get red channel histogram.
+     *
+     * @return pixel counts of red values [0-255] (copy)
+     */
+    public long[] getRed() {
+        return red.clone();
+    }
+
+    public long[] getGreen() {
+        return green.clone();
+    }
+
+    public long[] getBlue() {
+        return blue.clone();
+    }
+
+    public long[] getAlpha() {
+        return alpha.clone();
+    }
+
+    public long[] getBrightness() {
+        return brightness.clone();
+    }
+
+    public long getPixelCount() {
+        return pixelCount;
+    }
+
+    private double getDistance(long[] bins, long[] otherBins, long otherPixelCount) {
+        // sum |a/n - b/m| = sum |a*m - b*n| / (n*m), computed exactly while products fit in long
+        double sum = 0.0;
+        for (int i = 0; i < BINS; i++) {
+            sum += Math.abs((double) bins[i] * otherPixelCount - (double) otherBins[i] * pixelCount);
+        }
+        return sum / (2.0 * pixelCount * otherPixelCount);
+    }
+}
@@ -1,50 +1,234 @@
 package radomik.com.github.resemble.parser;
 
-import static radomik.com.github.resemble.pixel.utils.ColorUtils.*;
 import radomik.com.github.resemble.utils.ImageUtils;
+import radomik.com.github.resemble.utils.PackedImage;
+import radomik.com.github.resemble.utils.PixelSource;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadUpdateListener;
+import javax.imageio.stream.ImageInputStream;
 
 public abstract class ResembleParser {
 
+    /**
+     * Formats of which image readers report decoded rows correctly (e.g. BMP reader reports wrong rows of bottom-up
+     * images).
+     */
+    private static final Set<String> ROW_BY_ROW_FORMATS = new HashSet<>(Arrays.asList("png", "jpeg"));
+    /**
+     * Number of pixels of pixel source copied to heap at once.
+     */
+    private static final int STRIP_SIZE = 1 << 20;
+
+    /**
+     * Compute statistics of image pixels.
+     *
+     * @param sourceImageData image
+     * @return parser data
+     * @see ResembleParserAccumulator
+     */
     public static ResembleParserData parse(BufferedImage sourceImageData) {
         ImageUtils.checkImageType(sourceImageData, "sourceImageData");
-        int pixelCount = 0;
-        double redTotal = 0;
-        double greenTotal = 0;
-        double blueTotal = 0;
-        double alphaTotal = 0;
-        double brightnessTotal = 0;
-        double whiteTotal = 0;
-        double blackTotal = 0;
+        ResembleParserAccumulator accumulator = new ResembleParserAccumulator();
+        PackedImage img = ImageUtils.toPackedImage(sourceImageData);
+        accumulator.add(img, 0, img.getHeight());
+        return accumulator.getParserData();
+    }
+
+    /**
+     * Compute statistics of image pixels in parallel. Image is split into bands of rows, results are the same as of
+     * {@link #parse(java.awt.image.BufferedImage)}.
+     *
+     * @param sourceImageData image
+     * @param pool fork/join pool running the computation
+     * @return parser data
+     */
+    public static ResembleParserData parse(BufferedImage sourceImageData, ForkJoinPool pool) {
+        ImageUtils.checkImageType(sourceImageData, "sourceImageData");
+        PackedImage img = ImageUtils.toPackedImage(sourceImageData);
+        return pool.invoke(new ResembleParserTask(img, 0, img.getHeight(), false)).getParserData();
+    }
+
+    /**
+     * Compute histograms of image pixels.
+     *
+     * @param sourceImageData image
+     * @return image histograms
+     * @see ResembleHistogram#getDistance(ResembleHistogram)
+     */
+    public static ResembleHistogram histogram(BufferedImage sourceImageData) {
+        ImageUtils.checkImageType(sourceImageData, "sourceImageData");
+        ResembleParserAccumulator accumulator = new ResembleParserAccumulator(true);
+        PackedImage img = ImageUtils.toPackedImage(sourceImageData);
+        accumulator.add(img, 0, img.getHeight());
+        return accumulator.getHistogram();
+    }
+
+    /**
+     * Compute histograms of image pixels in parallel.
+     *
+     * @param sourceImageData image
+     * @param pool fork/join pool running the computation
+     * @return image histograms
+     * @see #histogram(java.awt.image.BufferedImage)
+     */
+    public static ResembleHistogram histogram(BufferedImage sourceImageData, ForkJoinPool pool) {
+        ImageUtils.checkImageType(sourceImageData, "sourceImageData");
+        PackedImage img = ImageUtils.toPackedImage(sourceImageData);
+        return pool.invoke(new ResembleParserTask(img, 0, img.getHeight(), true)).getHistogram();
+    }
+
+    /**
+     * Compute statistics of pixels of image given as pixel source (e.g. raw RGBA bytes or off-heap image). Pixels not
+     * shared as {@link PixelSource#getPackedImage()} are copied to heap strip by strip, so heap used does not depend
+     * on image height.
+     *
+     * @param sourceImageData image
+     * @return parser data
+     * @see #parse(java.awt.image.BufferedImage)
+     */
+    public static ResembleParserData parse(PixelSource sourceImageData) {
+        return accumulate(sourceImageData, false).getParserData();
+    }
+
+    /**
+     * Compute histograms of pixels of image given as pixel source.
+     *
+     * @param sourceImageData image
+     * @return image histograms
+     * @see #histogram(java.awt.image.BufferedImage)
+     */
+    public static ResembleHistogram histogram(PixelSource sourceImageData) {
+        return accumulate(sourceImageData, true).getHistogram();
+    }
+
+    private static ResembleParserAccumulator accumulate(PixelSource sourceImageData, boolean collectHistogram) {
+        ResembleParserAccumulator accumulator = new ResembleParserAccumulator(collectHistogram);
+        PackedImage img = sourceImageData.getPackedImage();
+        if (img != null) {
+            accumulator.add(img, 0, img.getHeight());
+            return accumulator;
+        }
         int width = sourceImageData.getWidth();
         int height = sourceImageData.getHeight();
+        int stripHeight = Math.max(1, Math.min(height, STRIP_SIZE / Math.max(1, width)));
+        int[] buffer = new int[width * stripHeight];
+        for (int y = 0; y < height; y += stripHeight) {
+            PackedImage strip = new PackedImage(buffer, 0, width, width, Math.min(stripHeight, height - y));
+            sourceImageData.getRows(y, strip);
+            accumulator.add(strip, 0, strip.getHeight());
+        }
+        return accumulator;
+    }
+
+    /**
+     * Get histogram distance of images, see {@link ResembleHistogram#getDistance(ResembleHistogram)}.
+     *
+     * @param img1 first image
+     * @param img2 second image
+     * @return distance [0 - 1]
+     */
+    public static double getHistogramDistance(BufferedImage img1, BufferedImage img2) {
+        return histogram(img1).getDistance(histogram(img2));
+    }
 
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                int argb = getARGB(sourceImageData, x, y);
-                int alpha = getARGB_Alpha(argb);
-                int red = getARGB_Red(argb);
-                int green = getARGB_Green(argb);
-                int blue = getARGB_Blue(argb);
-                int brightness = getBrightness(red, green, blue);
-
-                if (red == green && red == blue && alpha > 0) {
-                    if (red == 0) {
-                        blackTotal++;
-                    } else if (red == 255) {
-                        whiteTotal++;
-                    }
+    /**
+     * Read image file and add its pixels to accumulator. Rows are added as soon as they are decoded (while they are
+     * still in cache) when image reader reports them row by row (PNG, JPEG), otherwise (e.g. for interlaced images)
+     * pixels are added after the image is decoded. Image is read as by {@link ImageIO#read(java.io.File)}.
+     *
+     * @param file image file
+     * @param accumulator accumulator receiving image pixels
+     * @return image read from file
+     * @throws IOException on error reading image file or when image format is not supported
+     */
+    public static BufferedImage readImage(File file, ResembleParserAccumulator accumulator) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                throw new IOException("Could not open image file '" + file + "'");
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported format of image file '" + file + "'");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                RowListener listener = new RowListener(accumulator.getHistogram() != null);
+                listener.rowByRow = ROW_BY_ROW_FORMATS.contains(reader.getFormatName().toLowerCase(Locale.ROOT));
+                reader.addIIOReadUpdateListener(listener);
+                BufferedImage img = reader.read(0);
+                long pixelCount = (long) img.getWidth() * img.getHeight();
+                if (listener.rowByRow && listener.accumulator.getPixelCount() == pixelCount) {
+                    accumulator.merge(listener.accumulator);
+                } else {
+                    accumulator.add(img, 0, 0, img.getWidth(), img.getHeight());
                 }
+                return img;
+            } catch (IOException ex) {
+                throw new IOException("Could not read image file '" + file + "'", ex);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Collects rows of image as they are decoded.
+     */
+    private static class RowListener implements IIOReadUpdateListener {
 
-                pixelCount++;
-                redTotal += (double) red / 255.0 * 100.0;
-                greenTotal += (double) green / 255.0 * 100.0;
-                blueTotal += (double) blue / 255.0 * 100.0;
-                alphaTotal += (255.0 - (double) alpha) / 255.0 * 100.0;
-                brightnessTotal += (double) brightness / 255.0 * 100.0;
+        private final ResembleParserAccumulator accumulator;
+        private boolean rowByRow;
+
+        RowListener(boolean collectHistogram) {
+            this.accumulator = new ResembleParserAccumulator(collectHistogram);
+        }
+
+        @Override
+        public void passStarted(ImageReader source, BufferedImage theImage, int pass, int minPass, int maxPass,
+                int minX, int minY, int periodX, int periodY, int[] bands) {
+            if (pass > 0) {
+                rowByRow = false; // progressive passes update the same pixels
             }
         }
-        return new ResembleParserData(redTotal, greenTotal, blueTotal, alphaTotal,
-                brightnessTotal, whiteTotal, blackTotal, pixelCount);
+
+        @Override
+        public void imageUpdate(ImageReader source, BufferedImage theImage, int minX, int minY, int width,
+                int height, int periodX, int periodY, int[] bands) {
+            if (periodX != 1 || periodY != 1) {
+                rowByRow = false;
+            }
+            if (rowByRow) {
+                accumulator.add(theImage, minX, minY, width, height);
+            }
+        }
+
+        @Override
+        public void passComplete(ImageReader source, BufferedImage theImage) {
+        }
+
+        @Override
+        public void thumbnailPassStarted(ImageReader source, BufferedImage theThumbnail, int pass, int minPass,
+                int maxPass, int minX, int minY, int periodX, int periodY, int[] bands) {
+        }
+
+        @Override
+        public void thumbnailUpdate(ImageReader source, BufferedImage theThumbnail, int minX, int minY, int width,
+                int height, int periodX, int periodY, int[] bands) {
+        }
+
+        @Override
+        public void thumbnailPassComplete(ImageReader source, BufferedImage theThumbnail) {
+        }
     }
 }
@@ -0,0 +1,178 @@
+package radomik.com.github.resemble.parser;
+
+import static radomik.com.github.resemble.pixel.utils.ColorUtils.*;
+import radomik.com.github.resemble.utils.PackedImage;
+import java.awt.image.BufferedImage;
+
+/**
+ * Collects statistics of pixels for {@link ResembleParserData}.
+ * <p>
+ * Channel totals are kept as exact <code>long</code> sums, so pixels may be added in any order and in chunks (e.g.
+ * image rows as they are decoded, see {@link ResembleParser#readImage}), and accumulators of separate parts of an
+ * image may be merged, the results are always the same. Percentages are rounded down exactly from the totals; the
+ * original per-pixel <code>double</code> sums gave the same values except that in rare cases an exactly integer
+ * percentage was rounded down by 1. Accumulator is not thread safe, use one accumulator per thread and
+ * {@link #merge(ResembleParserAccumulator)} them.
+ */
+public class ResembleParserAccumulator {
+
+    private long pixelCount = 0;
+    private long redTotal = 0;
+    private long greenTotal = 0;
+    private long blueTotal = 0;
+    private long alphaTotal = 0; // sum of (255 - alpha)
+    private long brightnessTotal = 0;
+    private long whiteTotal = 0;
+    private long blackTotal = 0;
+    private final ResembleHistogram histogram;
+
+    /**
+     * Create accumulator of parser data only.
+     */
+    public ResembleParserAccumulator() {
+        this(false);
+    }
+
+    /**
+     * Create accumulator.
+     *
+     * @param collectHistogram true to collect {@link ResembleHistogram} too
+     */
+    public ResembleParserAccumulator(boolean collectHistogram) {
+        this.histogram = collectHistogram ? new ResembleHistogram() : null;
+    }
+
+    @Override
+    public String toString() {
+        return "ResembleParserAccumulator{" + "pixelCount=" + pixelCount + '}';
+    }
+
+    /**
+     * Add pixel.
+     *
+     * @param argb ARGB (0xAARRGGBB) value
+     */
+    public void add(int argb) {
+        int alpha = getARGB_Alpha(argb);
+        int red = getARGB_Red(argb);
+        int green = getARGB_Green(argb);
+        int blue = getARGB_Blue(argb);
+
+        if (red == green && red == blue && alpha > 0) {
+            if (red == 0) {
+                blackTotal++;
+            } else if (red == 255) {
+                whiteTotal++;
+            }
+        }
+
+        pixelCount++;
+        redTotal += red;
+        greenTotal += green;
+        blueTotal += blue;
+        alphaTotal += 255 - alpha;
+        int brightness = getBrightness(red, green, blue);
+        brightnessTotal += brightness;
+        if (histogram != null) {
+            histogram.add(alpha, red, green, blue, brightness);
+        }
+    }
+
+    /**
+     * Add pixels <code>data[offset, offset + length)</code>.
+     *
+     * @param data ARGB (0xAARRGGBB) values
+     * @param offset first index
+     * @param length number of pixels
+     */
+    public void add(int[] data, int offset, int length) {
+        for (int i = offset, iTo = offset + length; i < iTo; i++) {
+            add(data[i]);
+        }
+    }
+
+    /**
+     * Add pixels of image rows [yFrom, yTo).
+     *
+     * @param img image
+     * @param yFrom first row (inclusive)
+     * @param yTo last row (exclusive)
+     */
+    public void add(PackedImage img, int yFrom, int yTo) {
+        for (int y = yFrom; y < yTo; y++) {
+            add(img.getData(), img.indexOf(0, y), img.getWidth());
+        }
+    }
+
+    /**
+     * Add pixels of image region.
+     *
+     * @param img image
+     * @param x left edge of the region
+     * @param y top edge of the region
+     * @param width region width
+     * @param height region height
+     */
+    public void add(BufferedImage img, int x, int y, int width, int height) {
+        int[] row = new int[width];
+        for (int yi = y; yi < y + height; yi++) {
+            add(img.getRGB(x, yi, width, 1, row, 0, width), 0, width);
+        }
+    }
+
+    /**
+     * Add pixels collected by other accumulator.
+     *
+     * @param other accumulator
+     * @throws IllegalArgumentException when only one of the accumulators collects histogram
+     */
+    public void merge(ResembleParserAccumulator other) {
+        if ((histogram != null) != (other.histogram != null)) {
+            throw new IllegalArgumentException("Could not merge accumulators with and without histogram");
+        }
+        pixelCount += other.pixelCount;
+        redTotal += other.redTotal;
+        greenTotal += other.greenTotal;
+        blueTotal += other.blueTotal;
+        alphaTotal += other.alphaTotal;
+        brightnessTotal += other.brightnessTotal;
+        whiteTotal += other.whiteTotal;
+        blackTotal += other.blackTotal;
+        if (histogram != null) {
+            histogram.merge(other.histogram);
+        }
+    }
+
+    /**
+     * Get statistics of added pixels. Percentages of color channels, alpha and brightness are rounded down exactly
+     * from the totals.
+     *
+     * @return parser data
+     */
+    public ResembleParserData getParserData() {
+        return ResembleParserData.valueOf(getPercentage(redTotal), getPercentage(greenTotal),
+                getPercentage(blueTotal), getPercentage(alphaTotal), getPercentage(brightnessTotal),
+                Math.floor((double) whiteTotal / pixelCount * 100.0),
+                Math.floor((double) blackTotal / pixelCount * 100.0));
+    }
+
+    /**
+     * Get histogram of added pixels.
+     *
+     * @return histogram or <code>null</code> when it is not collected
+     */
+    public ResembleHistogram getHistogram() {
+        return histogram;
+    }
+
+    public long getPixelCount() {
+        return pixelCount;
+    }
+
+    private double getPercentage(long total) { // floor(total / 255 * 100 / pixelCount)
+        if (pixelCount == 0) {
+            return Double.NaN;
+        }
+        return (double) (total * 100 / (255 * pixelCount));
+    }
+}
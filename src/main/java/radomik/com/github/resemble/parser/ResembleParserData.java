@@ -20,6 +20,25 @@ public class ResembleParserData {
         this.black = Math.floor(blackTotal / pixelCount * 100.0);
     }
 
+    private ResembleParserData(double red, double green, double blue, double alpha, double brightness, double white, double black) {
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+        this.alpha = alpha;
+        this.brightness = brightness;
+        this.white = white;
+        this.black = black;
+    }
+
+    /**
+     * Create data from already computed statistics, e.g. stored in a file.
+     *
+     * @return parser data
+     */
+    public static ResembleParserData valueOf(double red, double green, double blue, double alpha, double brightness, double white, double black) {
+        return new ResembleParserData(red, green, blue, alpha, brightness, white, black);
+    }
+
     @Override
     public String toString() {
         return "ResembleParserData{" + "red=" + red + ", green=" + green + ", blue=" + blue + ", alpha=" + alpha + ", brightness=" + brightness + ", white=" + white + ", black=" + black + '}';
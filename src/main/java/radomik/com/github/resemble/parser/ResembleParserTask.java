@@ -0,0 +1,53 @@
+package radomik.com.github.resemble.parser;
+
+import radomik.com.github.resemble.utils.PackedImage;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join task collecting parser statistics of a band of image rows.
+ * <p>
+ * Bands higher than {@link #BAND_HEIGHT} are split in halves, accumulators of bands are merged when joining.
+ */
+class ResembleParserTask extends RecursiveTask<ResembleParserAccumulator> {
+
+    /**
+     * Maximum number of rows processed by single task.
+     */
+    static final int BAND_HEIGHT = 64;
+
+    private final PackedImage img;
+    private final int yFrom;
+    private final int yTo;
+    private final boolean collectHistogram;
+
+    /**
+     * Create task.
+     *
+     * @param img image
+     * @param yFrom first row (inclusive)
+     * @param yTo last row (exclusive)
+     * @param collectHistogram true to collect histogram too
+     */
+    ResembleParserTask(PackedImage img, int yFrom, int yTo, boolean collectHistogram) {
+        this.img = img;
+        this.yFrom = yFrom;
+        this.yTo = yTo;
+        this.collectHistogram = collectHistogram;
+    }
+
+    @Override
+    protected ResembleParserAccumulator compute() {
+        if (yTo - yFrom <= BAND_HEIGHT) {
+            ResembleParserAccumulator accumulator = new ResembleParserAccumulator(collectHistogram);
+            accumulator.add(img, yFrom, yTo);
+            return accumulator;
+        }
+        int yMid = (yFrom + yTo) >>> 1;
+        ResembleParserTask top = new ResembleParserTask(img, yFrom, yMid, collectHistogram);
+        ResembleParserTask bottom = new ResembleParserTask(img, yMid, yTo, collectHistogram);
+        top.fork();
+        ResembleParserAccumulator accumulator = bottom.compute();
+        accumulator.merge(top.join());
+        return accumulator;
+    }
+}
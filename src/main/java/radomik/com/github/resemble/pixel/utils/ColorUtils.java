@@ -5,8 +5,36 @@ import java.awt.image.BufferedImage;
 
 public abstract class ColorUtils {
 
+    /**
+     * Number of levels of quantized hue, see {@link #getQuantizedHue(int, int, int)}.
+     */
+    public static final int HUE_LEVELS = 256;
+
+    /**
+     * Channel values divided by 255.0, the same doubles as computed by division.
+     */
+    private static final double[] UNIT_VALUES = new double[256];
+
+    /**
+     * <code>floor(2^32 / (6 * d)) + 1</code> for chroma <code>d</code> [1-255], used to divide by <code>6 * d</code>
+     * with a multiplication.
+     */
+    private static final long[] HUE_RECIPROCALS = new long[256];
+
+    static {
+        for (int v = 0; v < 256; v++) {
+            UNIT_VALUES[v] = (double) v / 255.0;
+        }
+        for (int d = 1; d < 256; d++) {
+            HUE_RECIPROCALS[d] = (1L << 32) / (6 * d) + 1;
+        }
+    }
+
     /**
      * Get brightness (grayscale value) from RGB.
+     * <p>
+     * Computed as <code>(int) (0.3 * r + 0.59 * g + 0.11 * b)</code>. Integer arithmetic gives the same result unless
+     * the exact value is an integer, in which case the double formula (which may round it down) is evaluated.
      *
      * @param r red channel value (0-255)
      * @param g green channel value (0-255)
@@ -14,7 +42,12 @@ public abstract class ColorUtils {
      * @return brightnss value (0-255)
      */
     public static int getBrightness(int r, int g, int b) {
-        return (int) (0.3 * r + 0.59 * g + 0.11 * b);
+        int k = 30 * r + 59 * g + 11 * b;
+        int brightness = k / 100;
+        if (brightness * 100 == k && k != 0) {
+            return (int) (0.3 * r + 0.59 * g + 0.11 * b);
+        }
+        return brightness;
     }
 
     /**
@@ -32,22 +65,51 @@ public abstract class ColorUtils {
         if (max == min) {
             return 0.0; // achromatic
         } else {
-            double d = (double) max / 255.0 - (double) min / 255.0;
+            final double[] unit = UNIT_VALUES;
+            double d = unit[max] - unit[min];
             double h;
             if (r == max) {
-                h = (((double) g / 255.0) - ((double) b / 255.0)) / d;
+                h = (unit[g] - unit[b]) / d;
                 if (g < b) {
                     h += 6.0;
                 }
             } else if (g == max) {
-                h = (((double) b / 255.0) - ((double) r / 255.0)) / d + 2.0;
+                h = (unit[b] - unit[r]) / d + 2.0;
             } else {
-                h = (((double) r / 255.0) - ((double) g / 255.0)) / d + 4.0;
+                h = (unit[r] - unit[g]) / d + 4.0;
             }
             return h / 6.0;
         }
     }
 
+    /**
+     * Get hue quantized to {@link #HUE_LEVELS} levels, computed with integer arithmetic. Result is
+     * <code>floor(hue * HUE_LEVELS)</code> of the exact hue, so it may differ by one level from
+     * <code>(int) (getHue(r, g, b) * HUE_LEVELS)</code> due to rounding of {@link #getHue(int, int, int)}.
+     *
+     * @param r red channel value (0-255)
+     * @param g green channel value (0-255)
+     * @param b blue channel value (0-255)
+     * @return quantized hue [0 - {@link #HUE_LEVELS})
+     */
+    public static int getQuantizedHue(int r, int g, int b) {
+        int max = Math.max(Math.max(r, g), b);
+        int min = Math.min(Math.min(r, g), b);
+        if (max == min) {
+            return 0; // achromatic
+        }
+        int d = max - min;
+        int h; // hue * 6 * d, in range [0, 6 * d)
+        if (r == max) {
+            h = (g < b) ? g - b + 6 * d : g - b;
+        } else if (g == max) {
+            h = b - r + 2 * d;
+        } else {
+            h = r - g + 4 * d;
+        }
+        return (int) ((h * HUE_LEVELS * HUE_RECIPROCALS[d]) >>> 32);
+    }
+
     /**
      * Get color distance on RGB channels.
      * <p>
@@ -63,6 +125,20 @@ public abstract class ColorUtils {
                 Math.abs(a.getBlue().getValue() - b.getBlue().getValue())) / 3;
     }
 
+    /**
+     * Get color distance on RGB channels of packed pixels.
+     *
+     * @param argb1 first pixel ARGB (0xAARRGGBB) value
+     * @param argb2 second pixel ARGB (0xAARRGGBB) value
+     * @return RGB color distance in range [0-255]
+     * @see #colorsDistanceRGB(radomik.com.github.resemble.pixel.Pixel, radomik.com.github.resemble.pixel.Pixel)
+     */
+    public static int colorsDistanceRGB(int argb1, int argb2) {
+        return (Math.abs(getARGB_Red(argb1) - getARGB_Red(argb2)) +
+                Math.abs(getARGB_Green(argb1) - getARGB_Green(argb2)) +
+                Math.abs(getARGB_Blue(argb1) - getARGB_Blue(argb2))) / 3;
+    }
+
     /**
      * Get ARGB (0xAARRGGBB) from image at (x,y).
      *
@@ -169,4 +245,37 @@ public abstract class ColorUtils {
     public static int getARGB_Blue(int argb) {
         return argb & 0x000000FF;
     }
+
+    /**
+     * Get brightness (grayscale value) from ARGB (0xAARRGGBB).
+     *
+     * @param argb ARGB (0xAARRGGBB) value
+     * @return brightness value [0-255]
+     * @see #getBrightness(int, int, int)
+     */
+    public static int getARGB_Brightness(int argb) {
+        return getBrightness(getARGB_Red(argb), getARGB_Green(argb), getARGB_Blue(argb));
+    }
+
+    /**
+     * Get hue value from ARGB (0xAARRGGBB).
+     *
+     * @param argb ARGB (0xAARRGGBB) value
+     * @return hue value
+     * @see #getHue(int, int, int)
+     */
+    public static double getARGB_Hue(int argb) {
+        return getHue(getARGB_Red(argb), getARGB_Green(argb), getARGB_Blue(argb));
+    }
+
+    /**
+     * Get quantized hue value from ARGB (0xAARRGGBB).
+     *
+     * @param argb ARGB (0xAARRGGBB) value
+     * @return quantized hue [0 - {@link #HUE_LEVELS})
+     * @see #getQuantizedHue(int, int, int)
+     */
+    public static int getARGB_QuantizedHue(int argb) {
+        return getQuantizedHue(getARGB_Red(argb), getARGB_Green(argb), getARGB_Blue(argb));
+    }
 }
@@ -0,0 +1,97 @@
+package radomik.com.github.resemble.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Pixels of 4 bytes stored in a {@link ByteBuffer} (heap, direct or memory mapped), converted to ARGB only when
+ * rows are read.
+ * <p>
+ * Pixel (x,y) is stored at buffer index <code>offset + y * scanlineStride + 4 * x</code> in the order of
+ * {@link PixelLayout}, regardless of the byte order set in the buffer.
+ */
+public final class ByteBufferPixelBuffer implements PixelSource, PixelSink {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int scanlineStride;
+    private final int width;
+    private final int height;
+    private final PixelLayout layout;
+
+    /**
+     * Create buffer.
+     *
+     * @param buffer pixel bytes (shared, not copied; position and limit are ignored)
+     * @param offset index of first byte of pixel (0,0)
+     * @param scanlineStride number of bytes between rows
+     * @param width image width
+     * @param height image height
+     * @param layout order of channel bytes
+     */
+    public ByteBufferPixelBuffer(ByteBuffer buffer, int offset, int scanlineStride, int width, int height,
+            PixelLayout layout) {
+        if (width < 0 || height < 0 || scanlineStride < 4L * width) {
+            throw new IllegalArgumentException(String.format("Invalid geometry {w,h,stride}={%d,%d,%d}",
+                    width, height, scanlineStride));
+        }
+        if (height > 0 &&
+                (offset < 0 || offset + (long) (height - 1) * scanlineStride + 4L * width > buffer.capacity())) {
+            throw new IllegalArgumentException(String.format("Buffer of capacity %d too small for " +
+                    "{offset,w,h,stride}={%d,%d,%d,%d}", buffer.capacity(), offset, width, height, scanlineStride));
+        }
+        this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        this.offset = offset;
+        this.scanlineStride = scanlineStride;
+        this.width = width;
+        this.height = height;
+        this.layout = layout;
+    }
+
+    @Override
+    public String toString() {
+        return "ByteBufferPixelBuffer{" + "offset=" + offset + ", scanlineStride=" + scanlineStride +
+                ", width=" + width + ", height=" + height + ", layout=" + layout + '}';
+    }
+
+    @Override
+    public void getRows(int y, PackedImage dest) {
+        int[] destData = dest.getData();
+        for (int row = 0; row < dest.getHeight(); row++) {
+            int i = offset + (y + row) * scanlineStride;
+            for (int x = 0, d = dest.indexOf(0, row); x < dest.getWidth(); x++, d++, i += 4) {
+                destData[d] = layout.toARGB(buffer.getInt(i));
+            }
+        }
+    }
+
+    @Override
+    public void setRows(int y, PackedImage src) {
+        int[] srcData = src.getData();
+        for (int row = 0; row < src.getHeight(); row++) {
+            int i = offset + (y + row) * scanlineStride;
+            for (int x = 0, s = src.indexOf(0, row); x < src.getWidth(); x++, s++, i += 4) {
+                buffer.putInt(i, layout.fromARGB(srcData[s]));
+            }
+        }
+    }
+
+    @Override
+    public PackedImage getPackedImage() {
+        return null;
+    }
+
+    public PixelLayout getLayout() {
+        return layout;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,111 @@
+package radomik.com.github.resemble.utils;
+
+/**
+ * Pixels of 4 bytes stored in a <code>byte[]</code>, converted to ARGB only when rows are read.
+ * <p>
+ * Pixel (x,y) is stored at <code>data[offset + y * scanlineStride + 4 * x]</code> in the order of {@link PixelLayout}.
+ */
+public final class BytePixelBuffer implements PixelSource, PixelSink {
+
+    private final byte[] data;
+    private final int offset;
+    private final int scanlineStride;
+    private final int width;
+    private final int height;
+    private final PixelLayout layout;
+
+    /**
+     * Create buffer.
+     *
+     * @param data pixel bytes (shared, not copied)
+     * @param offset index of first byte of pixel (0,0)
+     * @param scanlineStride number of bytes between rows
+     * @param width image width
+     * @param height image height
+     * @param layout order of channel bytes
+     */
+    public BytePixelBuffer(byte[] data, int offset, int scanlineStride, int width, int height, PixelLayout layout) {
+        if (width < 0 || height < 0 || scanlineStride < 4L * width) {
+            throw new IllegalArgumentException(String.format("Invalid geometry {w,h,stride}={%d,%d,%d}",
+                    width, height, scanlineStride));
+        }
+        if (height > 0 && (offset < 0 || offset + (long) (height - 1) * scanlineStride + 4L * width > data.length)) {
+            throw new IllegalArgumentException(String.format("Data of length %d too short for {offset,w,h,stride}=" +
+                    "{%d,%d,%d,%d}", data.length, offset, width, height, scanlineStride));
+        }
+        this.data = data;
+        this.offset = offset;
+        this.scanlineStride = scanlineStride;
+        this.width = width;
+        this.height = height;
+        this.layout = layout;
+    }
+
+    /**
+     * Create buffer of tightly packed rows.
+     *
+     * @param data pixel bytes (shared, not copied)
+     * @param width image width
+     * @param height image height
+     * @param layout order of channel bytes
+     */
+    public BytePixelBuffer(byte[] data, int width, int height, PixelLayout layout) {
+        this(data, 0, 4 * width, width, height, layout);
+    }
+
+    @Override
+    public String toString() {
+        return "BytePixelBuffer{" + "offset=" + offset + ", scanlineStride=" + scanlineStride +
+                ", width=" + width + ", height=" + height + ", layout=" + layout + '}';
+    }
+
+    @Override
+    public void getRows(int y, PackedImage dest) {
+        int[] destData = dest.getData();
+        for (int row = 0; row < dest.getHeight(); row++) {
+            int i = offset + (y + row) * scanlineStride;
+            for (int x = 0, d = dest.indexOf(0, row); x < dest.getWidth(); x++, d++, i += 4) {
+                destData[d] = layout.toARGB((data[i] << 24) | ((data[i + 1] & 0xFF) << 16) |
+                        ((data[i + 2] & 0xFF) << 8) | (data[i + 3] & 0xFF));
+            }
+        }
+    }
+
+    @Override
+    public void setRows(int y, PackedImage src) {
+        int[] srcData = src.getData();
+        for (int row = 0; row < src.getHeight(); row++) {
+            int i = offset + (y + row) * scanlineStride;
+            for (int x = 0, s = src.indexOf(0, row); x < src.getWidth(); x++, s++, i += 4) {
+                int bytes = layout.fromARGB(srcData[s]);
+                data[i] = (byte) (bytes >>> 24);
+                data[i + 1] = (byte) (bytes >>> 16);
+                data[i + 2] = (byte) (bytes >>> 8);
+                data[i + 3] = (byte) bytes;
+            }
+        }
+    }
+
+    @Override
+    public PackedImage getPackedImage() {
+        return null;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public PixelLayout getLayout() {
+        return layout;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,38 @@
+package radomik.com.github.resemble.utils;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Explicit release of direct buffers.
+ * <p>
+ * NOTE: Library is packaged as multi-release jar, on Java 9+ this class is replaced with version using
+ * <code>sun.misc.Unsafe.invokeCleaner</code> (see <code>src/main/java9</code>). Both versions must have the same API.
+ */
+abstract class DirectBuffers {
+
+    /**
+     * Free native memory of direct buffer. When it is not possible, memory is freed after the buffer is garbage
+     * collected. Buffer (and buffers sharing its memory) must not be accessed afterwards.
+     *
+     * @param buffer direct buffer (not a slice or duplicate)
+     * @return true when memory was freed
+     */
+    static boolean release(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            return false;
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner == null) {
+                return false;
+            }
+            cleaner.getClass().getMethod("clean").invoke(cleaner);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return false;
+        }
+    }
+}
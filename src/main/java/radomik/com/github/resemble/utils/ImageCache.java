@@ -0,0 +1,200 @@
+package radomik.com.github.resemble.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of decoded images with memory budget and least recently used eviction.
+ * <p>
+ * Images are keyed by file path and validated against file size and modification time, so a changed file is decoded
+ * again. Size of image is estimated from its raster data. Cached images are shared by all callers and must not be
+ * modified. Cache is thread safe.
+ *
+ * @see ImageUtils#setImageCache(ImageCache)
+ */
+public class ImageCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    /**
+     * Create cache.
+     *
+     * @param maxBytes memory budget in bytes
+     */
+    public ImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ImageCache{" + "maxBytes=" + maxBytes + ", bytes=" + bytes + ", entryCount=" + entries.size() +
+                ", hitCount=" + hitCount + ", missCount=" + missCount + ", evictionCount=" + evictionCount + '}';
+    }
+
+    /**
+     * Get cached image of the file.
+     *
+     * @param file image file
+     * @return cached image or <code>null</code> when image is not cached or file has changed
+     * @throws IOException on error reading file attributes
+     */
+    public BufferedImage get(File file) throws IOException {
+        return get(file, readAttributes(file));
+    }
+
+    /**
+     * Get cached image of the file with already read attributes. Attributes should be read before the file is decoded
+     * on cache miss and passed to {@link #put(File, BasicFileAttributes, BufferedImage)}, so an image decoded from a
+     * file which was changed meanwhile is not cached as the changed file.
+     *
+     * @param file image file
+     * @param attributes current attributes of the file, see {@link #readAttributes(File)}
+     * @return cached image or <code>null</code> when image is not cached or file has changed
+     */
+    public BufferedImage get(File file, BasicFileAttributes attributes) {
+        Path path = getPath(file);
+        synchronized (this) {
+            Entry entry = entries.get(path);
+            if (entry != null && entry.matches(attributes)) {
+                hitCount++;
+                return entry.image;
+            }
+            if (entry != null) {
+                remove(path);
+            }
+            missCount++;
+            return null;
+        }
+    }
+
+    /**
+     * Put decoded image of the file into cache. Least recently used images are evicted when memory budget is
+     * exceeded. Images larger than the budget are not cached.
+     *
+     * @param file image file
+     * @param attributes attributes of the file read before it was decoded
+     * @param image image decoded from the file
+     */
+    public void put(File file, BasicFileAttributes attributes, BufferedImage image) {
+        Path path = getPath(file);
+        Entry entry = new Entry(image, attributes, getImageBytes(image));
+        synchronized (this) {
+            remove(path);
+            if (entry.bytes > maxBytes) {
+                return;
+            }
+            entries.put(path, entry);
+            bytes += entry.bytes;
+            Iterator<Map.Entry<Path, Entry>> it = entries.entrySet().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                Entry eldest = it.next().getValue();
+                it.remove();
+                bytes -= eldest.bytes;
+                evictionCount++;
+            }
+        }
+    }
+
+    /**
+     * Read attributes of the file which validate cached images.
+     *
+     * @param file image file
+     * @return file attributes
+     * @throws IOException on error reading file attributes
+     */
+    public static BasicFileAttributes readAttributes(File file) throws IOException {
+        return Files.readAttributes(getPath(file), BasicFileAttributes.class);
+    }
+
+    /**
+     * Remove all images from cache. Counters are not reset.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Get estimated size of cached images.
+     *
+     * @return size in bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Get estimated size of image raster data.
+     *
+     * @param image an image
+     * @return size in bytes
+     */
+    public static long getImageBytes(BufferedImage image) {
+        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        return (long) dataBuffer.getSize() * dataBuffer.getNumBanks() *
+                DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8;
+    }
+
+    private void remove(Path path) {
+        Entry entry = entries.remove(path);
+        if (entry != null) {
+            bytes -= entry.bytes;
+        }
+    }
+
+    private static Path getPath(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+
+    private static class Entry {
+
+        private final BufferedImage image;
+        private final long fileSize;
+        private final long lastModified;
+        private final long bytes;
+
+        Entry(BufferedImage image, BasicFileAttributes attributes, long bytes) {
+            this.image = image;
+            this.fileSize = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+            this.bytes = bytes;
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return fileSize == attributes.size() && lastModified == attributes.lastModifiedTime().toMillis();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package radomik.com.github.resemble.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Pixels of an image file, read as {@link PixelSource} without decoding the whole image into memory.
+ */
+public interface ImageFileSource extends PixelSource, Closeable {
+
+    File getFile();
+
+    /**
+     * Check if the image is decoded with alpha channel.
+     *
+     * @return true when pixels may be transparent
+     */
+    boolean hasAlpha();
+
+    /**
+     * Open image file for reading strips of rows top to bottom (with up to {@link PngScanlineReader#CACHED_ROWS}
+     * rows of overlap). Non-interlaced PNG files are decoded in a single pass by {@link PngScanlineReader}, with
+     * colors as decoded by <code>javax.imageio</code>, other files are read by regions with
+     * {@link ImageRegionReader}.
+     *
+     * @param file image file
+     * @return image file source
+     * @throws IOException on error reading image file or when image format is not supported
+     */
+    static ImageFileSource open(File file) throws IOException {
+        if (PngScanlineReader.canRead(file)) {
+            return new PngScanlineReader(file, true);
+        }
+        return new ImageRegionReader(file);
+    }
+}
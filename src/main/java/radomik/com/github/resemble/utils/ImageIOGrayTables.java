@@ -0,0 +1,109 @@
+package radomik.com.github.resemble.utils;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import javax.imageio.ImageIO;
+
+/**
+ * Colors of gray PNG samples as decoded by <code>javax.imageio</code>, which converts them from linear gray.
+ * <p>
+ * Table of every sample value is decoded from a generated PNG image with the same bit depth and transparency, so it
+ * is exact for any Java version. Colors of gray with alpha do not depend on alpha, so they are decoded with opaque
+ * alpha. Tables are cached.
+ */
+abstract class ImageIOGrayTables {
+
+    private static final Map<String, int[]> TABLES = new ConcurrentHashMap<>();
+
+    /**
+     * Get ARGB colors of gray samples.
+     *
+     * @param bitDepth bit depth of samples
+     * @param alpha true for gray with alpha color type (colors are opaque)
+     * @param transparentGray gray sample of <code>tRNS</code> chunk or -1 when none
+     * @return colors indexed by sample value
+     * @throws IOException when generated image can not be decoded
+     */
+    static int[] get(int bitDepth, boolean alpha, int transparentGray) throws IOException {
+        String key = bitDepth + "," + alpha + "," + transparentGray;
+        int[] table = TABLES.get(key);
+        if (table == null) {
+            table = decode(bitDepth, alpha, transparentGray);
+            TABLES.put(key, table);
+        }
+        return table;
+    }
+
+    private static int[] decode(int bitDepth, boolean alpha, int transparentGray) throws IOException {
+        int sampleCount = 1 << bitDepth;
+        int width = Math.min(sampleCount, 256);
+        int height = sampleCount / width;
+        int bitsPerPixel = alpha ? 2 * bitDepth : bitDepth;
+        int rowBytes = (width * bitsPerPixel + 7) / 8;
+        byte[] raw = new byte[height * (rowBytes + 1)]; // filter type 0 (None) at the start of every row
+        for (int v = 0; v < sampleCount; v++) {
+            int rowStart = (v / width) * (rowBytes + 1) + 1;
+            int bit = (v % width) * bitsPerPixel;
+            writeBits(raw, rowStart, bit, bitDepth, v);
+            if (alpha) {
+                writeBits(raw, rowStart, bit + bitDepth, bitDepth, sampleCount - 1);
+            }
+        }
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(png);
+        out.writeLong(0x89504E470D0A1A0AL);
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerOut = new DataOutputStream(header);
+        headerOut.writeInt(width);
+        headerOut.writeInt(height);
+        headerOut.writeByte(bitDepth);
+        headerOut.writeByte(alpha ? 4 : 0);
+        headerOut.writeByte(0); // compression
+        headerOut.writeByte(0); // filter
+        headerOut.writeByte(0); // interlace
+        writeChunk(out, "IHDR", header.toByteArray());
+        if (transparentGray >= 0) {
+            writeChunk(out, "tRNS", new byte[]{(byte) (transparentGray >>> 8), (byte) transparentGray});
+        }
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(data)) {
+            deflater.write(raw);
+        }
+        writeChunk(out, "IDAT", data.toByteArray());
+        writeChunk(out, "IEND", new byte[0]);
+
+        BufferedImage img = ImageIO.read(new ByteArrayInputStream(png.toByteArray()));
+        if (img == null) {
+            throw new IOException("Could not decode gray image of bit depth " + bitDepth);
+        }
+        return img.getRGB(0, 0, width, height, null, 0, width);
+    }
+
+    private static void writeBits(byte[] raw, int rowStart, int bit, int bitCount, int value) {
+        for (int k = bitCount - 1; k >= 0; k--, bit++) {
+            if (((value >>> k) & 1) != 0) {
+                raw[rowStart + (bit >>> 3)] |= 0x80 >>> (bit & 7);
+            }
+        }
+    }
+
+    private static void writeChunk(DataOutputStream out, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        out.writeInt(data.length);
+        out.write(typeBytes);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+    }
+}
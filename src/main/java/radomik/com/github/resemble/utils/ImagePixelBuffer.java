@@ -0,0 +1,62 @@
+package radomik.com.github.resemble.utils;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Pixels of a {@link BufferedImage}. Images of {@link ImageUtils#IMAGE_TYPE} share their raster
+ * ({@link #getPackedImage()}), other images are converted when rows are read or written.
+ */
+public final class ImagePixelBuffer implements PixelSource, PixelSink {
+
+    private final BufferedImage image;
+    private final PackedImage packedImage;
+
+    public ImagePixelBuffer(BufferedImage image) {
+        this.image = image;
+        this.packedImage = ImageUtils.hasPackedRaster(image) ? ImageUtils.toPackedImage(image) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "ImagePixelBuffer{" + "image=" + image + '}';
+    }
+
+    @Override
+    public void getRows(int y, PackedImage dest) {
+        if (packedImage != null) {
+            packedImage.getRows(y, dest);
+        } else {
+            image.getRGB(0, y, dest.getWidth(), dest.getHeight(), dest.getData(), dest.getOffset(),
+                    dest.getScanlineStride());
+        }
+    }
+
+    @Override
+    public void setRows(int y, PackedImage src) {
+        if (packedImage != null) {
+            packedImage.setRows(y, src);
+        } else {
+            image.setRGB(0, y, src.getWidth(), src.getHeight(), src.getData(), src.getOffset(),
+                    src.getScanlineStride());
+        }
+    }
+
+    @Override
+    public PackedImage getPackedImage() {
+        return packedImage;
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    @Override
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return image.getHeight();
+    }
+}
@@ -0,0 +1,163 @@
+package radomik.com.github.resemble.utils;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Reads rectangular regions of an image file without decoding the whole image into memory.
+ * <p>
+ * Uses source region of {@link ImageReader}, so memory used depends on region size only. Note that some formats
+ * (e.g. PNG, JPEG) still have to be decoded sequentially from the first row up to the end of every region, so reading
+ * an image in strips takes O(height<sup>2</sup> / strip height) time. Use {@link ImageFileSource#open(File)} to read
+ * PNG files in a single pass.
+ * <p>
+ * As {@link PixelSource} rows may be read in any order.
+ */
+public class ImageRegionReader implements ImageFileSource {
+
+    private final File file;
+    private final ImageInputStream input;
+    private final ImageReader reader;
+    private final int width;
+    private final int height;
+    private final boolean alpha;
+
+    /**
+     * Open image file.
+     *
+     * @param file image file
+     * @throws IOException on error reading image file or when image format is not supported
+     */
+    public ImageRegionReader(File file) throws IOException {
+        this.file = file;
+        this.input = ImageIO.createImageInputStream(file);
+        if (input == null) {
+            throw new IOException("Could not open image file '" + file + "'");
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            input.close();
+            throw new IOException("Unsupported format of image file '" + file + "'");
+        }
+        this.reader = readers.next();
+        try {
+            reader.setInput(input, false, true);
+            this.width = reader.getWidth(0);
+            this.height = reader.getHeight(0);
+            this.alpha = reader.getImageTypes(0).next().getColorModel().hasAlpha();
+        } catch (IOException ex) {
+            close();
+            throw new IOException("Could not read image file '" + file + "'", ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ImageRegionReader{" + "file=" + file + ", width=" + width + ", height=" + height + '}';
+    }
+
+    /**
+     * Read region of the image.
+     *
+     * @param x left edge of the region
+     * @param y top edge of the region
+     * @param regionWidth region width
+     * @param regionHeight region height
+     * @return image of the region
+     * @throws IOException on error reading image file
+     */
+    public BufferedImage readRegion(int x, int y, int regionWidth, int regionHeight) throws IOException {
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(x, y, regionWidth, regionHeight));
+        try {
+            if (input.getFlushedPosition() == 0) {
+                // some readers of Java 8 (e.g. BMP) decode wrong pixels when read again, so reader state is reset
+                // unless the reader flushed the stream (then it seeks to its own positions)
+                input.seek(0);
+                reader.setInput(input, false, true);
+            }
+            return reader.read(0, param);
+        } catch (IOException ex) {
+            throw new IOException("Could not read region of image file '" + file + "'", ex);
+        }
+    }
+
+    /**
+     * Read rows [y, y + rowCount) of the image.
+     *
+     * @param y first row
+     * @param rowCount number of rows
+     * @return image of the rows
+     * @throws IOException on error reading image file
+     */
+    public BufferedImage readRows(int y, int rowCount) throws IOException {
+        return readRegion(0, y, width, rowCount);
+    }
+
+    /**
+     * Copy rows [y, y + dest.getHeight()) to <code>dest</code> of the image width.
+     *
+     * @param y first row
+     * @param dest destination pixels
+     * @throws UncheckedIOException on error reading image file
+     */
+    @Override
+    public void getRows(int y, PackedImage dest) {
+        try {
+            readRows(y, dest.getHeight()).getRGB(0, 0, dest.getWidth(), dest.getHeight(), dest.getData(),
+                    dest.getOffset(), dest.getScanlineStride());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Create empty image of the type which the image is decoded to.
+     *
+     * @param imageWidth image width
+     * @param imageHeight image height
+     * @return new empty image
+     * @throws IOException on error reading image file
+     */
+    public BufferedImage createEmptyImage(int imageWidth, int imageHeight) throws IOException {
+        try {
+            return reader.getImageTypes(0).next().createBufferedImage(imageWidth, imageHeight);
+        } catch (IOException ex) {
+            throw new IOException("Could not read image file '" + file + "'", ex);
+        }
+    }
+
+    @Override
+    public boolean hasAlpha() {
+        return alpha;
+    }
+
+    @Override
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.dispose();
+        input.close();
+    }
+}
@@ -0,0 +1,228 @@
+package radomik.com.github.resemble.utils;
+
+import static radomik.com.github.resemble.pixel.utils.ColorUtils.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Scales packed ARGB images with a separable filter.
+ * <p>
+ * Rows are resampled first and columns next, each axis with its own filter: area-average when the axis is shrunk
+ * and bilinear when it is enlarged. Weights are computed once per axis as fixed-point integers, so inner loops work on
+ * <code>int[]</code> only. Channels are filtered independently (alpha is not premultiplied). Rows of both passes are
+ * processed in parallel when fork/join pool is given.
+ */
+public abstract class ImageScaler {
+
+    static final int WEIGHT_BITS = 14;
+    static final int WEIGHT_ONE = 1 << WEIGHT_BITS;
+    private static final int WEIGHT_HALF = WEIGHT_ONE >> 1;
+
+    /**
+     * Scale image.
+     *
+     * @param img source image
+     * @param width width of scaled image
+     * @param height height of scaled image
+     * @param pool pool for parallel scaling or <code>null</code> to scale on calling thread
+     * @return new image of {@link ImageUtils#IMAGE_TYPE}
+     */
+    public static BufferedImage scale(BufferedImage img, int width, int height, ForkJoinPool pool) {
+        return scale(ImageUtils.toPackedImage(img), width, height, pool);
+    }
+
+    /**
+     * Scale packed pixels.
+     *
+     * @param src source pixels
+     * @param width width of scaled image
+     * @param height height of scaled image
+     * @param pool pool for parallel scaling or <code>null</code> to scale on calling thread
+     * @return new image of {@link ImageUtils#IMAGE_TYPE}
+     */
+    public static BufferedImage scale(PackedImage src, int width, int height, ForkJoinPool pool) {
+        BufferedImage dest = new BufferedImage(width, height, ImageUtils.IMAGE_TYPE);
+        scale(src, ImageUtils.toPackedImage(dest), pool);
+        return dest;
+    }
+
+    /**
+     * Scale packed pixels of <code>src</code> to the size of <code>dest</code>.
+     *
+     * @param src source pixels
+     * @param dest destination pixels
+     * @param pool pool for parallel scaling or <code>null</code> to scale on calling thread
+     */
+    public static void scale(PackedImage src, PackedImage dest, ForkJoinPool pool) {
+        PackedImage rowsScaled = dest;
+        if (src.getWidth() != dest.getWidth()) {
+            if (src.getHeight() != dest.getHeight()) {
+                rowsScaled = new PackedImage(dest.getWidth(), src.getHeight());
+            }
+            run(new ImageScalerTask(src, rowsScaled, Kernel.create(src.getWidth(), dest.getWidth()), true,
+                    0, rowsScaled.getHeight()), pool);
+        } else {
+            rowsScaled = src;
+        }
+        if (src.getHeight() != dest.getHeight()) {
+            run(new ImageScalerTask(rowsScaled, dest, Kernel.create(src.getHeight(), dest.getHeight()), false,
+                    0, dest.getHeight()), pool);
+        } else if (rowsScaled == src) { // same size
+            for (int y = 0; y < dest.getHeight(); y++) {
+                System.arraycopy(src.getData(), src.indexOf(0, y), dest.getData(), dest.indexOf(0, y),
+                        dest.getWidth());
+            }
+        }
+    }
+
+    private static void run(ImageScalerTask task, ForkJoinPool pool) {
+        if (pool != null) {
+            pool.invoke(task);
+        } else {
+            task.compute();
+        }
+    }
+
+    /**
+     * Resample row <code>y</code> of <code>src</code> into row <code>y</code> of <code>dest</code>.
+     */
+    static void scaleRow(PackedImage src, PackedImage dest, Kernel kernel, int y) {
+        int[] srcData = src.getData();
+        int[] destData = dest.getData();
+        int srcIndex = src.indexOf(0, y);
+        int destIndex = dest.indexOf(0, y);
+        for (int x = 0, width = dest.getWidth(); x < width; x++) {
+            int a = WEIGHT_HALF;
+            int r = WEIGHT_HALF;
+            int g = WEIGHT_HALF;
+            int b = WEIGHT_HALF;
+            int i = srcIndex + kernel.start[x];
+            for (int k = kernel.weightIndex[x], kTo = kernel.weightIndex[x + 1]; k < kTo; k++, i++) {
+                int w = kernel.weights[k];
+                int argb = srcData[i];
+                a += w * getARGB_Alpha(argb);
+                r += w * getARGB_Red(argb);
+                g += w * getARGB_Green(argb);
+                b += w * getARGB_Blue(argb);
+            }
+            destData[destIndex + x] = toARGB(a, r, g, b);
+        }
+    }
+
+    /**
+     * Resample columns of <code>src</code> into row <code>y</code> of <code>dest</code>.
+     *
+     * @param rowIndexes array for indexes of source rows (at least as long as number of filter taps)
+     */
+    static void scaleColumns(PackedImage src, PackedImage dest, Kernel kernel, int y, int[] rowIndexes) {
+        int kFrom = kernel.weightIndex[y];
+        int taps = kernel.weightIndex[y + 1] - kFrom;
+        for (int t = 0; t < taps; t++) {
+            rowIndexes[t] = src.indexOf(0, kernel.start[y] + t);
+        }
+        int[] srcData = src.getData();
+        int[] destData = dest.getData();
+        int destIndex = dest.indexOf(0, y);
+        for (int x = 0, width = dest.getWidth(); x < width; x++) {
+            int a = WEIGHT_HALF;
+            int r = WEIGHT_HALF;
+            int g = WEIGHT_HALF;
+            int b = WEIGHT_HALF;
+            for (int t = 0; t < taps; t++) {
+                int w = kernel.weights[kFrom + t];
+                int argb = srcData[rowIndexes[t] + x];
+                a += w * getARGB_Alpha(argb);
+                r += w * getARGB_Red(argb);
+                g += w * getARGB_Green(argb);
+                b += w * getARGB_Blue(argb);
+            }
+            destData[destIndex + x] = toARGB(a, r, g, b);
+        }
+    }
+
+    private static int toARGB(int a, int r, int g, int b) {
+        return ((a >> WEIGHT_BITS) << 24) | ((r >> WEIGHT_BITS) << 16) | ((g >> WEIGHT_BITS) << 8) |
+                (b >> WEIGHT_BITS);
+    }
+
+    /**
+     * Fixed-point filter weights of one axis. Destination sample <code>d</code> is the sum of source samples
+     * <code>start[d] + k</code> multiplied by <code>weights[weightIndex[d] + k]</code>, weights of every
+     * destination sample sum up to {@link #WEIGHT_ONE}.
+     */
+    static final class Kernel {
+
+        final int[] start;
+        final int[] weightIndex;
+        final int[] weights;
+        final int maxTaps;
+
+        private Kernel(int[] start, int[] weightIndex, int[] weights) {
+            this.start = start;
+            this.weightIndex = weightIndex;
+            this.weights = weights;
+            int taps = 0;
+            for (int d = 0; d + 1 < weightIndex.length; d++) {
+                taps = Math.max(taps, weightIndex[d + 1] - weightIndex[d]);
+            }
+            this.maxTaps = taps;
+        }
+
+        static Kernel create(int srcLength, int destLength) {
+            double scale = (double) srcLength / destLength;
+            int maxTaps = (scale > 1.0) ? (int) Math.ceil(scale) + 1 : 2;
+            int[] start = new int[destLength];
+            int[] weightIndex = new int[destLength + 1];
+            int[] weights = new int[destLength * maxTaps];
+            double[] taps = new double[maxTaps];
+            int k = 0;
+            for (int d = 0; d < destLength; d++) {
+                int first;
+                int count;
+                if (scale > 1.0) { // area average of [d * scale, (d + 1) * scale)
+                    double from = d * scale;
+                    double to = Math.min(srcLength, (d + 1) * scale);
+                    first = (int) from;
+                    count = Math.min(srcLength, (int) Math.ceil(to)) - first;
+                    for (int t = 0; t < count; t++) {
+                        taps[t] = Math.min(first + t + 1, to) - Math.max(first + t, from);
+                    }
+                } else { // bilinear between centers of neighbouring samples
+                    double pos = Math.min(srcLength - 1, Math.max(0.0, (d + 0.5) * scale - 0.5));
+                    first = (int) pos;
+                    double fraction = pos - first;
+                    count = (first + 1 < srcLength && fraction > 0.0) ? 2 : 1;
+                    taps[0] = 1.0 - fraction;
+                    taps[1] = fraction;
+                }
+                start[d] = first;
+                weightIndex[d] = k;
+                k += normalize(taps, count, weights, k);
+            }
+            weightIndex[destLength] = k;
+            return new Kernel(start, weightIndex, weights);
+        }
+
+        /**
+         * Store weights as fixed-point integers summing up exactly to {@link #WEIGHT_ONE}.
+         */
+        private static int normalize(double[] taps, int count, int[] weights, int offset) {
+            double total = 0.0;
+            for (int t = 0; t < count; t++) {
+                total += taps[t];
+            }
+            int sum = 0;
+            int largest = offset;
+            for (int t = 0; t < count; t++) {
+                int w = (int) Math.round(taps[t] / total * WEIGHT_ONE);
+                weights[offset + t] = w;
+                sum += w;
+                if (w > weights[largest]) {
+                    largest = offset + t;
+                }
+            }
+            weights[largest] += WEIGHT_ONE - sum;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package radomik.com.github.resemble.utils;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task resampling a band of destination rows with {@link ImageScaler}.
+ * <p>
+ * Bands higher than {@link #BAND_HEIGHT} are split in halves. Every row is written by exactly one task and source is
+ * only read, so bands need no synchronization.
+ */
+class ImageScalerTask extends RecursiveAction {
+
+    /**
+     * Maximum number of rows processed by single task.
+     */
+    static final int BAND_HEIGHT = 64;
+
+    private final PackedImage src;
+    private final PackedImage dest;
+    private final ImageScaler.Kernel kernel;
+    private final boolean horizontal;
+    private final int yFrom;
+    private final int yTo;
+
+    /**
+     * Create task.
+     *
+     * @param src source pixels
+     * @param dest destination pixels
+     * @param kernel filter weights of scaled axis
+     * @param horizontal true to resample rows (width), false to resample columns (height)
+     * @param yFrom first destination row (inclusive)
+     * @param yTo last destination row (exclusive)
+     */
+    ImageScalerTask(PackedImage src, PackedImage dest, ImageScaler.Kernel kernel, boolean horizontal,
+            int yFrom, int yTo) {
+        this.src = src;
+        this.dest = dest;
+        this.kernel = kernel;
+        this.horizontal = horizontal;
+        this.yFrom = yFrom;
+        this.yTo = yTo;
+    }
+
+    @Override
+    protected void compute() {
+        if (yTo - yFrom <= BAND_HEIGHT) {
+            if (horizontal) {
+                for (int y = yFrom; y < yTo; y++) {
+                    ImageScaler.scaleRow(src, dest, kernel, y);
+                }
+            } else {
+                int[] rowIndexes = new int[kernel.maxTaps];
+                for (int y = yFrom; y < yTo; y++) {
+                    ImageScaler.scaleColumns(src, dest, kernel, y, rowIndexes);
+                }
+            }
+            return;
+        }
+        int yMid = (yFrom + yTo) >>> 1;
+        invokeAll(new ImageScalerTask(src, dest, kernel, horizontal, yFrom, yMid),
+                new ImageScalerTask(src, dest, kernel, horizontal, yMid, yTo));
+    }
+}
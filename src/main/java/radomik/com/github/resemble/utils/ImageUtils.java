@@ -1,14 +1,19 @@
 package radomik.com.github.resemble.utils;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.attribute.BasicFileAttributes;
 import javax.imageio.ImageIO;
 
 public abstract class ImageUtils {
 
     public static final int IMAGE_TYPE = BufferedImage.TYPE_INT_ARGB;
     private static final boolean CHECK_TYPE = false;
+    private static volatile ImageCache imageCache = null;
 
     /**
      * Check image type.
@@ -35,16 +40,32 @@ public abstract class ImageUtils {
      */
     public static void checkImageMatch(BufferedImage img1, String imgName1, BufferedImage img2, String imgName2)
             throws IllegalArgumentException {
-        if ((img1.getWidth() != img2.getWidth()) || (img1.getHeight() != img2.getHeight())) {
-            throw new IllegalArgumentException(String.format("Size mismatch (%s.{w,h}={%d,%d} and %s.{w,h}={%d,%d})",
-                    imgName1, img1.getWidth(), img1.getHeight(), imgName2, img2.getWidth(), img2.getHeight()));
-        }
+        checkImageMatch(img1.getWidth(), img1.getHeight(), imgName1, img2.getWidth(), img2.getHeight(), imgName2);
 //        if (img1.getType() != img2.getType()) {
 //            throw new IllegalArgumentException(String.format("Image type mismatch (%s.type=%d and %s.type=%d)",
 //                    imgName1, img1.getType(), imgName2, img2.getType()));
 //        }
     }
 
+    /**
+     * Check image dimensions are matching.
+     *
+     * @param width1
+     * @param height1
+     * @param imgName1
+     * @param width2
+     * @param height2
+     * @param imgName2
+     * @throws IllegalArgumentException when image dimensions are not matching
+     */
+    public static void checkImageMatch(int width1, int height1, String imgName1, int width2, int height2,
+            String imgName2) throws IllegalArgumentException {
+        if ((width1 != width2) || (height1 != height2)) {
+            throw new IllegalArgumentException(String.format("Size mismatch (%s.{w,h}={%d,%d} and %s.{w,h}={%d,%d})",
+                    imgName1, width1, height1, imgName2, width2, height2));
+        }
+    }
+
     /**
      * Create new empty buffered image of the same size and type as <code>img</code>.
      *
@@ -56,13 +77,54 @@ public abstract class ImageUtils {
     }
 
     /**
-     * Read buffered image from file and convert it to desired format if needed.
+     * Set cache used by {@link #readImage(java.io.File)}.
+     *
+     * @param cache image cache or <code>null</code> to disable caching
+     */
+    public static void setImageCache(ImageCache cache) {
+        imageCache = cache;
+    }
+
+    /**
+     * Get cache used by {@link #readImage(java.io.File)}.
+     *
+     * @return image cache or <code>null</code> when caching is disabled
+     */
+    public static ImageCache getImageCache() {
+        return imageCache;
+    }
+
+    /**
+     * Read buffered image from file and convert it to desired format if needed. When image cache is set then cached
+     * image is returned if available, such image is shared and must not be modified.
      *
      * @param file image file
      * @return buffered image read from file
      * @throws java.io.IOException on error reading image file
+     * @see #setImageCache(ImageCache)
      */
     public static BufferedImage readImage(File file) throws IOException {
+        ImageCache cache = imageCache;
+        if (cache == null) {
+            return decodeImage(file);
+        }
+        BasicFileAttributes attributes; // read before decoding, so a file changed meanwhile is decoded again
+        try {
+            attributes = ImageCache.readAttributes(file);
+        } catch (IOException ex) {
+            throw new IOException("Could not read image file '" + file + "'", ex);
+        }
+        BufferedImage bufImg = cache.get(file, attributes);
+        if (bufImg == null) {
+            bufImg = decodeImage(file);
+            if (bufImg != null) {
+                cache.put(file, attributes, bufImg);
+            }
+        }
+        return bufImg;
+    }
+
+    private static BufferedImage decodeImage(File file) throws IOException {
         BufferedImage bufImg;
         try {
             bufImg = ImageIO.read(file);
@@ -76,4 +138,51 @@ public abstract class ImageUtils {
         }
         return bufImg;
     }
+
+    /**
+     * Get packed ARGB pixels of the image.
+     * <p>
+     * When image is of {@link #IMAGE_TYPE} then returned pixels share the image raster (no copy is made), otherwise
+     * pixels are copied with {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)}.
+     *
+     * @param img
+     * @return packed ARGB pixels of the image
+     */
+    public static PackedImage toPackedImage(BufferedImage img) {
+        int width = img.getWidth();
+        int height = img.getHeight();
+        if (hasPackedRaster(img)) {
+            WritableRaster raster = img.getRaster();
+            DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
+            SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) raster.getSampleModel();
+            int offset = dataBuffer.getOffset() +
+                    sampleModel.getOffset(-raster.getSampleModelTranslateX(), -raster.getSampleModelTranslateY());
+            return new PackedImage(dataBuffer.getData(), offset, sampleModel.getScanlineStride(), width, height);
+        }
+        return new PackedImage(img.getRGB(0, 0, width, height, null, 0, width), 0, width, width, height);
+    }
+
+    /**
+     * Write packed ARGB pixels to the image. Does nothing when <code>src</code> already shares the image raster.
+     *
+     * @param src source pixels (of the same size as <code>destImg</code>)
+     * @param destImg destination image
+     * @see #toPackedImage(java.awt.image.BufferedImage)
+     */
+    public static void writePackedImage(PackedImage src, BufferedImage destImg) {
+        if (hasPackedRaster(destImg) &&
+                ((DataBufferInt) destImg.getRaster().getDataBuffer()).getData() == src.getData()) {
+            return;
+        }
+        destImg.setRGB(0, 0, src.getWidth(), src.getHeight(), src.getData(), src.getOffset(),
+                src.getScanlineStride());
+    }
+
+    static boolean hasPackedRaster(BufferedImage img) {
+        WritableRaster raster = img.getRaster();
+        return img.getType() == IMAGE_TYPE &&
+                raster.getDataBuffer() instanceof DataBufferInt &&
+                raster.getDataBuffer().getNumBanks() == 1 &&
+                raster.getSampleModel() instanceof SinglePixelPackedSampleModel;
+    }
 }
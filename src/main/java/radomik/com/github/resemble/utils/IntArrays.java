@@ -0,0 +1,29 @@
+package radomik.com.github.resemble.utils;
+
+/**
+ * Operations on <code>int[]</code> ranges.
+ * <p>
+ * NOTE: Library is packaged as multi-release jar, on Java 9+ this class is replaced with version using vectorized
+ * {@link java.util.Arrays} methods (see <code>src/main/java9</code>). Both versions must have the same API.
+ */
+public abstract class IntArrays {
+
+    /**
+     * Find first index at which two array ranges differ.
+     *
+     * @param a first array
+     * @param aFrom first index in <code>a</code>
+     * @param b second array
+     * @param bFrom first index in <code>b</code>
+     * @param length length of compared ranges
+     * @return index relative to range start of first mismatching element or -1 when ranges are equal
+     */
+    public static int mismatch(int[] a, int aFrom, int[] b, int bFrom, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[aFrom + i] != b[bFrom + i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
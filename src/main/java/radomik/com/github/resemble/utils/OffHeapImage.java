@@ -0,0 +1,237 @@
+package radomik.com.github.resemble.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Packed ARGB (0xAARRGGBB) pixels stored outside of Java heap in direct buffers.
+ * <p>
+ * Pixels are accessed by copying regions to and from {@link PackedImage}, so images much larger than the heap can be
+ * processed strip by strip as {@link PixelSource} and {@link PixelSink} (see
+ * <code>ResembleStreamAnalysis.analyseImages</code> and <code>ResembleParser.parse</code>) and written with
+ * {@link #writeImage(File, String)}. Rows are stored in blocks of at most {@link #MAX_BLOCK_SIZE} bytes, so image size
+ * is not limited by the maximum buffer size.
+ * <p>
+ * Native memory is freed by {@link #close()}, image must not be used afterwards. Note that direct memory is limited by
+ * JVM option <code>-XX:MaxDirectMemorySize</code> (by default the same as maximum heap size). Regions may be read
+ * concurrently, but not while they are written or the image is closed.
+ */
+public final class OffHeapImage implements PixelSource, PixelSink, Closeable {
+
+    /**
+     * Maximum size of a direct buffer of rows in bytes.
+     */
+    public static final int MAX_BLOCK_SIZE = 1 << 30;
+
+    private final int width;
+    private final int height;
+    private final int blockHeight;
+    private ByteBuffer[] blocks;
+    private IntBuffer[] pixels;
+
+    /**
+     * Allocate image, initially all pixels are 0 (transparent black).
+     *
+     * @param width image width
+     * @param height image height
+     * @throws OutOfMemoryError when there is not enough direct memory
+     */
+    public OffHeapImage(int width, int height) {
+        if (width < 0 || height < 0 || (long) width * Integer.BYTES > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException(String.format("Invalid image size {w,h}={%d,%d}", width, height));
+        }
+        this.width = width;
+        this.height = height;
+        this.blockHeight = Math.max(1, MAX_BLOCK_SIZE / Math.max(1, width * Integer.BYTES));
+        int blockCount = (height + blockHeight - 1) / blockHeight;
+        blocks = new ByteBuffer[blockCount];
+        pixels = new IntBuffer[blockCount];
+        try {
+            for (int b = 0; b < blockCount; b++) {
+                int rows = Math.min(blockHeight, height - b * blockHeight);
+                blocks[b] = ByteBuffer.allocateDirect(rows * width * Integer.BYTES).order(ByteOrder.nativeOrder());
+                pixels[b] = blocks[b].asIntBuffer();
+            }
+        } catch (OutOfMemoryError ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Read image file strip by strip, so heap used depends on image width and strip height only. File is opened with
+     * {@link ImageFileSource#open(File)}, so PNG files are decoded in a single pass.
+     *
+     * @param file image file
+     * @param stripHeight number of rows decoded at once
+     * @return new image
+     * @throws IOException on error reading image file
+     */
+    public static OffHeapImage read(File file, int stripHeight) throws IOException {
+        try (ImageFileSource source = ImageFileSource.open(file)) {
+            OffHeapImage img = new OffHeapImage(source.getWidth(), source.getHeight());
+            try {
+                int[] buffer = new int[source.getWidth() * Math.max(1, Math.min(stripHeight, img.height))];
+                for (int y = 0; y < img.height; y += stripHeight) {
+                    PackedImage strip = new PackedImage(buffer, 0, img.width, img.width,
+                            Math.min(stripHeight, img.height - y));
+                    source.getRows(y, strip);
+                    img.setRegion(0, y, strip);
+                }
+            } catch (UncheckedIOException ex) {
+                img.close();
+                throw ex.getCause();
+            } catch (RuntimeException ex) {
+                img.close();
+                throw ex;
+            }
+            return img;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapImage{" + "width=" + width + ", height=" + height + ", blocks=" +
+                (blocks != null ? blocks.length : "closed") + '}';
+    }
+
+    /**
+     * Copy region of this image of the size of <code>dest</code> to <code>dest</code>.
+     *
+     * @param x left edge of the region
+     * @param y top edge of the region
+     * @param dest destination pixels
+     */
+    public void getRegion(int x, int y, PackedImage dest) {
+        checkRegion(x, y, dest);
+        IntBuffer[] blockPixels = getPixels();
+        IntBuffer block = null;
+        int blockIndex = -1;
+        for (int row = 0; row < dest.getHeight(); row++) {
+            if ((y + row) / blockHeight != blockIndex) {
+                blockIndex = (y + row) / blockHeight;
+                block = blockPixels[blockIndex].duplicate(); // own position for concurrent readers
+            }
+            ((Buffer) block).position(((y + row) % blockHeight) * width + x);
+            block.get(dest.getData(), dest.indexOf(0, row), dest.getWidth());
+        }
+    }
+
+    /**
+     * Copy <code>src</code> to region of this image.
+     *
+     * @param x left edge of the region
+     * @param y top edge of the region
+     * @param src source pixels
+     */
+    public void setRegion(int x, int y, PackedImage src) {
+        checkRegion(x, y, src);
+        IntBuffer[] blockPixels = getPixels();
+        IntBuffer block = null;
+        int blockIndex = -1;
+        for (int row = 0; row < src.getHeight(); row++) {
+            if ((y + row) / blockHeight != blockIndex) {
+                blockIndex = (y + row) / blockHeight;
+                block = blockPixels[blockIndex].duplicate();
+            }
+            ((Buffer) block).position(((y + row) % blockHeight) * width + x);
+            block.put(src.getData(), src.indexOf(0, row), src.getWidth());
+        }
+    }
+
+    @Override
+    public void getRows(int y, PackedImage dest) {
+        getRegion(0, y, dest);
+    }
+
+    @Override
+    public void setRows(int y, PackedImage src) {
+        setRegion(0, y, src);
+    }
+
+    @Override
+    public PackedImage getPackedImage() {
+        return null;
+    }
+
+    public int getARGB(int x, int y) {
+        checkRegion(x, y, 1, 1);
+        return getPixels()[y / blockHeight].get((y % blockHeight) * width + x);
+    }
+
+    public void setARGB(int x, int y, int argb) {
+        checkRegion(x, y, 1, 1);
+        getPixels()[y / blockHeight].put((y % blockHeight) * width + x, argb);
+    }
+
+    /**
+     * Write image file, pixels are passed to the image writer in regions.
+     *
+     * @param file image file
+     * @param formatName image format name (e.g. "png")
+     * @throws IOException on error writing image file or when format is not supported
+     * @see javax.imageio.ImageIO#write(java.awt.image.RenderedImage, String, File)
+     */
+    public void writeImage(File file, String formatName) throws IOException {
+        getPixels();
+        OffHeapRenderedImage.write(this, file, formatName);
+    }
+
+    /**
+     * Free native memory of the image. Memory is also freed when the image is garbage collected, but only after
+     * the garbage collector notices it.
+     */
+    @Override
+    public void close() {
+        if (blocks == null) {
+            return;
+        }
+        ByteBuffer[] closedBlocks = blocks;
+        blocks = null;
+        pixels = null;
+        for (ByteBuffer block : closedBlocks) {
+            if (block != null) {
+                DirectBuffers.release(block);
+            }
+        }
+    }
+
+    public boolean isClosed() {
+        return blocks == null;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    private IntBuffer[] getPixels() {
+        IntBuffer[] blockPixels = pixels;
+        if (blockPixels == null) {
+            throw new IllegalStateException("Off-heap image is closed");
+        }
+        return blockPixels;
+    }
+
+    private void checkRegion(int x, int y, PackedImage img) {
+        checkRegion(x, y, img.getWidth(), img.getHeight());
+    }
+
+    private void checkRegion(int x, int y, int regionWidth, int regionHeight) {
+        if (x < 0 || y < 0 || (long) x + regionWidth > width || (long) y + regionHeight > height) {
+            throw new IndexOutOfBoundsException(String.format("Region {x,y,w,h}={%d,%d,%d,%d} outside image " +
+                    "{w,h}={%d,%d}", x, y, regionWidth, regionHeight, width, height));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package radomik.com.github.resemble.utils;
+
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.Vector;
+import javax.imageio.ImageIO;
+
+/**
+ * View of {@link OffHeapImage} for image writers. Tiles are strips of {@link #TILE_HEIGHT} rows, every requested
+ * region is copied to a new raster, so writers requesting rows or tiles (e.g. PNG writer) use heap proportional to
+ * image width only.
+ */
+final class OffHeapRenderedImage implements RenderedImage {
+
+    static final int TILE_HEIGHT = 64;
+
+    private final OffHeapImage img;
+    private final ColorModel colorModel = ColorModel.getRGBdefault();
+    private final SampleModel sampleModel;
+
+    private OffHeapRenderedImage(OffHeapImage img) {
+        this.img = img;
+        this.sampleModel = colorModel.createCompatibleSampleModel(img.getWidth(), getTileHeight());
+    }
+
+    static void write(OffHeapImage img, File file, String formatName) throws IOException {
+        if (!ImageIO.write(new OffHeapRenderedImage(img), formatName, file)) {
+            throw new IOException("Unsupported image format '" + formatName + "'");
+        }
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return null;
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+        return colorModel;
+    }
+
+    @Override
+    public SampleModel getSampleModel() {
+        return sampleModel;
+    }
+
+    @Override
+    public int getWidth() {
+        return img.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return img.getHeight();
+    }
+
+    @Override
+    public int getMinX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinY() {
+        return 0;
+    }
+
+    @Override
+    public int getNumXTiles() {
+        return 1;
+    }
+
+    @Override
+    public int getNumYTiles() {
+        return (img.getHeight() + TILE_HEIGHT - 1) / TILE_HEIGHT;
+    }
+
+    @Override
+    public int getMinTileX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinTileY() {
+        return 0;
+    }
+
+    @Override
+    public int getTileWidth() {
+        return img.getWidth();
+    }
+
+    @Override
+    public int getTileHeight() {
+        return Math.max(1, Math.min(TILE_HEIGHT, img.getHeight()));
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+        return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+        return 0;
+    }
+
+    @Override
+    public Raster getTile(int tileX, int tileY) {
+        int y = tileY * TILE_HEIGHT;
+        return getData(new Rectangle(0, y, img.getWidth(), Math.min(TILE_HEIGHT, img.getHeight() - y)));
+    }
+
+    /**
+     * Get copy of the whole image, on heap.
+     */
+    @Override
+    public Raster getData() {
+        return getData(new Rectangle(0, 0, img.getWidth(), img.getHeight()));
+    }
+
+    @Override
+    public Raster getData(Rectangle rect) {
+        Rectangle region = rect.intersection(new Rectangle(0, 0, img.getWidth(), img.getHeight()));
+        WritableRaster raster = Raster.createWritableRaster(
+                sampleModel.createCompatibleSampleModel(region.width, region.height), new Point(region.x, region.y));
+        int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+        img.getRegion(region.x, region.y, new PackedImage(data, 0, region.width, region.width, region.height));
+        return raster;
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster) {
+        if (raster == null) {
+            return (WritableRaster) getData();
+        }
+        Rectangle bounds = raster.getBounds();
+        for (int y = bounds.y; y < bounds.y + bounds.height; y += TILE_HEIGHT) {
+            raster.setRect(getData(new Rectangle(bounds.x, y, bounds.width,
+                    Math.min(TILE_HEIGHT, bounds.y + bounds.height - y))));
+        }
+        return raster;
+    }
+}
@@ -0,0 +1,103 @@
+package radomik.com.github.resemble.utils;
+
+/**
+ * Rectangular block of packed ARGB (0xAARRGGBB) pixels stored in an <code>int[]</code>.
+ * <p>
+ * Pixel (x,y) is stored at <code>data[offset + y * scanlineStride + x]</code>. The array may be shared with the
+ * raster of a {@link java.awt.image.BufferedImage} (see {@link ImageUtils#toPackedImage}) so writes to it may be
+ * visible in the image immediately.
+ * <p>
+ * As {@link PixelSource} and {@link PixelSink} the pixels are shared, not copied.
+ */
+public final class PackedImage implements PixelSource, PixelSink {
+
+    private final int[] data;
+    private final int offset;
+    private final int scanlineStride;
+    private final int width;
+    private final int height;
+
+    public PackedImage(int[] data, int offset, int scanlineStride, int width, int height) {
+        if (width < 0 || height < 0 || scanlineStride < width) {
+            throw new IllegalArgumentException(String.format("Invalid geometry {w,h,stride}={%d,%d,%d}",
+                    width, height, scanlineStride));
+        }
+        if (height > 0 && (offset < 0 || offset + (long) (height - 1) * scanlineStride + width > data.length)) {
+            throw new IllegalArgumentException(String.format("Data of length %d too short for {offset,w,h,stride}=" +
+                    "{%d,%d,%d,%d}", data.length, offset, width, height, scanlineStride));
+        }
+        this.data = data;
+        this.offset = offset;
+        this.scanlineStride = scanlineStride;
+        this.width = width;
+        this.height = height;
+    }
+
+    public PackedImage(int width, int height) {
+        this(new int[width * height], 0, width, width, height);
+    }
+
+    @Override
+    public String toString() {
+        return "PackedImage{" + "offset=" + offset + ", scanlineStride=" + scanlineStride +
+                ", width=" + width + ", height=" + height + '}';
+    }
+
+    /**
+     * Get index of pixel (x,y) in {@link #getData()}.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return array index
+     */
+    public int indexOf(int x, int y) {
+        return offset + y * scanlineStride + x;
+    }
+
+    public int getARGB(int x, int y) {
+        return data[offset + y * scanlineStride + x];
+    }
+
+    public void setARGB(int x, int y, int argb) {
+        data[offset + y * scanlineStride + x] = argb;
+    }
+
+    @Override
+    public void getRows(int y, PackedImage dest) {
+        for (int row = 0; row < dest.getHeight(); row++) {
+            System.arraycopy(data, indexOf(0, y + row), dest.data, dest.indexOf(0, row), dest.width);
+        }
+    }
+
+    @Override
+    public void setRows(int y, PackedImage src) {
+        src.getRows(0, new PackedImage(data, indexOf(0, y), scanlineStride, src.width, src.height));
+    }
+
+    @Override
+    public PackedImage getPackedImage() {
+        return this;
+    }
+
+    public int[] getData() {
+        return data;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getScanlineStride() {
+        return scanlineStride;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+}
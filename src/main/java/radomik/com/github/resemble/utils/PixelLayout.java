@@ -0,0 +1,67 @@
+package radomik.com.github.resemble.utils;
+
+/**
+ * Order of channel bytes of 4-byte pixels. Conversions work on the 4 bytes of a pixel read as big-endian
+ * <code>int</code>.
+ */
+public enum PixelLayout {
+
+    /**
+     * Bytes R, G, B, A (e.g. browser screenshots and canvas image data).
+     */
+    RGBA {
+        @Override
+        public int toARGB(int bytes) {
+            return Integer.rotateRight(bytes, 8);
+        }
+
+        @Override
+        public int fromARGB(int argb) {
+            return Integer.rotateLeft(argb, 8);
+        }
+    },
+    /**
+     * Bytes B, G, R, A (e.g. little-endian ARGB ints).
+     */
+    BGRA {
+        @Override
+        public int toARGB(int bytes) {
+            return Integer.reverseBytes(bytes);
+        }
+
+        @Override
+        public int fromARGB(int argb) {
+            return Integer.reverseBytes(argb);
+        }
+    },
+    /**
+     * Bytes A, R, G, B (e.g. big-endian ARGB ints).
+     */
+    ARGB {
+        @Override
+        public int toARGB(int bytes) {
+            return bytes;
+        }
+
+        @Override
+        public int fromARGB(int argb) {
+            return argb;
+        }
+    };
+
+    /**
+     * Convert pixel bytes to ARGB.
+     *
+     * @param bytes pixel bytes read as big-endian <code>int</code>
+     * @return ARGB (0xAARRGGBB) value
+     */
+    public abstract int toARGB(int bytes);
+
+    /**
+     * Convert ARGB to pixel bytes.
+     *
+     * @param argb ARGB (0xAARRGGBB) value
+     * @return pixel bytes to be written as big-endian <code>int</code>
+     */
+    public abstract int fromARGB(int argb);
+}
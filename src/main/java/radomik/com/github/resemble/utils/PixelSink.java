@@ -0,0 +1,30 @@
+package radomik.com.github.resemble.utils;
+
+/**
+ * Destination of packed ARGB (0xAARRGGBB) pixels of an image, independent of <code>java.awt</code>.
+ *
+ * @see PixelSource
+ */
+public interface PixelSink {
+
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * Copy <code>src</code> of the same width to rows [y, y + src.getHeight()).
+     *
+     * @param y first row
+     * @param src source pixels
+     */
+    void setRows(int y, PackedImage src);
+
+    /**
+     * Get pixels shared with the sink, which may be written directly.
+     *
+     * @return packed pixels of the whole image or <code>null</code> when they are stored in other format
+     */
+    default PackedImage getPackedImage() {
+        return null;
+    }
+}
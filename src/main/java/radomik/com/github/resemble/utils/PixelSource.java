@@ -0,0 +1,31 @@
+package radomik.com.github.resemble.utils;
+
+/**
+ * Source of packed ARGB (0xAARRGGBB) pixels of an image, independent of <code>java.awt</code>.
+ * <p>
+ * Pixels are read in strips of rows with {@link #getRows(int, PackedImage)}. Sources which already store packed ARGB
+ * values in an <code>int[]</code> share them with {@link #getPackedImage()}, so they are analysed without copying.
+ */
+public interface PixelSource {
+
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * Copy rows [y, y + dest.getHeight()) to <code>dest</code> of the same width.
+     *
+     * @param y first row
+     * @param dest destination pixels
+     */
+    void getRows(int y, PackedImage dest);
+
+    /**
+     * Get pixels shared with the source.
+     *
+     * @return packed pixels of the whole image or <code>null</code> when they are stored in other format
+     */
+    default PackedImage getPackedImage() {
+        return null;
+    }
+}
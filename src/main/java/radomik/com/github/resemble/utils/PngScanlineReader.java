@@ -0,0 +1,505 @@
+package radomik.com.github.resemble.utils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes non-interlaced PNG file row by row, without <code>javax.imageio</code> and without keeping the image in
+ * memory.
+ * <p>
+ * Compressed data is inflated and unfiltered one scanline at a time, so memory used depends on image width only. Rows
+ * have to be read top to bottom, but the last {@link #CACHED_ROWS} rows can be read again (as neighbour rows of
+ * strips read by <code>ResembleStreamAnalysis</code>). All color types and bit depths are supported, transparency
+ * (<code>tRNS</code>) is applied, 16-bit samples are rounded to 8 bits, other ancillary chunks (gamma, color profile)
+ * are ignored and chunk checksums are not verified. Except for gray images (see {@link #isGray()}) pixels are the
+ * same as decoded by <code>javax.imageio</code>.
+ *
+ * @see ImageFileSource#open(File)
+ */
+public final class PngScanlineReader implements ImageFileSource {
+
+    /**
+     * Number of rows before the next row to be decoded which may be read again.
+     */
+    public static final int CACHED_ROWS = 2;
+
+    private static final long SIGNATURE = 0x89504E470D0A1A0AL;
+    private static final int IHDR = 0x49484452;
+    private static final int PLTE = 0x504C5445;
+    private static final int TRNS = 0x74524E53;
+    private static final int IDAT = 0x49444154;
+    private static final int IEND = 0x49454E44;
+    private static final int INPUT_BUFFER_SIZE = 1 << 15;
+
+    private static final int COLOR_TYPE_GRAY = 0;
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_PALETTE = 3;
+    private static final int COLOR_TYPE_GRAY_ALPHA = 4;
+    private static final int COLOR_TYPE_RGB_ALPHA = 6;
+
+    private final File file;
+    private final DataInputStream input;
+    private final int width;
+    private final int height;
+    private final int bitDepth;
+    private final int colorType;
+    private final int bytesPerPixel; // filter distance, at least 1
+    private final int[] palette;
+    private int[] grayTable; // colors of gray samples (opaque for gray with alpha)
+    private long transparentSample = -1; // gray or RGB samples of tRNS of color types 0 and 2, at full bit depth
+    private boolean transparencyChunk;
+    private final Inflater inflater = new Inflater();
+    private final byte[] inputBuffer = new byte[INPUT_BUFFER_SIZE];
+    private int idatRemaining;
+    private byte[] scanline;
+    private byte[] previousScanline;
+    private final int[] cache;
+    private int nextRow;
+
+    /**
+     * Open PNG file and read its header.
+     *
+     * @param file PNG file
+     * @throws IOException on error reading file, when it is not a PNG file or it is interlaced
+     */
+    public PngScanlineReader(File file) throws IOException {
+        this(file, false);
+    }
+
+    /**
+     * Open PNG file and read its header.
+     *
+     * @param file PNG file
+     * @param imageIOColors true to convert gray samples as <code>javax.imageio</code> does (see {@link #isGray()}),
+     * which loads it for gray images
+     * @throws IOException on error reading file, when it is not a PNG file or it is interlaced
+     */
+    public PngScanlineReader(File file, boolean imageIOColors) throws IOException {
+        this.file = file;
+        this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), INPUT_BUFFER_SIZE));
+        try {
+            if (input.readLong() != SIGNATURE || input.readInt() != 13 || input.readInt() != IHDR) {
+                throw new IOException("Not a PNG file '" + file + "'");
+            }
+            width = input.readInt();
+            height = input.readInt();
+            bitDepth = input.readUnsignedByte();
+            colorType = input.readUnsignedByte();
+            int compression = input.readUnsignedByte();
+            int filter = input.readUnsignedByte();
+            int interlace = input.readUnsignedByte();
+            input.readInt(); // CRC
+            int channels = getChannelCount(colorType);
+            if (width <= 0 || height <= 0 || channels == 0 || !isValidBitDepth(colorType, bitDepth) ||
+                    compression != 0 || filter != 0) {
+                throw new IOException("Invalid header of PNG file '" + file + "'");
+            }
+            if (interlace != 0) {
+                throw new IOException("Interlaced PNG file '" + file + "' is not supported");
+            }
+            long rowBytes = ((long) width * channels * bitDepth + 7) / 8;
+            if (rowBytes + 1 > Integer.MAX_VALUE - 8 || (long) width * CACHED_ROWS > Integer.MAX_VALUE - 8) {
+                throw new IOException("Too wide PNG file '" + file + "'");
+            }
+            this.bytesPerPixel = Math.max(1, channels * bitDepth / 8);
+            this.palette = (colorType == COLOR_TYPE_PALETTE) ? new int[256] : null;
+            if (palette != null) {
+                Arrays.fill(palette, 0xFF000000);
+            }
+            this.scanline = new byte[(int) rowBytes + 1];
+            this.previousScanline = new byte[(int) rowBytes + 1];
+            this.cache = new int[CACHED_ROWS * width];
+            readChunksBeforeData();
+            if (isGray()) {
+                grayTable = imageIOColors ? ImageIOGrayTables.get(bitDepth, colorType == COLOR_TYPE_GRAY_ALPHA,
+                        (int) transparentSample) : createGrayTable();
+            }
+        } catch (IOException ex) {
+            close();
+            throw (ex instanceof EOFException) ? new IOException("Truncated PNG file '" + file + "'", ex) : ex;
+        }
+    }
+
+    /**
+     * Check if file can be decoded, i.e. it is a PNG file and is not interlaced. Only the header is read.
+     *
+     * @param file image file
+     * @return true when file can be read by this reader
+     */
+    public static boolean canRead(File file) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readLong() != SIGNATURE || in.readInt() != 13 || in.readInt() != IHDR) {
+                return false;
+            }
+            in.readLong(); // width, height
+            int depth = in.readUnsignedByte();
+            int type = in.readUnsignedByte();
+            in.readShort(); // compression, filter
+            return getChannelCount(type) != 0 && isValidBitDepth(type, depth) && in.readUnsignedByte() == 0;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PngScanlineReader{" + "file=" + file + ", width=" + width + ", height=" + height + ", bitDepth=" +
+                bitDepth + ", colorType=" + colorType + ", nextRow=" + nextRow + '}';
+    }
+
+    /**
+     * Copy rows [y, y + dest.getHeight()) to <code>dest</code> of the image width, decoding rows as needed.
+     *
+     * @param y first row, at least {@link #getNextRow()} - {@link #CACHED_ROWS}
+     * @param dest destination pixels
+     * @throws IllegalArgumentException when rows were already decoded and are not cached
+     * @throws UncheckedIOException on error reading file or when the file is corrupted
+     */
+    @Override
+    public void getRows(int y, PackedImage dest) {
+        int rowCount = dest.getHeight();
+        if (y < nextRow - CACHED_ROWS || y < 0 || y + rowCount > height || dest.getWidth() != width) {
+            throw new IllegalArgumentException(String.format("Rows [%d, %d) of width %d can not be read, next row " +
+                    "is %d of image {w,h}={%d,%d}", y, y + rowCount, dest.getWidth(), nextRow, width, height));
+        }
+        try {
+            for (int row = 0; row < rowCount; row++) {
+                int r = y + row;
+                while (nextRow < r) { // skipped rows
+                    decodeRow(cache, (nextRow % CACHED_ROWS) * width);
+                }
+                if (r < nextRow) {
+                    System.arraycopy(cache, (r % CACHED_ROWS) * width, dest.getData(), dest.indexOf(0, row), width);
+                } else {
+                    decodeRow(dest.getData(), dest.indexOf(0, row));
+                    if (r >= y + rowCount - CACHED_ROWS) {
+                        System.arraycopy(dest.getData(), dest.indexOf(0, row), cache, (r % CACHED_ROWS) * width,
+                                width);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Get index of the next row to be decoded.
+     *
+     * @return number of decoded rows
+     */
+    public int getNextRow() {
+        return nextRow;
+    }
+
+    /**
+     * Check if the image is gray (with or without alpha). Gray samples are copied to all RGB channels, as specified
+     * by PNG, while <code>javax.imageio</code> converts them from linear gray, so decoded colors differ unless the
+     * reader was opened with <code>imageIOColors</code>.
+     *
+     * @return true for gray color types
+     */
+    public boolean isGray() {
+        return colorType == COLOR_TYPE_GRAY || colorType == COLOR_TYPE_GRAY_ALPHA;
+    }
+
+    @Override
+    public boolean hasAlpha() {
+        return colorType == COLOR_TYPE_GRAY_ALPHA || colorType == COLOR_TYPE_RGB_ALPHA || transparencyChunk;
+    }
+
+    @Override
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        input.close();
+    }
+
+    private void readChunksBeforeData() throws IOException {
+        while (true) {
+            int length = input.readInt();
+            int type = input.readInt();
+            if (length < 0) {
+                throw new IOException("Invalid chunk length in PNG file '" + file + "'");
+            }
+            transparencyChunk |= (type == TRNS);
+            if (type == IDAT) {
+                idatRemaining = length;
+                return;
+            } else if (type == IEND) {
+                throw new IOException("No image data in PNG file '" + file + "'");
+            } else if (type == PLTE && palette != null) {
+                for (int i = 0; i < length / 3 && i < palette.length; i++) {
+                    palette[i] = 0xFF000000 | (input.readUnsignedByte() << 16) | (input.readUnsignedByte() << 8) |
+                            input.readUnsignedByte();
+                }
+                skipFully(length - Math.min(length / 3, palette.length) * 3);
+            } else if (type == TRNS && palette != null) {
+                for (int i = 0; i < length && i < palette.length; i++) {
+                    palette[i] = (palette[i] & 0xFFFFFF) | (input.readUnsignedByte() << 24);
+                }
+                skipFully(length - Math.min(length, palette.length));
+            } else if (type == TRNS && colorType == COLOR_TYPE_GRAY && length == 2) {
+                transparentSample = input.readUnsignedShort();
+            } else if (type == TRNS && colorType == COLOR_TYPE_RGB && length == 6) {
+                transparentSample = 0;
+                for (int i = 0; i < 3; i++) {
+                    transparentSample = (transparentSample << bitDepth) | input.readUnsignedShort();
+                }
+                if (bitDepth == 8 && (transparentSample & ~0xFFFFFFL) != 0) {
+                    transparentSample = -1; // sample out of range never matches
+                }
+            } else {
+                skipFully(length);
+            }
+            input.readInt(); // CRC
+        }
+    }
+
+    private void decodeRow(int[] dest, int destIndex) throws IOException {
+        byte[] current = previousScanline; // previous row is no longer needed after unfiltering the current one
+        previousScanline = scanline;
+        scanline = current;
+        inflateFully(current);
+        unfilter(current, previousScanline);
+        convert(current, dest, destIndex);
+        nextRow++;
+    }
+
+    private void inflateFully(byte[] dest) throws IOException {
+        int off = 0;
+        try {
+            while (off < dest.length) {
+                int n = inflater.inflate(dest, off, dest.length - off);
+                off += n;
+                if (n == 0) {
+                    if (inflater.finished() || inflater.needsDictionary()) {
+                        throw new IOException("Image data of PNG file '" + file + "' ends at row " + nextRow);
+                    }
+                    if (inflater.needsInput()) {
+                        fillInput();
+                    }
+                }
+            }
+        } catch (DataFormatException ex) {
+            throw new IOException("Corrupted image data of PNG file '" + file + "'", ex);
+        }
+    }
+
+    private void fillInput() throws IOException {
+        while (idatRemaining == 0) {
+            input.readInt(); // CRC
+            int length = input.readInt();
+            if (input.readInt() != IDAT || length < 0) {
+                throw new IOException("Image data of PNG file '" + file + "' ends at row " + nextRow);
+            }
+            idatRemaining = length;
+        }
+        int n = input.read(inputBuffer, 0, Math.min(idatRemaining, inputBuffer.length));
+        if (n < 0) {
+            throw new IOException("Truncated PNG file '" + file + "'");
+        }
+        idatRemaining -= n;
+        inflater.setInput(inputBuffer, 0, n);
+    }
+
+    private void unfilter(byte[] row, byte[] previous) throws IOException {
+        int bpp = bytesPerPixel;
+        int length = row.length;
+        switch (row[0]) {
+            case 0: // None
+                break;
+            case 1: // Sub
+                for (int i = 1 + bpp; i < length; i++) {
+                    row[i] += row[i - bpp];
+                }
+                break;
+            case 2: // Up
+                for (int i = 1; i < length; i++) {
+                    row[i] += previous[i];
+                }
+                break;
+            case 3: // Average
+                for (int i = 1; i < 1 + bpp && i < length; i++) {
+                    row[i] += (previous[i] & 0xFF) >>> 1;
+                }
+                for (int i = 1 + bpp; i < length; i++) {
+                    row[i] += ((row[i - bpp] & 0xFF) + (previous[i] & 0xFF)) >>> 1;
+                }
+                break;
+            case 4: // Paeth
+                for (int i = 1; i < 1 + bpp && i < length; i++) {
+                    row[i] += previous[i];
+                }
+                for (int i = 1 + bpp; i < length; i++) {
+                    int a = row[i - bpp] & 0xFF;
+                    int b = previous[i] & 0xFF;
+                    int c = previous[i - bpp] & 0xFF;
+                    int pa = Math.abs(b - c);
+                    int pb = Math.abs(a - c);
+                    int pc = Math.abs(a + b - 2 * c);
+                    row[i] += (pa <= pb && pa <= pc) ? a : (pb <= pc) ? b : c;
+                }
+                break;
+            default:
+                throw new IOException("Invalid filter type " + row[0] + " at row " + nextRow + " of PNG file '" +
+                        file + "'");
+        }
+    }
+
+    private void convert(byte[] row, int[] dest, int destIndex) {
+        int i = 1;
+        switch (colorType) {
+            case COLOR_TYPE_RGB_ALPHA:
+                if (bitDepth == 8) {
+                    for (int x = 0; x < width; x++, i += 4) {
+                        dest[destIndex + x] = ((row[i + 3] & 0xFF) << 24) | ((row[i] & 0xFF) << 16) |
+                                ((row[i + 1] & 0xFF) << 8) | (row[i + 2] & 0xFF);
+                    }
+                } else {
+                    for (int x = 0; x < width; x++, i += 8) {
+                        dest[destIndex + x] = (getSample16(row, i + 6) << 24) | (getSample16(row, i) << 16) |
+                                (getSample16(row, i + 2) << 8) | getSample16(row, i + 4);
+                    }
+                }
+                break;
+            case COLOR_TYPE_RGB:
+                if (bitDepth == 8) {
+                    for (int x = 0; x < width; x++, i += 3) {
+                        int rgb = ((row[i] & 0xFF) << 16) | ((row[i + 1] & 0xFF) << 8) | (row[i + 2] & 0xFF);
+                        dest[destIndex + x] = (rgb == transparentSample) ? rgb : (0xFF000000 | rgb);
+                    }
+                } else {
+                    for (int x = 0; x < width; x++, i += 6) {
+                        long rgb16 = ((long) getShort(row, i) << 32) | ((long) getShort(row, i + 2) << 16) |
+                                getShort(row, i + 4);
+                        int rgb = (getSample16(row, i) << 16) | (getSample16(row, i + 2) << 8) |
+                                getSample16(row, i + 4);
+                        dest[destIndex + x] = (rgb16 == transparentSample) ? rgb : (0xFF000000 | rgb);
+                    }
+                }
+                break;
+            case COLOR_TYPE_GRAY_ALPHA:
+                if (bitDepth == 8) {
+                    for (int x = 0; x < width; x++, i += 2) {
+                        dest[destIndex + x] = ((row[i + 1] & 0xFF) << 24) | (grayTable[row[i] & 0xFF] & 0xFFFFFF);
+                    }
+                } else {
+                    for (int x = 0; x < width; x++, i += 4) {
+                        dest[destIndex + x] = (getSample16(row, i + 2) << 24) |
+                                (grayTable[getShort(row, i)] & 0xFFFFFF);
+                    }
+                }
+                break;
+            case COLOR_TYPE_GRAY:
+                if (bitDepth == 16) {
+                    for (int x = 0; x < width; x++, i += 2) {
+                        dest[destIndex + x] = grayTable[getShort(row, i)];
+                    }
+                } else {
+                    for (int x = 0; x < width; x++) {
+                        dest[destIndex + x] = grayTable[getSample(row, x)];
+                    }
+                }
+                break;
+            default: // COLOR_TYPE_PALETTE
+                for (int x = 0; x < width; x++) {
+                    dest[destIndex + x] = palette[getSample(row, x)];
+                }
+                break;
+        }
+    }
+
+    private int[] createGrayTable() {
+        int[] table = new int[1 << bitDepth];
+        for (int v = 0; v < table.length; v++) {
+            int g = (bitDepth == 16) ? (v * 255 + 32767) / 65535 : v * (255 / (table.length - 1));
+            table[v] = ((v == transparentSample) ? 0 : 0xFF000000) | (g * 0x010101);
+        }
+        return table;
+    }
+
+    /**
+     * Get sample of at most 8 bits.
+     */
+    private int getSample(byte[] row, int x) {
+        if (bitDepth == 8) {
+            return row[1 + x] & 0xFF;
+        }
+        int bit = x * bitDepth;
+        int shift = 8 - bitDepth - (bit & 7);
+        return ((row[1 + (bit >>> 3)] & 0xFF) >>> shift) & ((1 << bitDepth) - 1);
+    }
+
+    /**
+     * Get 16-bit sample rounded to 8 bits (as by <code>javax.imageio</code>).
+     */
+    private static int getSample16(byte[] row, int i) {
+        return (getShort(row, i) * 255 + 32767) / 65535;
+    }
+
+    private static int getShort(byte[] row, int i) {
+        return ((row[i] & 0xFF) << 8) | (row[i + 1] & 0xFF);
+    }
+
+    private void skipFully(int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            int n = (int) input.skip(remaining);
+            if (n <= 0) {
+                input.readByte(); // throws EOFException at end of file
+                n = 1;
+            }
+            remaining -= n;
+        }
+    }
+
+    private static int getChannelCount(int colorType) {
+        switch (colorType) {
+            case COLOR_TYPE_GRAY:
+            case COLOR_TYPE_PALETTE:
+                return 1;
+            case COLOR_TYPE_GRAY_ALPHA:
+                return 2;
+            case COLOR_TYPE_RGB:
+                return 3;
+            case COLOR_TYPE_RGB_ALPHA:
+                return 4;
+            default:
+                return 0;
+        }
+    }
+
+    private static boolean isValidBitDepth(int colorType, int bitDepth) {
+        switch (colorType) {
+            case COLOR_TYPE_GRAY:
+                return bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8 || bitDepth == 16;
+            case COLOR_TYPE_PALETTE:
+                return bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8;
+            default:
+                return bitDepth == 8 || bitDepth == 16;
+        }
+    }
+}
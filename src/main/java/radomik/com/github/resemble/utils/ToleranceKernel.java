@@ -0,0 +1,90 @@
+package radomik.com.github.resemble.utils;
+
+import static radomik.com.github.resemble.pixel.utils.ColorUtils.*;
+import java.util.Arrays;
+
+/**
+ * Tolerance checks of packed ARGB (0xAARRGGBB) pixel ranges, producing a bit mask of pixels outside tolerance.
+ * <p>
+ * Bit <code>k</code> of the mask (bit <code>k % 64</code> of word <code>k / 64</code>) is set when pixel
+ * <code>k</code> of the range is outside tolerance, the mask has to have at least <code>(length + 63) / 64</code>
+ * words.
+ * <p>
+ * NOTE: Library is packaged as multi-release jar, on Java 17+ this class is replaced with version using the incubator
+ * Vector API when module <code>jdk.incubator.vector</code> is available (see <code>src/main/java17</code>). Both
+ * versions must have the same API and results.
+ */
+public abstract class ToleranceKernel {
+
+    /**
+     * Check if checks are vectorized. Scalar checks are not faster than comparing pixels one by one.
+     *
+     * @return true when SIMD instructions are used
+     */
+    public static boolean isVectorized() {
+        return false;
+    }
+
+    /**
+     * Mark pixels of which any ARGB channel differs by more than its tolerance.
+     *
+     * @param a first array
+     * @param aFrom first index in <code>a</code>
+     * @param b second array
+     * @param bFrom first index in <code>b</code>
+     * @param length length of compared ranges
+     * @param toleranceAlpha alpha tolerance
+     * @param toleranceRed red tolerance
+     * @param toleranceGreen green tolerance
+     * @param toleranceBlue blue tolerance
+     * @param mask mask of pixels outside tolerance (overwritten)
+     * @return number of pixels outside tolerance
+     */
+    public static int compareARGB(int[] a, int aFrom, int[] b, int bFrom, int length, int toleranceAlpha,
+            int toleranceRed, int toleranceGreen, int toleranceBlue, long[] mask) {
+        Arrays.fill(mask, 0, (length + 63) >>> 6, 0L);
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            int argb1 = a[aFrom + i];
+            int argb2 = b[bFrom + i];
+            if (Math.abs(getARGB_Red(argb1) - getARGB_Red(argb2)) > toleranceRed ||
+                    Math.abs(getARGB_Green(argb1) - getARGB_Green(argb2)) > toleranceGreen ||
+                    Math.abs(getARGB_Blue(argb1) - getARGB_Blue(argb2)) > toleranceBlue ||
+                    Math.abs(getARGB_Alpha(argb1) - getARGB_Alpha(argb2)) > toleranceAlpha) {
+                mask[i >>> 6] |= 1L << i;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Mark pixels of which alpha or brightness ({@link radomik.com.github.resemble.pixel.utils.ColorUtils#getBrightness(int, int, int)})
+     * differs by more than its tolerance.
+     *
+     * @param a first array
+     * @param aFrom first index in <code>a</code>
+     * @param b second array
+     * @param bFrom first index in <code>b</code>
+     * @param length length of compared ranges
+     * @param toleranceAlpha alpha tolerance
+     * @param toleranceBrightness brightness tolerance
+     * @param mask mask of pixels outside tolerance (overwritten)
+     * @return number of pixels outside tolerance
+     */
+    public static int compareBrightness(int[] a, int aFrom, int[] b, int bFrom, int length, int toleranceAlpha,
+            int toleranceBrightness, long[] mask) {
+        Arrays.fill(mask, 0, (length + 63) >>> 6, 0L);
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            int argb1 = a[aFrom + i];
+            int argb2 = b[bFrom + i];
+            if (Math.abs(getARGB_Alpha(argb1) - getARGB_Alpha(argb2)) > toleranceAlpha ||
+                    Math.abs(getARGB_Brightness(argb1) - getARGB_Brightness(argb2)) > toleranceBrightness) {
+                mask[i >>> 6] |= 1L << i;
+                count++;
+            }
+        }
+        return count;
+    }
+}
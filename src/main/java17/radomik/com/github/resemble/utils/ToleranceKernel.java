@@ -0,0 +1,107 @@
+package radomik.com.github.resemble.utils;
+
+import static radomik.com.github.resemble.pixel.utils.ColorUtils.*;
+import java.util.Arrays;
+
+/**
+ * Tolerance checks of packed ARGB (0xAARRGGBB) pixel ranges, Java 17+ version using {@link VectorToleranceKernel}
+ * when module <code>jdk.incubator.vector</code> is available (e.g. JVM is started with
+ * <code>--add-modules jdk.incubator.vector</code>), scalar checks otherwise.
+ */
+public abstract class ToleranceKernel {
+
+    private static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() &&
+            VectorToleranceKernel.isSupported();
+
+    /**
+     * Check if checks are vectorized. Scalar checks are not faster than comparing pixels one by one.
+     *
+     * @return true when SIMD instructions are used
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * Mark pixels of which any ARGB channel differs by more than its tolerance.
+     *
+     * @param a first array
+     * @param aFrom first index in <code>a</code>
+     * @param b second array
+     * @param bFrom first index in <code>b</code>
+     * @param length length of compared ranges
+     * @param toleranceAlpha alpha tolerance
+     * @param toleranceRed red tolerance
+     * @param toleranceGreen green tolerance
+     * @param toleranceBlue blue tolerance
+     * @param mask mask of pixels outside tolerance (overwritten)
+     * @return number of pixels outside tolerance
+     */
+    public static int compareARGB(int[] a, int aFrom, int[] b, int bFrom, int length, int toleranceAlpha,
+            int toleranceRed, int toleranceGreen, int toleranceBlue, long[] mask) {
+        Arrays.fill(mask, 0, (length + 63) >>> 6, 0L);
+        int from = 0;
+        if (VECTORIZED) {
+            from = VectorToleranceKernel.compareARGB(a, aFrom, b, bFrom, length, toleranceAlpha, toleranceRed,
+                    toleranceGreen, toleranceBlue, mask);
+        }
+        for (int i = from; i < length; i++) {
+            if (!isARGBSimilar(a[aFrom + i], b[bFrom + i], toleranceAlpha, toleranceRed, toleranceGreen,
+                    toleranceBlue)) {
+                mask[i >>> 6] |= 1L << i;
+            }
+        }
+        return count(mask, length);
+    }
+
+    /**
+     * Mark pixels of which alpha or brightness ({@link radomik.com.github.resemble.pixel.utils.ColorUtils#getBrightness(int, int, int)})
+     * differs by more than its tolerance.
+     *
+     * @param a first array
+     * @param aFrom first index in <code>a</code>
+     * @param b second array
+     * @param bFrom first index in <code>b</code>
+     * @param length length of compared ranges
+     * @param toleranceAlpha alpha tolerance
+     * @param toleranceBrightness brightness tolerance
+     * @param mask mask of pixels outside tolerance (overwritten)
+     * @return number of pixels outside tolerance
+     */
+    public static int compareBrightness(int[] a, int aFrom, int[] b, int bFrom, int length, int toleranceAlpha,
+            int toleranceBrightness, long[] mask) {
+        Arrays.fill(mask, 0, (length + 63) >>> 6, 0L);
+        int from = 0;
+        if (VECTORIZED) {
+            from = VectorToleranceKernel.compareBrightness(a, aFrom, b, bFrom, length, toleranceAlpha,
+                    toleranceBrightness, mask);
+        }
+        for (int i = from; i < length; i++) {
+            if (!isBrightnessSimilar(a[aFrom + i], b[bFrom + i], toleranceAlpha, toleranceBrightness)) {
+                mask[i >>> 6] |= 1L << i;
+            }
+        }
+        return count(mask, length);
+    }
+
+    static boolean isARGBSimilar(int argb1, int argb2, int toleranceAlpha, int toleranceRed, int toleranceGreen,
+            int toleranceBlue) {
+        return Math.abs(getARGB_Red(argb1) - getARGB_Red(argb2)) <= toleranceRed &&
+                Math.abs(getARGB_Green(argb1) - getARGB_Green(argb2)) <= toleranceGreen &&
+                Math.abs(getARGB_Blue(argb1) - getARGB_Blue(argb2)) <= toleranceBlue &&
+                Math.abs(getARGB_Alpha(argb1) - getARGB_Alpha(argb2)) <= toleranceAlpha;
+    }
+
+    static boolean isBrightnessSimilar(int argb1, int argb2, int toleranceAlpha, int toleranceBrightness) {
+        return Math.abs(getARGB_Alpha(argb1) - getARGB_Alpha(argb2)) <= toleranceAlpha &&
+                Math.abs(getARGB_Brightness(argb1) - getARGB_Brightness(argb2)) <= toleranceBrightness;
+    }
+
+    private static int count(long[] mask, int length) {
+        int count = 0;
+        for (int w = 0, words = (length + 63) >>> 6; w < words; w++) {
+            count += Long.bitCount(mask[w]);
+        }
+        return count;
+    }
+}
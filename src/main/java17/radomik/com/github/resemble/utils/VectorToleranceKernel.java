@@ -0,0 +1,125 @@
+package radomik.com.github.resemble.utils;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vectorized checks of {@link ToleranceKernel}, processing {@link IntVector#SPECIES_PREFERRED} pixels at once. Must
+ * be loaded only when module <code>jdk.incubator.vector</code> is available.
+ */
+final class VectorToleranceKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    /**
+     * <code>k / 100 == (k * 5243) &gt;&gt;&gt; 19</code> for luma <code>k</code> [0 - 25500].
+     */
+    private static final int DIVIDE_BY_100_MULTIPLIER = 5243;
+    private static final int DIVIDE_BY_100_SHIFT = 19;
+    private static final int DIVIDE_BY_100_FRACTION = (1 << DIVIDE_BY_100_SHIFT) - 1;
+
+    private VectorToleranceKernel() {
+    }
+
+    /**
+     * Check if preferred species is wide enough to be faster than scalar checks and fits in mask words.
+     */
+    static boolean isSupported() {
+        return SPECIES.length() >= 4 && 64 % SPECIES.length() == 0;
+    }
+
+    /**
+     * Set mask bits of leading pixels, in multiples of vector length.
+     *
+     * @return number of checked pixels
+     */
+    static int compareARGB(int[] a, int aFrom, int[] b, int bFrom, int length, int toleranceAlpha,
+            int toleranceRed, int toleranceGreen, int toleranceBlue, long[] mask) {
+        int bound = SPECIES.loopBound(length);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            IntVector v1 = IntVector.fromArray(SPECIES, a, aFrom + i);
+            IntVector v2 = IntVector.fromArray(SPECIES, b, bFrom + i);
+            VectorMask<Integer> different = channelDifference(v1, v2, 24).compare(VectorOperators.GT, toleranceAlpha)
+                    .or(channelDifference(v1, v2, 16).compare(VectorOperators.GT, toleranceRed))
+                    .or(channelDifference(v1, v2, 8).compare(VectorOperators.GT, toleranceGreen))
+                    .or(channelDifference(v1, v2, 0).compare(VectorOperators.GT, toleranceBlue));
+            mask[i >>> 6] |= different.toLong() << i;
+        }
+        return bound;
+    }
+
+    /**
+     * Set mask bits of leading pixels, in multiples of vector length. Brightness is computed as
+     * <code>(30r + 59g + 11b) / 100</code>, pixels for which it is an exact integer are checked with scalar
+     * {@link radomik.com.github.resemble.pixel.utils.ColorUtils#getBrightness(int, int, int)} as its rounding may
+     * differ.
+     *
+     * @return number of checked pixels
+     */
+    static int compareBrightness(int[] a, int aFrom, int[] b, int bFrom, int length, int toleranceAlpha,
+            int toleranceBrightness, long[] mask) {
+        int bound = SPECIES.loopBound(length);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            IntVector v1 = IntVector.fromArray(SPECIES, a, aFrom + i);
+            IntVector v2 = IntVector.fromArray(SPECIES, b, bFrom + i);
+            IntVector scaled1 = luma(v1).mul(DIVIDE_BY_100_MULTIPLIER);
+            IntVector scaled2 = luma(v2).mul(DIVIDE_BY_100_MULTIPLIER);
+            IntVector brightness1 = scaled1.lanewise(VectorOperators.LSHR, DIVIDE_BY_100_SHIFT);
+            IntVector brightness2 = scaled2.lanewise(VectorOperators.LSHR, DIVIDE_BY_100_SHIFT);
+            VectorMask<Integer> different = channelDifference(v1, v2, 24).compare(VectorOperators.GT, toleranceAlpha)
+                    .or(brightness1.sub(brightness2).abs().compare(VectorOperators.GT, toleranceBrightness));
+            long bits = different.toLong();
+            VectorMask<Integer> exact = isExactInteger(scaled1).or(isExactInteger(scaled2));
+            if (exact.anyTrue()) {
+                bits = checkExact(a, aFrom + i, b, bFrom + i, exact.toLong(), bits, toleranceAlpha,
+                        toleranceBrightness);
+            }
+            mask[i >>> 6] |= bits << i;
+        }
+        return bound;
+    }
+
+    /**
+     * Check lanes of exact brightness with scalar brightness.
+     *
+     * @return updated lane bits of pixels outside tolerance
+     */
+    private static long checkExact(int[] a, int aFrom, int[] b, int bFrom, long exact, long bits, int toleranceAlpha,
+            int toleranceBrightness) {
+        for (; exact != 0L; exact &= exact - 1) {
+            int lane = Long.numberOfTrailingZeros(exact);
+            if (ToleranceKernel.isBrightnessSimilar(a[aFrom + lane], b[bFrom + lane], toleranceAlpha,
+                    toleranceBrightness)) {
+                bits &= ~(1L << lane);
+            } else {
+                bits |= 1L << lane;
+            }
+        }
+        return bits;
+    }
+
+    private static IntVector channelDifference(IntVector v1, IntVector v2, int shift) {
+        return channel(v1, shift).sub(channel(v2, shift)).abs();
+    }
+
+    private static IntVector channel(IntVector v, int shift) {
+        return v.lanewise(VectorOperators.LSHR, shift).and(0xFF);
+    }
+
+    /**
+     * Get <code>30r + 59g + 11b</code>, 100 times brightness.
+     */
+    private static IntVector luma(IntVector v) {
+        return channel(v, 16).mul(30).add(channel(v, 8).mul(59)).add(channel(v, 0).mul(11));
+    }
+
+    /**
+     * Check if scaled luma <code>k * DIVIDE_BY_100_MULTIPLIER</code> is a multiple of 100: fraction bits are
+     * <code>12 * k / 100</code> (below 3072) for multiples, and at least <code>DIVIDE_BY_100_MULTIPLIER</code>
+     * otherwise.
+     */
+    private static VectorMask<Integer> isExactInteger(IntVector scaled) {
+        return scaled.and(DIVIDE_BY_100_FRACTION).compare(VectorOperators.LT, DIVIDE_BY_100_MULTIPLIER);
+    }
+}
@@ -0,0 +1,23 @@
+package radomik.com.github.resemble.utils;
+
+import java.util.Arrays;
+
+/**
+ * Operations on <code>int[]</code> ranges, Java 9+ version using vectorized {@link Arrays} methods.
+ */
+public abstract class IntArrays {
+
+    /**
+     * Find first index at which two array ranges differ.
+     *
+     * @param a first array
+     * @param aFrom first index in <code>a</code>
+     * @param b second array
+     * @param bFrom first index in <code>b</code>
+     * @param length length of compared ranges
+     * @return index relative to range start of first mismatching element or -1 when ranges are equal
+     */
+    public static int mismatch(int[] a, int aFrom, int[] b, int bFrom, int length) {
+        return Arrays.mismatch(a, aFrom, aFrom + length, b, bFrom, bFrom + length);
+    }
+}
@@ -0,0 +1,180 @@
+package radomik.com.github.resemble.analysis;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.util.List;
+
+public class DiffRegionFinderTest {
+
+    /** Mask from rows of '#' (mismatching) and '.' (matching) pixels. */
+    private static MismatchMask mask(String... rows) {
+        MismatchMask mask = new MismatchMask(rows[0].length(), rows.length);
+        for (int y = 0; y < rows.length; y++) {
+            for (int x = 0; x < rows[y].length(); x++) {
+                if (rows[y].charAt(x) == '#') {
+                    mask.set(x, y);
+                }
+            }
+        }
+        return mask;
+    }
+
+    private static void assertRegion(DiffRegion region, int left, int top, int right, int bottom, int pixelCount) {
+        DiffBounds bounds = region.getBounds();
+        assertEquals("left", left, bounds.getLeft());
+        assertEquals("top", top, bounds.getTop());
+        assertEquals("right", right, bounds.getRight());
+        assertEquals("bottom", bottom, bounds.getBottom());
+        assertEquals("pixel count", pixelCount, region.getPixelCount());
+    }
+
+    @Test
+    public void testEmptyMask() {
+        assertTrue(DiffRegionFinder.findRegions(mask("....", "...."), 1, 0).isEmpty());
+        assertTrue(DiffRegionFinder.findRegions(new MismatchMask(0, 0), 1, 0).isEmpty());
+    }
+
+    @Test
+    public void testConnectivity() {
+        MismatchMask mask = mask(
+                "##..#",
+                ".#..#",
+                "..#..",
+                "....#");
+        List<DiffRegion> regions = DiffRegionFinder.findRegions(mask, 1, 0);
+        assertEquals(3, regions.size());
+        assertRegion(regions.get(0), 0, 0, 2, 2, 4); // diagonal pixel joined
+        assertRegion(regions.get(1), 4, 0, 4, 1, 2);
+        assertRegion(regions.get(2), 4, 3, 4, 3, 1); // one row gap, neither diagonal to (2,2)
+    }
+
+    @Test
+    public void testDiagonalChainAndUShape() {
+        // regions found by separate rows are joined later by a common run
+        List<DiffRegion> regions = DiffRegionFinder.findRegions(mask(
+                "#...#",
+                "#...#",
+                "#####"), 1, 0);
+        assertEquals(1, regions.size());
+        assertRegion(regions.get(0), 0, 0, 4, 2, 9);
+
+        regions = DiffRegionFinder.findRegions(mask(
+                "#....",
+                ".#...",
+                "..#..",
+                "...#.",
+                "....#"), 1, 0);
+        assertEquals(1, regions.size());
+        assertRegion(regions.get(0), 0, 0, 4, 4, 5);
+    }
+
+    @Test
+    public void testHorizontalGap() {
+        MismatchMask mask = mask("#..#....#");
+        assertEquals(3, DiffRegionFinder.findRegions(mask, 1, 0).size());
+        assertEquals(3, DiffRegionFinder.findRegions(mask, 2, 0).size());
+        List<DiffRegion> regions = DiffRegionFinder.findRegions(mask, 3, 0); // gap of 2 pixels
+        assertEquals(2, regions.size());
+        assertRegion(regions.get(0), 0, 0, 3, 0, 2);
+        assertRegion(regions.get(1), 8, 0, 8, 0, 1);
+        regions = DiffRegionFinder.findRegions(mask, 5, 0); // gap of 4 pixels
+        assertEquals(1, regions.size());
+        assertRegion(regions.get(0), 0, 0, 8, 0, 3);
+    }
+
+    @Test
+    public void testVerticalAndDiagonalGap() {
+        MismatchMask vertical = mask("#", ".", ".", "#");
+        assertEquals(2, DiffRegionFinder.findRegions(vertical, 2, 0).size());
+        List<DiffRegion> regions = DiffRegionFinder.findRegions(vertical, 3, 0);
+        assertEquals(1, regions.size());
+        assertRegion(regions.get(0), 0, 0, 0, 3, 2);
+
+        MismatchMask diagonal = mask(
+                "#....",
+                ".....",
+                ".....",
+                "...#.");
+        assertEquals(2, DiffRegionFinder.findRegions(diagonal, 2, 0).size());
+        regions = DiffRegionFinder.findRegions(diagonal, 3, 0);
+        assertEquals(1, regions.size());
+        assertRegion(regions.get(0), 0, 0, 3, 3, 2);
+
+        // distance is measured in both axes separately
+        MismatchMask farColumn = mask(
+                "#....",
+                "....#");
+        assertEquals(2, DiffRegionFinder.findRegions(farColumn, 3, 0).size());
+        assertEquals(1, DiffRegionFinder.findRegions(farColumn, 4, 0).size());
+    }
+
+    @Test
+    public void testMergeDistanceBelowOne() {
+        MismatchMask mask = mask("#.#", ".#.");
+        assertEquals(1, DiffRegionFinder.findRegions(mask, 0, 0).size());
+        assertEquals(1, DiffRegionFinder.findRegions(mask, -5, 0).size());
+    }
+
+    @Test
+    public void testRegionOrder() {
+        // ordered by first pixel in rows, not by column or size
+        List<DiffRegion> regions = DiffRegionFinder.findRegions(mask(
+                "......#",
+                "...#..#",
+                "#.....#",
+                "#......"), 1, 0);
+        assertEquals(3, regions.size());
+        assertRegion(regions.get(0), 6, 0, 6, 2, 3);
+        assertRegion(regions.get(1), 3, 1, 3, 1, 1);
+        assertRegion(regions.get(2), 0, 2, 0, 3, 2);
+    }
+
+    @Test
+    public void testMaxRegions() {
+        MismatchMask mask = mask(
+                "#.##...#",
+                "..##....",
+                "........",
+                "#.....##");
+        List<DiffRegion> all = DiffRegionFinder.findRegions(mask, 1, 0);
+        assertEquals(5, all.size());
+        assertRegion(all.get(0), 0, 0, 0, 0, 1);
+        assertRegion(all.get(1), 2, 0, 3, 1, 4);
+        assertRegion(all.get(2), 7, 0, 7, 0, 1);
+        assertRegion(all.get(3), 0, 3, 0, 3, 1);
+        assertRegion(all.get(4), 6, 3, 7, 3, 2);
+
+        assertEquals(5, DiffRegionFinder.findRegions(mask, 1, 5).size());
+
+        // largest region kept, the others combined at position of the first of them
+        List<DiffRegion> regions = DiffRegionFinder.findRegions(mask, 1, 2);
+        assertEquals(2, regions.size());
+        assertRegion(regions.get(0), 0, 0, 7, 3, 5);
+        assertRegion(regions.get(1), 2, 0, 3, 1, 4);
+
+        regions = DiffRegionFinder.findRegions(mask, 1, 3);
+        assertEquals(3, regions.size());
+        assertRegion(regions.get(0), 0, 0, 7, 3, 3);
+        assertRegion(regions.get(1), 2, 0, 3, 1, 4);
+        assertRegion(regions.get(2), 6, 3, 7, 3, 2);
+
+        regions = DiffRegionFinder.findRegions(mask, 1, 1);
+        assertEquals(1, regions.size());
+        assertRegion(regions.get(0), 0, 0, 7, 3, 9);
+    }
+
+    @Test
+    public void testLimitRegionsDoesNotModifyRegions() {
+        List<DiffRegion> all = DiffRegionFinder.findRegions(mask(
+                "#.##...#",
+                "..##....",
+                "........",
+                "#.....##"), 1, 0);
+        List<DiffRegion> limited = DiffRegionFinder.limitRegions(all, 2);
+        assertRegion(limited.get(0), 0, 0, 7, 3, 5);
+        assertRegion(all.get(0), 0, 0, 0, 0, 1);
+        assertRegion(all.get(2), 7, 0, 7, 0, 1);
+        assertRegion(all.get(3), 0, 3, 0, 3, 1);
+        assertRegion(all.get(4), 6, 3, 7, 3, 2);
+    }
+}
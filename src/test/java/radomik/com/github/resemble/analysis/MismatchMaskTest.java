@@ -0,0 +1,121 @@
+package radomik.com.github.resemble.analysis;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+public class MismatchMaskTest {
+
+    private static MismatchMask roundTrip(MismatchMask mask) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mask.write(out);
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        MismatchMask read = MismatchMask.read(in);
+        assertEquals("stream fully read", 0, in.available());
+        return read;
+    }
+
+    private static void assertSameMask(MismatchMask expected, MismatchMask actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.getCardinality(), actual.getCardinality());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (expected.get(x, y) != actual.get(x, y)) {
+                    fail("Pixel " + x + "," + y + " of " + expected.getWidth() + "x" + expected.getHeight());
+                }
+            }
+        }
+    }
+
+    private static byte[] header(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MismatchMask.MAGIC);
+        data.writeInt(MismatchMask.VERSION);
+        data.writeInt(width);
+        data.writeInt(height);
+        return out.toByteArray();
+    }
+
+    private static void assertReadFails(byte[] bytes) {
+        try {
+            MismatchMask.read(new ByteArrayInputStream(bytes));
+            fail("IOException expected");
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Random random = new Random(3);
+        assertSameMask(new MismatchMask(0, 0), roundTrip(new MismatchMask(0, 0)));
+        assertSameMask(new MismatchMask(0, 5), roundTrip(new MismatchMask(0, 5)));
+        for (int width : new int[]{1, 63, 64, 65, 130}) {
+            for (int height : new int[]{1, 3}) {
+                MismatchMask clear = new MismatchMask(width, height);
+                assertSameMask(clear, roundTrip(clear));
+
+                MismatchMask set = new MismatchMask(width, height);
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        set.set(x, y);
+                    }
+                }
+                assertEquals((long) width * height, roundTrip(set).getCardinality());
+                assertSameMask(set, roundTrip(set));
+
+                // runs of random length cross 64-bit words and rows
+                for (int trial = 0; trial < 20; trial++) {
+                    MismatchMask mask = new MismatchMask(width, height);
+                    boolean mismatching = random.nextBoolean();
+                    for (int index = 0; index < width * height;) {
+                        int run = 1 + random.nextInt((trial % 2 == 0) ? 4 : 150);
+                        for (int i = index; i < Math.min(width * height, index + run); i++) {
+                            if (mismatching) {
+                                mask.set(i % width, i / width);
+                            }
+                        }
+                        index += run;
+                        mismatching = !mismatching;
+                    }
+                    assertSameMask(mask, roundTrip(mask));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidStreamFails() throws IOException {
+        assertReadFails(new byte[]{1, 2, 3, 4, 0, 0, 0, 1});
+        assertReadFails(header(-1, 5));
+        assertReadFails(header(5, -1));
+        assertReadFails(header(Integer.MAX_VALUE, Integer.MAX_VALUE)); // number of words overflows int
+        assertReadFails(header(1 << 16, 1 << 26));
+        assertReadFails(header(10, 10)); // no runs
+
+        ByteArrayOutputStream tooLong = new ByteArrayOutputStream();
+        tooLong.write(header(10, 10));
+        tooLong.write(50);
+        tooLong.write(51);
+        assertReadFails(tooLong.toByteArray());
+
+        ByteArrayOutputStream negative = new ByteArrayOutputStream();
+        negative.write(header(10, 10));
+        for (int i = 0; i < 9; i++) {
+            negative.write(0xFF);
+        }
+        negative.write(0x01); // bit 63 set
+        assertReadFails(negative.toByteArray());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLargeMaskFails() {
+        new MismatchMask(Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+}
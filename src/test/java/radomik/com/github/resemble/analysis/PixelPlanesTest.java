@@ -0,0 +1,65 @@
+package radomik.com.github.resemble.analysis;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import radomik.com.github.resemble.pixel.utils.ColorUtils;
+import java.util.Arrays;
+
+public class PixelPlanesTest {
+
+    private static final double HUE_THRESHOLD = 0.3;
+
+    /**
+     * Checks every RGB value against colors of hue near the threshold away, where quantized hue is not enough.
+     */
+    @Test
+    public void testHueThresholdMatchesHue() {
+        // fully saturated colors, sorted by hue (1530 hues)
+        int[] partners = new int[6 * 255];
+        double[] partnerHues = new double[partners.length];
+        int count = 0;
+        for (int rgb = 0; rgb < (1 << 24); rgb++) {
+            int r = rgb >>> 16;
+            int g = (rgb >>> 8) & 0xFF;
+            int b = rgb & 0xFF;
+            if (Math.max(Math.max(r, g), b) == 255 && Math.min(Math.min(r, g), b) == 0) {
+                partners[count++] = 0xFF000000 | rgb;
+            }
+        }
+        assertEquals(partners.length, count);
+        long[] sorted = new long[count];
+        for (int i = 0; i < count; i++) { // hue bits are ordered as hue values, which are non-negative
+            sorted[i] = Double.doubleToRawLongBits(ColorUtils.getARGB_Hue(partners[i]));
+        }
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i, j) -> Long.compare(sorted[i], sorted[j]));
+        int[] sortedPartners = new int[count];
+        for (int i = 0; i < count; i++) {
+            sortedPartners[i] = partners[order[i]];
+            partnerHues[i] = ColorUtils.getARGB_Hue(sortedPartners[i]);
+        }
+
+        for (int rgb = 0; rgb < (1 << 24); rgb++) {
+            int argb1 = 0xFF000000 | rgb;
+            double hue1 = ColorUtils.getARGB_Hue(argb1);
+            int quantizedHue1 = ColorUtils.getARGB_QuantizedHue(argb1);
+            for (double sign : new double[]{-1.0, 1.0}) {
+                for (int level = -2; level <= 2; level += 2) { // quantized shortcut limits and exact check
+                    double target = hue1 + sign * HUE_THRESHOLD + (double) level / ColorUtils.HUE_LEVELS;
+                    int index = Arrays.binarySearch(partnerHues, target);
+                    index = Math.min(count - 1, (index >= 0) ? index : -index - 1);
+                    int argb2 = sortedPartners[index];
+                    boolean expected = Math.abs(hue1 - partnerHues[index]) > HUE_THRESHOLD;
+                    if (PixelPlanes.isHueDifferent(quantizedHue1, ColorUtils.getARGB_QuantizedHue(argb2), argb1,
+                            argb2, HUE_THRESHOLD) != expected) {
+                        fail("Hue difference of " + Integer.toHexString(argb1) + " and " +
+                                Integer.toHexString(argb2));
+                    }
+                }
+            }
+        }
+    }
+}
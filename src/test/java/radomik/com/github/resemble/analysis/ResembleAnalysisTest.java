@@ -0,0 +1,235 @@
+package radomik.com.github.resemble.analysis;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares analysis engines with the original {@link AnalysisEngine#PIXEL} engine.
+ */
+public class ResembleAnalysisTest {
+
+    static BufferedImage createImage(Random random, int width, int height, int imageType,
+            BufferedImage base, double noise) {
+        BufferedImage img = new BufferedImage(width, height, imageType);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int argb;
+                if (base != null && random.nextDouble() > noise) {
+                    argb = base.getRGB(x, y);
+                } else if (base != null && random.nextBoolean()) { // small difference in one channel
+                    argb = base.getRGB(x, y) ^ (random.nextInt(32) << (8 * random.nextInt(4)));
+                } else if ((x / 3 + y / 5) % 3 == 0) {
+                    argb = 0xFFFFFFFF;
+                } else {
+                    argb = (random.nextInt(4) == 0) ? random.nextInt() :
+                            0xFF000000 | (((x * 7) & 0xFF) << 16) | (((y * 3) & 0xFF) << 8) | (random.nextInt(3) * 100);
+                }
+                img.setRGB(x, y, argb);
+            }
+        }
+        return img;
+    }
+
+    static void assertSameResults(String message, ResembleAnalysisResults expected,
+            ResembleAnalysisResults actual) {
+        assertEquals(message, expected.getMismatchCount(), actual.getMismatchCount());
+        assertEquals(message, expected.getDiffBounds().toString(), actual.getDiffBounds().toString());
+        BufferedImage expectedOutput = expected.getOutputImage();
+        BufferedImage actualOutput = actual.getOutputImage();
+        if (expectedOutput != null && actualOutput != null) {
+            int width = expectedOutput.getWidth();
+            int height = expectedOutput.getHeight();
+            assertArrayEquals(message, expectedOutput.getRGB(0, 0, width, height, null, 0, width),
+                    actualOutput.getRGB(0, 0, width, height, null, 0, width));
+        }
+    }
+
+    @Test
+    public void testEnginesMatchPixelEngine() {
+        Random random = new Random(8);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int imageType : new int[]{BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB,
+                    BufferedImage.TYPE_4BYTE_ABGR}) {
+                int width = 20 + random.nextInt(60);
+                int height = 20 + random.nextInt(60);
+                BufferedImage img1 = createImage(random, width, height, imageType, null, 0.0);
+                BufferedImage img2 = createImage(random, width, height, imageType, img1, 0.2);
+                for (ErrorPixel errorPixel : ErrorPixel.values()) {
+                    for (int flags = 0; flags < 4; flags++) {
+                        // threshold below image size skips rows and columns
+                        for (double largeImageThreshold : new double[]{1200, 30}) {
+                            ResembleAnalysisOptions options = new ResembleAnalysisOptions();
+                            options.setEngine(AnalysisEngine.PIXEL);
+                            options.setErrorPixel(errorPixel);
+                            options.setIgnoreColors((flags & 1) != 0);
+                            options.setIgnoreAntialiasing((flags & 2) != 0);
+                            options.setLargeImageThreshold(largeImageThreshold);
+                            options.setPixelTransparency(0.7);
+                            options.getErrorPixelColor().setARGB(200, 255, 17, 255);
+                            ResembleAnalysisResults expected = new ResembleAnalysis(options).analyseImages(img1,
+                                    img2);
+
+                            options.setEngine(AnalysisEngine.PACKED);
+                            assertSameResults(options.toString(), expected,
+                                    new ResembleAnalysis(options).analyseImages(img1, img2));
+                            options.setForkJoinPool(pool);
+                            options.setTileHeight(3);
+                            assertSameResults(options.toString(), expected,
+                                    new ResembleAnalysis(options).analyseImages(img1, img2));
+                            options.setTileHeight(1);
+                            options.setOutputMode(OutputMode.NONE);
+                            assertSameResults(options.toString(), expected,
+                                    new ResembleAnalysis(options).analyseImages(img1, img2));
+                        }
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static ResembleAnalysisOptions createLimitOptions(AnalysisEngine engine, ForkJoinPool pool,
+            int maxMismatchCount, OutputMode outputMode) {
+        ResembleAnalysisOptions options = new ResembleAnalysisOptions();
+        options.setEngine(engine);
+        options.setForkJoinPool(pool);
+        options.setTileHeight(3);
+        options.setMaxMismatchCount(maxMismatchCount);
+        options.setOutputMode(outputMode);
+        options.setComputeParserData(true);
+        options.setComputeDiffRegions(true);
+        options.setKeepMismatchMask(true);
+        return options;
+    }
+
+    @Test
+    public void testMismatchLimitStopsAnalysis() {
+        Random random = new Random(5);
+        BufferedImage img1 = createImage(random, 60, 50, BufferedImage.TYPE_INT_ARGB, null, 0.0);
+        BufferedImage img2 = createImage(random, 60, 50, BufferedImage.TYPE_INT_ARGB, img1, 0.2);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (AnalysisEngine engine : new AnalysisEngine[]{AnalysisEngine.PIXEL, AnalysisEngine.PACKED}) {
+                for (ForkJoinPool enginePool : new ForkJoinPool[]{null, pool}) {
+                    ResembleAnalysisResults expected = new ResembleAnalysis(
+                            createLimitOptions(engine, enginePool, -1, OutputMode.FULL)).analyseImages(img1, img2);
+                    int mismatchCount = expected.getMismatchCount();
+                    assertTrue(mismatchCount > 100);
+                    assertFalse(expected.isMismatchLimitExceeded());
+
+                    // limit not exceeded, complete results
+                    ResembleAnalysisOptions options = createLimitOptions(engine, enginePool, mismatchCount,
+                            OutputMode.FULL);
+                    ResembleAnalysisResults results = new ResembleAnalysis(options).analyseImages(img1, img2);
+                    assertFalse(results.isMismatchLimitExceeded());
+                    assertSameResults(options.toString(), expected, results);
+                    assertNotNull(results.getParserData1());
+                    assertNotNull(results.getParserData2());
+                    assertNotNull(results.getOutputParserData());
+                    assertEquals(expected.getDiffRegions().size(), results.getDiffRegions().size());
+                    assertEquals(mismatchCount, results.getMismatchMask().getCardinality());
+                    assertTrue(new ResembleAnalysis(options).isEqualWithinTolerance(img1, img2));
+
+                    // limit exceeded by the last mismatching pixel
+                    options.setMaxMismatchCount(mismatchCount - 1);
+                    results = new ResembleAnalysis(options).analyseImages(img1, img2);
+                    assertTrue(results.isMismatchLimitExceeded());
+                    assertTrue(results.getMismatchCount() > mismatchCount - 1);
+                    assertTrue(results.getMismatchCount() <= mismatchCount);
+                    assertFalse(new ResembleAnalysis(options).isEqualWithinTolerance(img1, img2));
+
+                    // analysis stops early, partial results are dropped
+                    options.setMaxMismatchCount(10);
+                    results = new ResembleAnalysis(options).analyseImages(img1, img2);
+                    assertTrue(options.toString(), results.isMismatchLimitExceeded());
+                    assertTrue(options.toString(), results.getMismatchCount() > 10);
+                    assertTrue(options.toString(), results.getMismatchCount() < mismatchCount);
+                    assertNull(results.getParserData1());
+                    assertNull(results.getParserData2());
+                    assertNull(results.getOutputParserData());
+                    assertNull(results.getDiffRegions());
+                    assertNull(results.getMismatchMask());
+                    assertNotNull(results.getOutputImage());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testOutputModeOnFailure() {
+        Random random = new Random(6);
+        BufferedImage img1 = createImage(random, 60, 50, BufferedImage.TYPE_INT_ARGB, null, 0.0);
+        BufferedImage img2 = createImage(random, 60, 50, BufferedImage.TYPE_INT_ARGB, img1, 0.2);
+        for (AnalysisEngine engine : new AnalysisEngine[]{AnalysisEngine.PIXEL, AnalysisEngine.PACKED}) {
+            ResembleAnalysisResults expected = new ResembleAnalysis(
+                    createLimitOptions(engine, null, -1, OutputMode.FULL)).analyseImages(img1, img2);
+            int mismatchCount = expected.getMismatchCount();
+
+            // without limit any mismatching pixel is a failure
+            ResembleAnalysisOptions options = createLimitOptions(engine, null, -1, OutputMode.ON_FAILURE);
+            ResembleAnalysisResults results = new ResembleAnalysis(options).analyseImages(img1, img2);
+            assertNotNull(results.getOutputImage());
+            assertFalse(results.isMismatchLimitExceeded());
+            assertSameResults(options.toString(), expected, results);
+            assertNotNull(results.getOutputParserData());
+
+            results = new ResembleAnalysis(options).analyseImages(img1, img1);
+            assertNull(results.getOutputImage());
+            assertEquals(0, results.getMismatchCount());
+
+            // failure is analysed again completely, without stopping at the limit
+            options.setMaxMismatchCount(10);
+            results = new ResembleAnalysis(options).analyseImages(img1, img2);
+            assertNotNull(results.getOutputImage());
+            assertTrue(results.isMismatchLimitExceeded());
+            assertSameResults(options.toString(), expected, results);
+            assertNotNull(results.getParserData1());
+            assertNotNull(results.getOutputParserData());
+            assertEquals(expected.getDiffRegions().size(), results.getDiffRegions().size());
+            assertEquals(mismatchCount, results.getMismatchMask().getCardinality());
+
+            // success within the limit is not rendered
+            options.setMaxMismatchCount(mismatchCount);
+            results = new ResembleAnalysis(options).analyseImages(img1, img2);
+            assertNull(results.getOutputImage());
+            assertFalse(results.isMismatchLimitExceeded());
+            assertEquals(mismatchCount, results.getMismatchCount());
+            assertNotNull(results.getParserData1());
+            assertNull(results.getOutputParserData());
+
+            options.setOutputMode(OutputMode.NONE);
+            options.setMaxMismatchCount(10);
+            results = new ResembleAnalysis(options).analyseImages(img1, img2);
+            assertNull(results.getOutputImage());
+            assertTrue(results.isMismatchLimitExceeded());
+            assertTrue(results.getMismatchCount() < mismatchCount);
+        }
+    }
+
+    @Test
+    public void testScaledImagesAreCachedUntilCleared() {
+        BufferedImage img1 = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage img2 = new BufferedImage(20, 15, BufferedImage.TYPE_INT_ARGB);
+        ResembleAnalysisOptions options = new ResembleAnalysisOptions();
+        options.setScaleToSameSize(true);
+        ResembleAnalysis analysis = new ResembleAnalysis(options);
+        assertEquals(0, analysis.analyseImages(img1, img2).getMismatchCount());
+
+        for (int y = 0; y < img1.getHeight(); y++) {
+            for (int x = 0; x < img1.getWidth(); x++) {
+                img1.setRGB(x, y, 0xFFFFFFFF);
+            }
+        }
+        assertEquals(0, analysis.analyseImages(img1, img2).getMismatchCount()); // stale scaled image
+        analysis.clearScaledImages();
+        assertEquals(20 * 15, analysis.analyseImages(img1, img2).getMismatchCount());
+        assertFalse(analysis.isEqualWithinTolerance(img1, img2));
+    }
+}
@@ -0,0 +1,97 @@
+package radomik.com.github.resemble.analysis;
+
+import static org.junit.Assert.*;
+import static radomik.com.github.resemble.analysis.ResembleAnalysisTest.assertSameResults;
+import static radomik.com.github.resemble.analysis.ResembleAnalysisTest.createImage;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.imageio.ImageIO;
+
+public class ResembleBatchAnalysisTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Results and errors passed to listener by index. */
+    private static class RecordingListener implements ResembleBatchListener {
+
+        final ConcurrentHashMap<Integer, ResembleAnalysisResults> results = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Integer, Throwable> errors = new ConcurrentHashMap<>();
+
+        @Override
+        public void analysisFinished(int index, ResembleAnalysisResults results, Throwable error) {
+            if (results != null) {
+                this.results.put(index, results);
+            }
+            if (error != null) {
+                errors.put(index, error);
+            }
+        }
+    }
+
+    private static Throwable getFailure(CompletableFuture<ResembleAnalysisResults> future)
+            throws InterruptedException {
+        try {
+            future.get();
+            fail("Comparison should fail");
+            return null;
+        } catch (ExecutionException ex) {
+            return ex.getCause();
+        }
+    }
+
+    @Test
+    public void testFailingPairIsPassedToListener() throws Exception {
+        Random random = new Random(4);
+        BufferedImage baseline = createImage(random, 40, 30, BufferedImage.TYPE_INT_ARGB, null, 0.0);
+        BufferedImage candidate = createImage(random, 40, 30, BufferedImage.TYPE_INT_ARGB, baseline, 0.1);
+        BufferedImage otherSize = createImage(random, 41, 30, BufferedImage.TYPE_INT_ARGB, null, 0.0);
+        ResembleAnalysisOptions options = new ResembleAnalysisOptions();
+        ResembleAnalysisResults expected = new ResembleAnalysis(options).analyseImages(baseline, candidate);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ResembleBatchAnalysis batch = new ResembleBatchAnalysis(options, executor);
+            RecordingListener listener = new RecordingListener();
+            List<CompletableFuture<ResembleAnalysisResults>> futures = batch.analysePairs(Arrays.asList(
+                    Pair.of(baseline, candidate), Pair.of(baseline, otherSize), Pair.of(baseline, candidate)),
+                    listener);
+            assertSameResults("pair 0", expected, futures.get(0).get());
+            assertTrue(getFailure(futures.get(1)) instanceof IllegalArgumentException);
+            assertSameResults("pair 2", expected, futures.get(2).get());
+
+            assertEquals(2, listener.results.size());
+            assertSameResults("listener 0", expected, listener.results.get(0));
+            assertSameResults("listener 2", expected, listener.results.get(2));
+            assertEquals(1, listener.errors.size());
+            assertTrue(listener.errors.get(1) instanceof IllegalArgumentException);
+
+            File baselineFile = folder.newFile("baseline.png");
+            File candidateFile = folder.newFile("candidate.png");
+            ImageIO.write(baseline, "png", baselineFile);
+            ImageIO.write(candidate, "png", candidateFile);
+            listener = new RecordingListener();
+            futures = batch.analyseCandidateFiles(baselineFile,
+                    Arrays.asList(new File(folder.getRoot(), "missing.png"), candidateFile), listener);
+            assertTrue(getFailure(futures.get(0)) instanceof UncheckedIOException);
+            assertSameResults("file 1", expected, futures.get(1).get());
+            assertTrue(listener.errors.get(0) instanceof UncheckedIOException);
+            assertSameResults("listener file 1", expected, listener.results.get(1));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
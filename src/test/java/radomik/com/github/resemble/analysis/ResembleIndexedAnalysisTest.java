@@ -0,0 +1,62 @@
+package radomik.com.github.resemble.analysis;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import radomik.com.github.resemble.index.BaselineIndex;
+import radomik.com.github.resemble.index.BaselineIndexWriter;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+/**
+ * Compares indexed analysis, which compares pixels of different tiles only, with analysis of whole images.
+ */
+public class ResembleIndexedAnalysisTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testIndexedAnalysisMatchesAnalysis() throws IOException {
+        Random random = new Random(12);
+        int width = 75;
+        int height = 61;
+        BufferedImage baseline = ResembleAnalysisTest.createImage(random, width, height,
+                BufferedImage.TYPE_INT_ARGB, null, 0.0);
+        File baselineFile = folder.newFile("baseline.png");
+        assertTrue(ImageIO.write(baseline, "png", baselineFile));
+        File indexFile = folder.newFile("baseline.idx");
+        try (BaselineIndexWriter writer = new BaselineIndexWriter(indexFile, 16)) {
+            writer.add("baseline", baselineFile);
+        }
+
+        try (BaselineIndex index = new BaselineIndex(indexFile)) {
+            for (double noise : new double[]{0.0, 0.001, 0.05, 1.0}) {
+                BufferedImage candidate = ResembleAnalysisTest.createImage(random, width, height,
+                        BufferedImage.TYPE_INT_ARGB, baseline, noise);
+                for (int flags = 0; flags < 8; flags++) {
+                    ResembleAnalysisOptions options = new ResembleAnalysisOptions();
+                    options.setIgnoreColors((flags & 1) != 0);
+                    options.setIgnoreAntialiasing((flags & 2) != 0);
+                    options.setLargeImageThreshold(((flags & 4) != 0) ? 20 : 1200);
+                    options.setComputeParserData(true);
+                    for (AnalysisEngine engine : AnalysisEngine.values()) {
+                        options.setEngine(engine);
+                        ResembleAnalysisResults expected = new ResembleAnalysis(options).analyseImages(baseline,
+                                candidate);
+                        ResembleAnalysisResults actual = new ResembleIndexedAnalysis(options, index)
+                                .analyseImage("baseline", baselineFile, candidate);
+                        String message = noise + " " + options;
+                        ResembleAnalysisTest.assertSameResults(message, expected, actual);
+                        assertEquals(message, String.valueOf(expected.getParserData2()),
+                                String.valueOf(actual.getParserData2()));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package radomik.com.github.resemble.analysis;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import radomik.com.github.resemble.utils.BytePixelBuffer;
+import radomik.com.github.resemble.utils.ImageUtils;
+import radomik.com.github.resemble.utils.OffHeapImage;
+import radomik.com.github.resemble.utils.PackedImage;
+import radomik.com.github.resemble.utils.PixelLayout;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+public class ResembleStreamAnalysisTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static BufferedImage createImage(int width, int height, Random random, int noise) {
+        BufferedImage img = new BufferedImage(width, height, ImageUtils.IMAGE_TYPE);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int argb = 0xFF000000 | (((x * 5 + y * 3) * 0x010203) & 0xFFFFFF);
+                img.setRGB(x, y, (random.nextInt(100) < noise) ? random.nextInt() : argb);
+            }
+        }
+        return img;
+    }
+
+    private static BufferedImage copy(BufferedImage img, Random random, int noise) {
+        BufferedImage copy = ImageUtils.createEmptyImage(img);
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                copy.setRGB(x, y, (random.nextInt(100) < noise) ? random.nextInt() : img.getRGB(x, y));
+            }
+        }
+        return copy;
+    }
+
+    private static BytePixelBuffer toBytes(BufferedImage img, PixelLayout layout) {
+        BytePixelBuffer buffer = new BytePixelBuffer(new byte[4 * img.getWidth() * img.getHeight()], img.getWidth(),
+                img.getHeight(), layout);
+        buffer.setRows(0, ImageUtils.toPackedImage(img));
+        return buffer;
+    }
+
+    private static OffHeapImage toOffHeap(BufferedImage img) {
+        OffHeapImage offHeap = new OffHeapImage(img.getWidth(), img.getHeight());
+        offHeap.setRegion(0, 0, ImageUtils.toPackedImage(img));
+        return offHeap;
+    }
+
+    private static void assertSameResults(ResembleAnalysisResults expected, BufferedImage expectedOutput,
+            ResembleAnalysisResults actual, PackedImage actualOutput) {
+        assertEquals(expected.getMismatchCount(), actual.getMismatchCount());
+        assertEquals(expected.getDiffBounds().toString(), actual.getDiffBounds().toString());
+        assertEquals(expected.getParserData1().toString(), actual.getParserData1().toString());
+        assertEquals(expected.getOutputParserData().toString(), actual.getOutputParserData().toString());
+        assertArrayEquals(ImageUtils.toPackedImage(expectedOutput).getData(), actualOutput.getData());
+    }
+
+    private static ResembleAnalysisOptions createOptions(boolean ignoreAntialiasing, int stripHeight) {
+        ResembleAnalysisOptions options = new ResembleAnalysisOptions();
+        options.setEngine(AnalysisEngine.PACKED);
+        options.setIgnoreAntialiasing(ignoreAntialiasing);
+        options.setStripHeight(stripHeight);
+        options.setComputeParserData(true);
+        return options;
+    }
+
+    @Test
+    public void testPixelSourcesMatchPackedEngine() {
+        Random random = new Random(1);
+        // width above large image threshold: every 6th row and column is skipped when antialiasing is ignored
+        for (int[] size : new int[][]{{1300, 41}, {97, 1250}, {150, 100}}) {
+            BufferedImage img1 = createImage(size[0], size[1], random, 0);
+            BufferedImage img2 = copy(img1, random, 10);
+            for (boolean ignoreAntialiasing : new boolean[]{false, true}) {
+                for (int stripHeight : new int[]{1, 7, 256}) {
+                    ResembleAnalysisOptions options = createOptions(ignoreAntialiasing, stripHeight);
+                    ResembleAnalysisResults expected = new ResembleAnalysis(options).analyseImages(img1, img2);
+                    ResembleStreamAnalysis analysis = new ResembleStreamAnalysis(options);
+
+                    BytePixelBuffer out = new BytePixelBuffer(new byte[4 * size[0] * size[1]], size[0], size[1],
+                            PixelLayout.RGBA);
+                    ResembleAnalysisResults actual = analysis.analyseImages(toBytes(img1, PixelLayout.RGBA),
+                            toBytes(img2, PixelLayout.BGRA), out);
+                    PackedImage packedOut = new PackedImage(size[0], size[1]);
+                    out.getRows(0, packedOut);
+                    assertSameResults(expected, expected.getOutputImage(), actual, packedOut);
+
+                    try (OffHeapImage offHeap1 = toOffHeap(img1); OffHeapImage offHeap2 = toOffHeap(img2);
+                            OffHeapImage offHeapOut = new OffHeapImage(size[0], size[1])) {
+                        actual = analysis.analyseImages(offHeap1, offHeap2, offHeapOut);
+                        packedOut = new PackedImage(size[0], size[1]);
+                        offHeapOut.getRows(0, packedOut);
+                        assertSameResults(expected, expected.getOutputImage(), actual, packedOut);
+                    }
+
+                    packedOut = new PackedImage(size[0], size[1]);
+                    actual = analysis.analyseImages(ImageUtils.toPackedImage(img1), ImageUtils.toPackedImage(img2),
+                            packedOut);
+                    assertSameResults(expected, expected.getOutputImage(), actual, packedOut);
+                }
+            }
+        }
+    }
+
+    private static BufferedImage convert(BufferedImage img, int imageType) {
+        BufferedImage converted = new BufferedImage(img.getWidth(), img.getHeight(), imageType);
+        converted.getGraphics().drawImage(img, 0, 0, null);
+        return converted;
+    }
+
+    @Test
+    public void testPngFilesMatchPackedEngine() throws IOException {
+        Random random = new Random(2);
+        for (int imageType : new int[]{BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB}) {
+            BufferedImage img1 = createImage(130, 1250, random, 1);
+            BufferedImage img2 = copy(img1, random, 10);
+            File file1 = folder.newFile();
+            File file2 = folder.newFile();
+            ImageIO.write(convert(img1, imageType), "png", file1);
+            ImageIO.write(convert(img2, imageType), "png", file2);
+            for (boolean ignoreAntialiasing : new boolean[]{false, true}) {
+                ResembleAnalysisOptions options = createOptions(ignoreAntialiasing, 100);
+                ResembleAnalysisResults expected = new ResembleAnalysis(options)
+                        .analyseImages(ImageUtils.readImage(file1), ImageUtils.readImage(file2));
+
+                BufferedImage output = new BufferedImage(130, 1250, ImageUtils.IMAGE_TYPE);
+                ResembleAnalysisResults actual = new ResembleStreamAnalysis(options).analyseFiles(file1, file2,
+                        (strip, y) -> output.setRGB(0, y, strip.getWidth(), strip.getHeight(),
+                                strip.getRGB(0, 0, strip.getWidth(), strip.getHeight(), null, 0, strip.getWidth()),
+                                0, strip.getWidth()));
+                assertSameResults(expected, expected.getOutputImage(), actual, ImageUtils.toPackedImage(output));
+
+                try (OffHeapImage offHeapOut = new OffHeapImage(130, 1250)) {
+                    actual = new ResembleStreamAnalysis(options).analysePngFiles(file1, file2, offHeapOut);
+                    PackedImage packedOut = new PackedImage(130, 1250);
+                    offHeapOut.getRows(0, packedOut);
+                    assertSameResults(expected, expected.getOutputImage(), actual, packedOut);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package radomik.com.github.resemble.analysis;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+public class SampledAnalysisTest {
+
+    @Test
+    public void testSamplePositionsAreDistinct() {
+        SplittableRandom random = new SplittableRandom(5);
+        for (int area = 1; area <= 40; area++) {
+            for (int count = 1; count < area; count++) {
+                boolean[] drawn = new boolean[area];
+                for (int position : SampledAnalysis.samplePositions(area, count, random)) {
+                    assertTrue(position >= 0 && position < area);
+                    assertFalse(drawn[position]);
+                    drawn[position] = true;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSamplePositionsAreUniform() {
+        SplittableRandom random = new SplittableRandom(6);
+        int area = 20;
+        int count = 7;
+        int trials = 100000;
+        int[] hits = new int[area];
+        for (int i = 0; i < trials; i++) {
+            for (int position : SampledAnalysis.samplePositions(area, count, random)) {
+                hits[position]++;
+            }
+        }
+        double expected = (double) trials * count / area;
+        for (int h : hits) {
+            assertEquals(expected, h, expected * 0.03);
+        }
+    }
+
+    @Test
+    public void testSampledAnalysisMatchesExactAnalysis() {
+        Random random = new Random(9);
+        int width = 400;
+        int height = 300;
+        BufferedImage img1 = ResembleAnalysisTest.createImage(random, width, height, BufferedImage.TYPE_INT_ARGB,
+                null, 0.0);
+        for (double noise : new double[]{0.0, 0.02, 0.3}) {
+            BufferedImage img2 = ResembleAnalysisTest.createImage(random, width, height,
+                    BufferedImage.TYPE_INT_ARGB, img1, noise);
+            for (int flags = 0; flags < 4; flags++) {
+                ResembleAnalysisOptions options = new ResembleAnalysisOptions();
+                options.setIgnoreColors((flags & 1) != 0);
+                options.setIgnoreAntialiasing((flags & 2) != 0);
+                options.setLargeImageThreshold(0); // sampled pixels are never skipped
+                ResembleAnalysisResults exact = new ResembleAnalysis(options).analyseImages(img1, img2);
+
+                options.setSamplingBudget(width * height);
+                assertFalse(new ResembleAnalysis(options).analyseImages(img1, img2).isSampled());
+
+                options.setSamplingBudget(20000);
+                options.setSamplingConfidence(0.999);
+                ResembleAnalysisResults sampled = new ResembleAnalysis(options).analyseImages(img1, img2);
+                String message = noise + " " + options;
+                assertTrue(message, sampled.isSampled());
+                assertEquals(message, 20000, sampled.getSampleCount(), 20000 * 0.05);
+                assertTrue(message, sampled.getMismatchPercentageLower() <= sampled.getMismatchPercentage());
+                assertTrue(message, sampled.getMismatchPercentage() <= sampled.getMismatchPercentageUpper());
+                assertTrue(message + " " + exact.getMismatchPercentage() + " not in [" +
+                        sampled.getMismatchPercentageLower() + ", " + sampled.getMismatchPercentageUpper() + "]",
+                        sampled.getMismatchPercentageLower() <= exact.getMismatchPercentage() &&
+                        exact.getMismatchPercentage() <= sampled.getMismatchPercentageUpper());
+                if (exact.getMismatchCount() == 0) {
+                    assertEquals(message, 0, sampled.getMismatchCount());
+                }
+
+                // only sampled pixels are rendered, the same way as by exact analysis
+                int[] exactOutput = exact.getOutputImage().getRGB(0, 0, width, height, null, 0, width);
+                int[] sampledOutput = sampled.getOutputImage().getRGB(0, 0, width, height, null, 0, width);
+                int rendered = 0;
+                for (int i = 0; i < sampledOutput.length; i++) {
+                    if (sampledOutput[i] != 0) {
+                        assertEquals(message, exactOutput[i], sampledOutput[i]);
+                        rendered++;
+                    }
+                }
+                assertTrue(message, rendered <= sampled.getSampleCount());
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package radomik.com.github.resemble.parser;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import radomik.com.github.resemble.pixel.utils.ColorUtils;
+import radomik.com.github.resemble.utils.ImageUtils;
+import radomik.com.github.resemble.utils.OffHeapImage;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import javax.imageio.ImageIO;
+
+public class ResembleParserTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReadImageCollectsHistogram() throws IOException {
+        Random random = new Random(4);
+        BufferedImage img = new BufferedImage(50, 40, ImageUtils.IMAGE_TYPE);
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                img.setRGB(x, y, random.nextInt());
+            }
+        }
+        File file = folder.newFile();
+        ImageIO.write(img, "png", file);
+
+        ResembleParserAccumulator accumulator = new ResembleParserAccumulator(true);
+        ResembleParser.readImage(file, accumulator);
+        ResembleHistogram expected = ResembleParser.histogram(img);
+        ResembleHistogram actual = accumulator.getHistogram();
+        assertEquals(expected.getPixelCount(), actual.getPixelCount());
+        assertArrayEquals(expected.getRed(), actual.getRed());
+        assertArrayEquals(expected.getGreen(), actual.getGreen());
+        assertArrayEquals(expected.getBlue(), actual.getBlue());
+        assertArrayEquals(expected.getAlpha(), actual.getAlpha());
+        assertArrayEquals(expected.getBrightness(), actual.getBrightness());
+    }
+
+    /**
+     * Original implementation of {@link ResembleParser#parse(BufferedImage)}.
+     */
+    private static ResembleParserData parseOriginal(BufferedImage img) {
+        double redTotal = 0;
+        double greenTotal = 0;
+        double blueTotal = 0;
+        double alphaTotal = 0;
+        double brightnessTotal = 0;
+        double whiteTotal = 0;
+        double blackTotal = 0;
+        for (int x = 0; x < img.getWidth(); x++) {
+            for (int y = 0; y < img.getHeight(); y++) {
+                int argb = img.getRGB(x, y);
+                int alpha = argb >>> 24;
+                int red = (argb >> 16) & 0xFF;
+                int green = (argb >> 8) & 0xFF;
+                int blue = argb & 0xFF;
+                int brightness = ColorUtils.getBrightness(red, green, blue);
+                if (red == green && red == blue && alpha > 0) {
+                    if (red == 0) {
+                        blackTotal++;
+                    } else if (red == 255) {
+                        whiteTotal++;
+                    }
+                }
+                redTotal += (double) red / 255.0 * 100.0;
+                greenTotal += (double) green / 255.0 * 100.0;
+                blueTotal += (double) blue / 255.0 * 100.0;
+                alphaTotal += (255.0 - (double) alpha) / 255.0 * 100.0;
+                brightnessTotal += (double) brightness / 255.0 * 100.0;
+            }
+        }
+        return new ResembleParserData(redTotal, greenTotal, blueTotal, alphaTotal, brightnessTotal, whiteTotal,
+                blackTotal, img.getWidth() * img.getHeight());
+    }
+
+    private static double[] getValues(ResembleParserData data) {
+        return new double[]{data.getRed(), data.getGreen(), data.getBlue(), data.getAlpha(), data.getBrightness(),
+            data.getWhite(), data.getBlack()};
+    }
+
+    /**
+     * Check if percentages of red, green, blue, alpha and brightness of the image are exact integers.
+     */
+    private static boolean[] getIntegerPercentages(BufferedImage img) {
+        long[] totals = new long[5];
+        for (int argb : img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth())) {
+            int red = (argb >> 16) & 0xFF;
+            int green = (argb >> 8) & 0xFF;
+            int blue = argb & 0xFF;
+            totals[0] += red;
+            totals[1] += green;
+            totals[2] += blue;
+            totals[3] += 255 - (argb >>> 24);
+            totals[4] += ColorUtils.getBrightness(red, green, blue);
+        }
+        long pixelCount = (long) img.getWidth() * img.getHeight();
+        boolean[] integers = new boolean[7];
+        for (int i = 0; i < totals.length; i++) {
+            integers[i] = totals[i] * 100 % (255 * pixelCount) == 0;
+        }
+        return integers;
+    }
+
+    private static ResembleParserData parseChunks(BufferedImage img, Random random) {
+        int[] data = img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+        ResembleParserAccumulator accumulator = new ResembleParserAccumulator();
+        for (int i = 0; i < data.length;) {
+            int length = Math.min(data.length - i, 1 + random.nextInt(50));
+            ResembleParserAccumulator chunk = new ResembleParserAccumulator();
+            chunk.add(data, i, length);
+            accumulator.merge(chunk);
+            i += length;
+        }
+        return accumulator.getParserData();
+    }
+
+    @Test
+    public void testParseMatchesOriginal() throws IOException {
+        Random random = new Random(7);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // uniform images of every value: exact percentages of multiples of 51 are integers
+            for (int v = 0; v < 256; v++) {
+                for (int size : new int[]{1, 3, 17, 100}) {
+                    BufferedImage img = new BufferedImage(size, size + 1, ImageUtils.IMAGE_TYPE);
+                    int argb = (v << 24) | (v * 0x010101);
+                    for (int y = 0; y < img.getHeight(); y++) {
+                        for (int x = 0; x < img.getWidth(); x++) {
+                            img.setRGB(x, y, (random.nextInt(8) == 0) ? argb ^ 0xFF00FF00 : argb);
+                        }
+                    }
+                    ResembleParserData data = ResembleParser.parse(img);
+                    // exact integer percentages may be rounded down by 1 by the original double sums
+                    double[] original = getValues(parseOriginal(img));
+                    double[] actual = getValues(data);
+                    boolean[] integers = getIntegerPercentages(img);
+                    for (int i = 0; i < actual.length; i++) {
+                        if (actual[i] != original[i] && !(integers[i] && actual[i] == original[i] + 1)) {
+                            fail("Value " + i + " of " + data + " differs from " + Arrays.toString(original));
+                        }
+                    }
+
+                    String expected = data.toString();
+                    assertEquals(expected, ResembleParser.parse(img, pool).toString());
+                    assertEquals(expected, parseChunks(img, random).toString());
+                    try (OffHeapImage offHeap = new OffHeapImage(img.getWidth(), img.getHeight())) {
+                        offHeap.setRows(0, ImageUtils.toPackedImage(img));
+                        assertEquals(expected, ResembleParser.parse(offHeap).toString());
+                    }
+                    if (v % 51 == 0) {
+                        File file = folder.newFile();
+                        ImageIO.write(img, "png", file);
+                        ResembleParserAccumulator accumulator = new ResembleParserAccumulator();
+                        ResembleParser.readImage(file, accumulator);
+                        assertEquals(expected, accumulator.getParserData().toString());
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeWithoutHistogramFails() {
+        new ResembleParserAccumulator(true).merge(new ResembleParserAccumulator(false));
+    }
+}
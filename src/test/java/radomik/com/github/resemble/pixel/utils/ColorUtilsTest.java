@@ -0,0 +1,130 @@
+package radomik.com.github.resemble.pixel.utils;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import radomik.com.github.resemble.pixel.Pixel;
+import radomik.com.github.resemble.pixel.impl.PixelImpl;
+
+/**
+ * Compares color functions with their original double formulas for every RGB value.
+ */
+public class ColorUtilsTest {
+
+    private static final int COLORS = 1 << 24;
+
+    private static int originalBrightness(int r, int g, int b) {
+        return (int) (0.3 * r + 0.59 * g + 0.11 * b);
+    }
+
+    private static double originalHue(int r, int g, int b) {
+        int max = Math.max(Math.max(r, g), b);
+        int min = Math.min(Math.min(r, g), b);
+
+        if (max == min) {
+            return 0.0; // achromatic
+        } else {
+            double d = (double) max / 255.0 - (double) min / 255.0;
+            double h;
+            if (r == max) {
+                h = (((double) g / 255.0) - ((double) b / 255.0)) / d;
+                if (g < b) {
+                    h += 6.0;
+                }
+            } else if (g == max) {
+                h = (((double) b / 255.0) - ((double) r / 255.0)) / d + 2.0;
+            } else {
+                h = (((double) r / 255.0) - ((double) g / 255.0)) / d + 4.0;
+            }
+            return h / 6.0;
+        }
+    }
+
+    /**
+     * Get <code>floor(hue * HUE_LEVELS)</code> of the exact hue.
+     */
+    private static int exactQuantizedHue(int r, int g, int b) {
+        int max = Math.max(Math.max(r, g), b);
+        int min = Math.min(Math.min(r, g), b);
+        if (max == min) {
+            return 0;
+        }
+        int d = max - min;
+        int h;
+        if (r == max) {
+            h = (g < b) ? g - b + 6 * d : g - b;
+        } else if (g == max) {
+            h = b - r + 2 * d;
+        } else {
+            h = r - g + 4 * d;
+        }
+        return h * ColorUtils.HUE_LEVELS / (6 * d);
+    }
+
+    @Test
+    public void testBrightnessMatchesOriginal() {
+        for (int rgb = 0; rgb < COLORS; rgb++) {
+            int r = rgb >>> 16;
+            int g = (rgb >>> 8) & 0xFF;
+            int b = rgb & 0xFF;
+            int expected = originalBrightness(r, g, b);
+            if (ColorUtils.getBrightness(r, g, b) != expected ||
+                    ColorUtils.getARGB_Brightness(0xFF000000 | rgb) != expected) {
+                fail("Brightness of " + Integer.toHexString(rgb));
+            }
+        }
+    }
+
+    @Test
+    public void testHueMatchesOriginal() {
+        for (int rgb = 0; rgb < COLORS; rgb++) {
+            int r = rgb >>> 16;
+            int g = (rgb >>> 8) & 0xFF;
+            int b = rgb & 0xFF;
+            long expected = Double.doubleToRawLongBits(originalHue(r, g, b));
+            if (Double.doubleToRawLongBits(ColorUtils.getHue(r, g, b)) != expected ||
+                    Double.doubleToRawLongBits(ColorUtils.getARGB_Hue(0xFF000000 | rgb)) != expected) {
+                fail("Hue of " + Integer.toHexString(rgb));
+            }
+        }
+    }
+
+    @Test
+    public void testQuantizedHueMatchesExactHue() {
+        for (int rgb = 0; rgb < COLORS; rgb++) {
+            int r = rgb >>> 16;
+            int g = (rgb >>> 8) & 0xFF;
+            int b = rgb & 0xFF;
+            int quantized = ColorUtils.getQuantizedHue(r, g, b);
+            if (quantized != exactQuantizedHue(r, g, b) || ColorUtils.getARGB_QuantizedHue(0xFF000000 | rgb) !=
+                    quantized) {
+                fail("Quantized hue of " + Integer.toHexString(rgb));
+            }
+            // hue threshold checks rely on original hue being within [quantized, quantized + 1] levels
+            double level = originalHue(r, g, b) * ColorUtils.HUE_LEVELS - quantized;
+            if (level < -1e-9 || level > 1.0 + 1e-9) {
+                fail("Original hue of " + Integer.toHexString(rgb) + " is " + level + " levels above quantized");
+            }
+        }
+    }
+
+    @Test
+    public void testColorsDistanceMatchesOriginal() {
+        Pixel pixel1 = new PixelImpl();
+        Pixel pixel2 = new PixelImpl();
+        for (int rgb = 0; rgb < COLORS; rgb++) {
+            int r = rgb >>> 16;
+            int g = (rgb >>> 8) & 0xFF;
+            int b = rgb & 0xFF;
+            int argb1 = 0xFF000000 | rgb;
+            int argb2 = ((rgb * 0x9E3779B1) ^ (rgb >>> 7)) | 0x80000000;
+            int expected = (Math.abs(r - ColorUtils.getARGB_Red(argb2)) +
+                    Math.abs(g - ColorUtils.getARGB_Green(argb2)) + Math.abs(b - ColorUtils.getARGB_Blue(argb2))) / 3;
+            pixel1.setARGB(argb1);
+            pixel2.setARGB(argb2);
+            if (ColorUtils.colorsDistanceRGB(argb1, argb2) != expected ||
+                    ColorUtils.colorsDistanceRGB(pixel1, pixel2) != expected) {
+                fail("Distance of " + Integer.toHexString(argb1) + " and " + Integer.toHexString(argb2));
+            }
+        }
+    }
+}
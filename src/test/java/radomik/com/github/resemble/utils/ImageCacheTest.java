@@ -0,0 +1,129 @@
+package radomik.com.github.resemble.utils;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import javax.imageio.ImageIO;
+
+public class ImageCacheTest {
+
+    private static final int IMAGE_BYTES = 10 * 10 * 4; // 10x10 INT_ARGB
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        ImageUtils.setImageCache(null);
+    }
+
+    private File newFile(String content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes("US-ASCII"));
+        return file;
+    }
+
+    private static BufferedImage newImage() {
+        return new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    private static void put(ImageCache cache, File file, BufferedImage image) throws IOException {
+        cache.put(file, ImageCache.readAttributes(file), image);
+    }
+
+    @Test
+    public void testBudgetAndLeastRecentlyUsedEviction() throws IOException {
+        ImageCache cache = new ImageCache(3 * IMAGE_BYTES);
+        File[] files = new File[4];
+        BufferedImage[] images = new BufferedImage[4];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = newFile("file" + i);
+            images[i] = newImage();
+        }
+        assertEquals(IMAGE_BYTES, ImageCache.getImageBytes(images[0]));
+        put(cache, files[0], images[0]);
+        put(cache, files[1], images[1]);
+        put(cache, files[2], images[2]);
+        assertEquals(3 * IMAGE_BYTES, cache.getBytes());
+        assertEquals(0, cache.getEvictionCount());
+
+        assertSame(images[0], cache.get(files[0])); // file1 becomes least recently used
+        put(cache, files[3], images[3]);
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(3 * IMAGE_BYTES, cache.getBytes());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get(files[1]));
+        assertSame(images[0], cache.get(files[0]));
+        assertSame(images[2], cache.get(files[2]));
+        assertSame(images[3], cache.get(files[3]));
+        assertEquals(4, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // image larger than budget is not cached and does not evict others
+        put(cache, files[1], new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB));
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(1, cache.getEvictionCount());
+
+        cache.clear();
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getBytes());
+        assertEquals(4, cache.getHitCount());
+    }
+
+    @Test
+    public void testChangedFileIsNotServed() throws IOException {
+        ImageCache cache = new ImageCache(10 * IMAGE_BYTES);
+        File file = newFile("a");
+        put(cache, file, newImage());
+        assertNotNull(cache.get(file));
+
+        Files.write(file.toPath(), "ab".getBytes("US-ASCII"));
+        assertNull(cache.get(file));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getBytes());
+
+        put(cache, file, newImage());
+        assertTrue(file.setLastModified(file.lastModified() - 10000));
+        assertNull(cache.get(file));
+    }
+
+    @Test
+    public void testFileChangedWhileDecodingIsNotServed() throws IOException {
+        ImageCache cache = new ImageCache(10 * IMAGE_BYTES);
+        File file = newFile("a");
+        BasicFileAttributes attributes = ImageCache.readAttributes(file);
+        assertNull(cache.get(file, attributes));
+        Files.write(file.toPath(), "ab".getBytes("US-ASCII")); // file rewritten after it was decoded
+        cache.put(file, attributes, newImage());
+        assertNull(cache.get(file));
+    }
+
+    @Test
+    public void testReadImageUsesCache() throws IOException {
+        ImageCache cache = new ImageCache(1 << 20);
+        ImageUtils.setImageCache(cache);
+        File file = folder.newFile("image.png");
+        BufferedImage img = newImage();
+        img.setRGB(1, 2, 0xFF123456);
+        assertTrue(ImageIO.write(img, "png", file));
+
+        BufferedImage first = ImageUtils.readImage(file);
+        assertEquals(0xFF123456, first.getRGB(1, 2));
+        assertSame(first, ImageUtils.readImage(file));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        img.setRGB(1, 2, 0xFF654321);
+        assertTrue(ImageIO.write(img, "png", file));
+        assertTrue(file.setLastModified(file.lastModified() + 10000));
+        assertEquals(0xFF654321, ImageUtils.readImage(file).getRGB(1, 2));
+        assertEquals(2, cache.getMissCount());
+    }
+}
@@ -0,0 +1,45 @@
+package radomik.com.github.resemble.utils;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+public class OffHeapImageTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReadMatchesImageIO() throws IOException {
+        Random random = new Random(3);
+        for (int imageType : new int[]{BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB,
+                BufferedImage.TYPE_BYTE_GRAY}) {
+            BufferedImage img = new BufferedImage(67, 301, imageType);
+            for (int y = 0; y < img.getHeight(); y++) {
+                for (int x = 0; x < img.getWidth(); x++) {
+                    img.setRGB(x, y, random.nextInt());
+                }
+            }
+            for (String formatName : new String[]{"png", "bmp"}) {
+                File file = folder.newFile();
+                if (!ImageIO.write(img, formatName, file)) {
+                    continue; // e.g. BMP with alpha
+                }
+                BufferedImage expected = ImageIO.read(file);
+                for (int stripHeight : new int[]{1, 7, 1000}) {
+                    try (OffHeapImage actual = OffHeapImage.read(file, stripHeight)) {
+                        PackedImage packed = new PackedImage(img.getWidth(), img.getHeight());
+                        actual.getRows(0, packed);
+                        assertArrayEquals(ImageUtils.toPackedImage(expected).getData(), packed.getData());
+                    }
+                }
+            }
+        }
+    }
+}
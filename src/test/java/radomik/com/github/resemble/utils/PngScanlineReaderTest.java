@@ -0,0 +1,113 @@
+package radomik.com.github.resemble.utils;
+
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+public class PngScanlineReaderTest {
+
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 29;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static BufferedImage createIndexed(int bits, boolean alpha, Random random) {
+        int size = 1 << bits;
+        byte[] r = new byte[size];
+        byte[] g = new byte[size];
+        byte[] b = new byte[size];
+        byte[] a = new byte[size];
+        random.nextBytes(r);
+        random.nextBytes(g);
+        random.nextBytes(b);
+        random.nextBytes(a);
+        IndexColorModel colorModel = alpha ? new IndexColorModel(bits, size, r, g, b, a) :
+                new IndexColorModel(bits, size, r, g, b);
+        int imageType = (bits == 8) ? BufferedImage.TYPE_BYTE_INDEXED : BufferedImage.TYPE_BYTE_BINARY;
+        return new BufferedImage(WIDTH, HEIGHT, imageType, colorModel);
+    }
+
+    private static BufferedImage createUShort(boolean alpha) {
+        ComponentColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), alpha,
+                false, alpha ? Transparency.TRANSLUCENT : Transparency.OPAQUE, DataBuffer.TYPE_USHORT);
+        WritableRaster raster = colorModel.createCompatibleWritableRaster(WIDTH, HEIGHT);
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    /**
+     * Images of every color type and most bit depths written by ImageIO.
+     */
+    private static List<BufferedImage> createImages(Random random) {
+        List<BufferedImage> images = new ArrayList<>();
+        for (int imageType : new int[]{BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+                BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY,
+                BufferedImage.TYPE_USHORT_GRAY}) {
+            images.add(new BufferedImage(WIDTH, HEIGHT, imageType));
+        }
+        images.add(createUShort(false));
+        images.add(createUShort(true));
+        for (int bits : new int[]{1, 2, 4, 8}) {
+            images.add(createIndexed(bits, false, random));
+            images.add(createIndexed(bits, true, random));
+        }
+        for (BufferedImage img : images) {
+            WritableRaster raster = img.getRaster();
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    for (int band = 0; band < raster.getNumBands(); band++) {
+                        int bits = raster.getSampleModel().getSampleSize(band);
+                        raster.setSample(x, y, band, random.nextInt(1 << bits));
+                    }
+                }
+            }
+        }
+        return images;
+    }
+
+    @Test
+    public void testRowsMatchImageIO() throws IOException {
+        Random random = new Random(10);
+        for (BufferedImage img : createImages(random)) {
+            File file = folder.newFile();
+            assertTrue(ImageIO.write(img, "png", file));
+            int[] expected = ImageIO.read(file).getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+            assertTrue(PngScanlineReader.canRead(file));
+            for (int stripHeight : new int[]{1, 4, HEIGHT}) {
+                // strips overlap by a row, as read by ResembleStreamAnalysis
+                try (PngScanlineReader reader = new PngScanlineReader(file, true)) {
+                    for (int y = 0; y < HEIGHT; y += stripHeight) {
+                        int readFrom = Math.max(0, y - 1);
+                        int readTo = Math.min(HEIGHT, y + stripHeight + 1);
+                        PackedImage strip = new PackedImage(WIDTH, readTo - readFrom);
+                        reader.getRows(readFrom, strip);
+                        for (int row = 0; row < strip.getHeight(); row++) {
+                            for (int x = 0; x < WIDTH; x++) {
+                                int index = (readFrom + row) * WIDTH + x;
+                                if (expected[index] != strip.getData()[strip.indexOf(x, row)]) {
+                                    fail(img.getColorModel() + ": pixel " + x + "," + (readFrom + row) + " is " +
+                                            Integer.toHexString(strip.getData()[strip.indexOf(x, row)]) +
+                                            " instead of " + Integer.toHexString(expected[index]));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
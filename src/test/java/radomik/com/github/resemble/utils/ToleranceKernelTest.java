@@ -0,0 +1,100 @@
+package radomik.com.github.resemble.utils;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import radomik.com.github.resemble.pixel.utils.ColorUtils;
+import java.util.Random;
+
+/**
+ * Compares tolerance checks with per-pixel checks. On Java 17+ tests run with vectorized checks of multi-release
+ * classes (see <code>java17</code> profile).
+ */
+public class ToleranceKernelTest {
+
+    private static boolean isARGBDifferent(int argb1, int argb2, int toleranceAlpha, int toleranceRed,
+            int toleranceGreen, int toleranceBlue) {
+        return Math.abs(ColorUtils.getARGB_Alpha(argb1) - ColorUtils.getARGB_Alpha(argb2)) > toleranceAlpha ||
+                Math.abs(ColorUtils.getARGB_Red(argb1) - ColorUtils.getARGB_Red(argb2)) > toleranceRed ||
+                Math.abs(ColorUtils.getARGB_Green(argb1) - ColorUtils.getARGB_Green(argb2)) > toleranceGreen ||
+                Math.abs(ColorUtils.getARGB_Blue(argb1) - ColorUtils.getARGB_Blue(argb2)) > toleranceBlue;
+    }
+
+    private static boolean isBrightnessDifferent(int argb1, int argb2, int toleranceAlpha,
+            int toleranceBrightness) {
+        return Math.abs(ColorUtils.getARGB_Alpha(argb1) - ColorUtils.getARGB_Alpha(argb2)) > toleranceAlpha ||
+                Math.abs(ColorUtils.getARGB_Brightness(argb1) - ColorUtils.getARGB_Brightness(argb2)) >
+                toleranceBrightness;
+    }
+
+    private static void assertMask(long[] mask, int length, boolean[] expected, int count) {
+        int expectedCount = 0;
+        for (int i = 0; i < length; i++) {
+            assertEquals("pixel " + i, expected[i], ((mask[i >>> 6] >>> i) & 1L) != 0);
+            expectedCount += expected[i] ? 1 : 0;
+        }
+        if ((length & 63) != 0) {
+            assertEquals("bits after last pixel", 0L, mask[length >>> 6] >>> length);
+        }
+        assertEquals(expectedCount, count);
+    }
+
+    @Test
+    public void testRangesMatchPixelChecks() {
+        Random random = new Random(9);
+        for (int it = 0; it < 5000; it++) {
+            int length = random.nextInt(300);
+            int aFrom = random.nextInt(5);
+            int bFrom = random.nextInt(5);
+            int[] a = new int[length + 5];
+            int[] b = new int[length + 5];
+            for (int i = 0; i < length; i++) {
+                a[aFrom + i] = random.nextInt();
+                b[bFrom + i] = random.nextBoolean() ? a[aFrom + i] ^ (random.nextInt() & 0x07070707) :
+                        random.nextInt();
+            }
+            int toleranceAlpha = random.nextInt(20);
+            int toleranceRed = random.nextInt(20);
+            int toleranceGreen = random.nextInt(20);
+            int toleranceBlue = random.nextInt(20);
+            int toleranceBrightness = random.nextInt(10);
+            long[] mask = new long[(length + 63) / 64 + 1];
+            boolean[] expected = new boolean[length];
+
+            int count = ToleranceKernel.compareARGB(a, aFrom, b, bFrom, length, toleranceAlpha, toleranceRed,
+                    toleranceGreen, toleranceBlue, mask);
+            for (int i = 0; i < length; i++) {
+                expected[i] = isARGBDifferent(a[aFrom + i], b[bFrom + i], toleranceAlpha, toleranceRed,
+                        toleranceGreen, toleranceBlue);
+            }
+            assertMask(mask, length, expected, count);
+
+            count = ToleranceKernel.compareBrightness(a, aFrom, b, bFrom, length, toleranceAlpha,
+                    toleranceBrightness, mask);
+            for (int i = 0; i < length; i++) {
+                expected[i] = isBrightnessDifferent(a[aFrom + i], b[bFrom + i], toleranceAlpha,
+                        toleranceBrightness);
+            }
+            assertMask(mask, length, expected, count);
+        }
+    }
+
+    @Test
+    public void testBrightnessOfEveryColor() {
+        int length = 1 << 24;
+        int[] a = new int[length];
+        int[] b = new int[length];
+        for (int i = 0; i < length; i++) {
+            a[i] = 0xFF000000 | i;
+            b[i] = 0xFF000000 | ((i * 7 + 13) & 0xFFFFFF);
+        }
+        long[] mask = new long[length / 64];
+        boolean[] expected = new boolean[length];
+        for (int toleranceBrightness = 0; toleranceBrightness <= 1; toleranceBrightness++) {
+            int count = ToleranceKernel.compareBrightness(a, 0, b, 0, length, 0, toleranceBrightness, mask);
+            for (int i = 0; i < length; i++) {
+                expected[i] = isBrightnessDifferent(a[i], b[i], 0, toleranceBrightness);
+            }
+            assertMask(mask, length, expected, count);
+        }
+    }
+}